@@ -181,6 +181,8 @@ public final class TridentMain {
             h.register(MINECRAFT_INST, new OpCommand());
             h.register(MINECRAFT_INST, new DeopCommand());
             h.register(TRIDENT_INST, new DebugCommand());
+            h.register(TRIDENT_INST, new PregenCommand());
+            h.register(TRIDENT_INST, new CompactCommand());
             logger.log("Done.");
             // ---------------------------------------------
 
@@ -33,6 +33,7 @@ import net.tridentsdk.server.net.NetServer;
 import net.tridentsdk.server.player.TridentPlayer;
 import net.tridentsdk.server.plugin.TridentEventController;
 import net.tridentsdk.server.util.JiraExceptionCatcher;
+import net.tridentsdk.server.world.Region;
 import net.tridentsdk.server.world.TridentWorldLoader;
 import net.tridentsdk.ui.chat.ChatComponent;
 import net.tridentsdk.world.World;
@@ -137,10 +138,12 @@ public class TridentServer implements Server {
     /**
      * Shortcut method to retrieving the server config.
      *
-     * @return the server config
+     * @return the server config, or {@code null} if the
+     * server has not been initialized
      */
     public static ServerConfig cfg() {
-        return instance.getConfig();
+        TridentServer server = instance;
+        return server == null ? null : server.getConfig();
     }
 
     @Override
@@ -228,6 +231,7 @@ public class TridentServer implements Server {
                 this.logger.log("Saving world \"" + world.getName() + "\"...");
                 world.save();
             }
+            Region.closeAll();
             this.logger.log("Saving server config...");
             this.config.save();
             this.logger.log("Shutting down server process...");
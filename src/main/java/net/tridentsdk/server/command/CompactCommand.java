@@ -0,0 +1,90 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.command;
+
+import net.tridentsdk.command.Command;
+import net.tridentsdk.command.CommandListener;
+import net.tridentsdk.command.CommandSource;
+import net.tridentsdk.command.CommandSourceType;
+import net.tridentsdk.command.annotation.AllowedSourceTypes;
+import net.tridentsdk.command.annotation.PermissionRequired;
+import net.tridentsdk.logger.Logger;
+import net.tridentsdk.server.concurrent.PoolSpec;
+import net.tridentsdk.server.concurrent.ServerThreadPool;
+import net.tridentsdk.server.world.Region;
+import net.tridentsdk.server.world.RegionCompactor;
+import net.tridentsdk.server.world.TridentWorld;
+import net.tridentsdk.server.world.TridentWorldLoader;
+import net.tridentsdk.ui.chat.ChatComponent;
+import net.tridentsdk.world.World;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Immutable
+public class CompactCommand implements CommandListener {
+    private static final Logger LOGGER = Logger.get(CompactCommand.class);
+
+    @Command(name = "compact", help = "/compact <world>", desc = "Rewrites the region files of a world without unused space")
+    @AllowedSourceTypes(CommandSourceType.CONSOLE)
+    @PermissionRequired("trident.compact")
+    public void compact(CommandSource source, String[] args, String worldName) {
+        World w = TridentWorldLoader.getInstance().getWorlds().get(worldName);
+        if (w == null) {
+            source.sendMessage(ChatComponent.text("No world by the name '" + worldName + "' is loaded."));
+            return;
+        }
+
+        Path dir = ((TridentWorld) w).getDirectory().resolve("region");
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(RegionCompactor::isRegion).collect(Collectors.toList());
+        } catch (IOException e) {
+            source.sendMessage(ChatComponent.text("Could not list the region files of world '" + worldName + "'."));
+            return;
+        }
+
+        source.sendMessage(ChatComponent.text("Compacting " + files.size() + " region files of world '" + worldName + "'..."));
+        ServerThreadPool.forSpec(PoolSpec.CHUNKS).execute(() -> {
+            long start = System.nanoTime();
+            long reclaimed = 0;
+            for (Path file : files) {
+                Region region = Region.acquire(file, false);
+                if (region == null) {
+                    continue;
+                }
+
+                try {
+                    RegionCompactor.Result result = region.compact();
+                    reclaimed += result.getReclaimed();
+                    LOGGER.log(result.describe());
+                } finally {
+                    region.release();
+                }
+            }
+
+            LOGGER.success(String.format("Compacted %d region files of world \"%s\", reclaimed %d KB in %d ms",
+                    files.size(), worldName, reclaimed >> 10, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        });
+    }
+}
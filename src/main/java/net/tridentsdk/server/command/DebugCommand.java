@@ -32,6 +32,10 @@ import net.tridentsdk.server.packet.play.PlayOutDestroyEntities;
 import net.tridentsdk.server.packet.play.PlayOutTabListItem;
 import net.tridentsdk.server.player.RecipientSelector;
 import net.tridentsdk.server.player.TridentPlayer;
+import net.tridentsdk.server.world.ChunkAutosave;
+import net.tridentsdk.server.world.ChunkLoadQueue;
+import net.tridentsdk.server.world.ChunkSection;
+import net.tridentsdk.server.world.Region;
 import net.tridentsdk.server.world.TridentChunk;
 import net.tridentsdk.ui.bossbar.BossBar;
 import net.tridentsdk.ui.bossbar.BossBarColor;
@@ -48,7 +52,7 @@ import java.util.Collections;
 @Debug
 public class DebugCommand implements CommandListener {
 
-    @Command(name = "debug", help = "/debug <chunks|bossbars|title|cleartitle|chat|rain|change>", desc = "Secret debug command for devs")
+    @Command(name = "debug", help = "/debug <chunks|bossbars|title|cleartitle|chat|rain|change|chunkcache|regioncache|loadqueue|autosave>", desc = "Secret debug command for devs")
     @AllowedSourceTypes(CommandSourceType.PLAYER)
     @PermissionRequired("trident.debug")
     public void debug(CommandSource source, String[] args, String mode) {
@@ -108,6 +112,28 @@ public class DebugCommand implements CommandListener {
             RecipientSelector.whoCanSee(player, false, new PlayOutDestroyEntities(Collections.singletonList(player)),
                     addPlayer);
             RecipientSelector.whoCanSee(player, true, player.getSpawnPacket());
+        } else if (mode.equals("chunkcache")) {
+            long hits = ChunkSection.getEncodeHits();
+            long misses = ChunkSection.getEncodeMisses();
+            long total = hits + misses;
+            double rate = total == 0 ? 0 : hits * 100D / total;
+
+            player.sendMessage(ChatComponent.text(String.format("Chunk section cache: %d hits, %d misses (%.1f%% hit rate)",
+                    hits, misses, rate)));
+        } else if (mode.equals("regioncache")) {
+            player.sendMessage(ChatComponent.text(String.format("Region files: %d open, %d hits, %d misses, %d evictions",
+                    Region.getOpenCount(), Region.getCacheHits(), Region.getCacheMisses(), Region.getCacheEvictions())));
+        } else if (mode.equals("loadqueue")) {
+            ChunkLoadQueue queue = player.getWorld().getLoadQueue();
+            player.sendMessage(ChatComponent.text(String.format("Chunk loads: %d pending, %d queued, %d prefetched, %d cancelled, %d completed, %d failed",
+                    queue.getPending(), queue.getQueued(), queue.getPrefetched(), queue.getCancelled(), queue.getCompleted(),
+                    queue.getFailed())));
+        } else if (mode.equals("autosave")) {
+            ChunkAutosave autosave = player.getWorld().getAutosave();
+            String progress = autosave.isRunning() ?
+                    String.format("%d/%d chunks saved", autosave.getSaved(), autosave.getTotal()) : "idle";
+            player.sendMessage(ChatComponent.text(String.format("Autosave: %s, last run %.1f chunks/s, %d queued writes",
+                    progress, autosave.getLastThroughput(), player.getWorld().getSaveQueue().getPending())));
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.command;
+
+import net.tridentsdk.base.Position;
+import net.tridentsdk.command.Command;
+import net.tridentsdk.command.CommandListener;
+import net.tridentsdk.command.CommandSource;
+import net.tridentsdk.command.CommandSourceType;
+import net.tridentsdk.command.annotation.AllowedSourceTypes;
+import net.tridentsdk.command.annotation.PermissionRequired;
+import net.tridentsdk.server.world.TridentWorld;
+import net.tridentsdk.server.world.TridentWorldLoader;
+import net.tridentsdk.server.world.WorldPregenerator;
+import net.tridentsdk.ui.chat.ChatComponent;
+import net.tridentsdk.world.World;
+
+import javax.annotation.concurrent.Immutable;
+
+@Immutable
+public class PregenCommand implements CommandListener {
+
+    @Command(name = "pregen", help = "/pregen <world> <radius|pause|resume|cancel|status>", desc = "Generates the chunks around a world's spawn in the background")
+    @AllowedSourceTypes(CommandSourceType.CONSOLE)
+    @PermissionRequired("trident.pregen")
+    public void pregen(CommandSource source, String[] args, String worldName, String action) {
+        World w = TridentWorldLoader.getInstance().getWorlds().get(worldName);
+        if (w == null) {
+            source.sendMessage(ChatComponent.text("No world by the name '" + worldName + "' is loaded."));
+            return;
+        }
+
+        TridentWorld world = (TridentWorld) w;
+        WorldPregenerator running = world.getPregenerator();
+        if (action.equals("pause") || action.equals("resume") || action.equals("cancel") || action.equals("status")) {
+            if (running == null) {
+                source.sendMessage(ChatComponent.text("World '" + worldName + "' is not being pre-generated."));
+                return;
+            }
+
+            if (action.equals("pause")) {
+                running.pause();
+                source.sendMessage(ChatComponent.text("Paused pre-generation of world '" + worldName + "'."));
+            } else if (action.equals("resume")) {
+                running.resume();
+                source.sendMessage(ChatComponent.text("Resumed pre-generation of world '" + worldName + "'."));
+            } else if (action.equals("cancel")) {
+                running.cancel();
+                source.sendMessage(ChatComponent.text("Cancelled pre-generation of world '" + worldName + "'."));
+            } else {
+                source.sendMessage(ChatComponent.text(running.status()));
+            }
+            return;
+        }
+
+        int radius;
+        try {
+            radius = Integer.parseInt(action);
+        } catch (NumberFormatException e) {
+            source.sendMessage(ChatComponent.text("Usage: /pregen <world> <radius|pause|resume|cancel|status>"));
+            return;
+        }
+
+        if (radius < 0) {
+            source.sendMessage(ChatComponent.text("The radius cannot be negative."));
+            return;
+        }
+
+        if (running != null) {
+            source.sendMessage(ChatComponent.text("World '" + worldName + "' is already being pre-generated."));
+            return;
+        }
+
+        Position spawn = world.getWorldOptions().getSpawn();
+        WorldPregenerator pregenerator = new WorldPregenerator(world, spawn.getChunkX(), spawn.getChunkZ(), radius);
+        world.setPregenerator(pregenerator);
+        source.sendMessage(ChatComponent.text("Pre-generating " + pregenerator.getTotal() + " chunks around the spawn of world '" + worldName + "'..."));
+    }
+}
@@ -42,8 +42,10 @@ public class PoolSpec implements ThreadFactory, ForkJoinPool.ForkJoinWorkerThrea
     // methods as well such as sugar cane growing, tree leaf
     // decay, etc...
     public static final PoolSpec WORLDS = new PoolSpec("TRD - Worlds", 4, true);
-    // World gen, chunk unloading and memory management
-    public static final PoolSpec CHUNKS = new PoolSpec("TRD - Chunks", 4, true);
+    // World gen, chunk unloading and memory management,
+    // sized to the machine so generation scales with cores
+    public static final PoolSpec CHUNKS = new PoolSpec("TRD - Chunks",
+            Math.max(4, Runtime.getRuntime().availableProcessors()), true);
 
     // Self-explanatory
     public static final PoolSpec ENTITIES = new PoolSpec("TRD - Entities", 3, false);
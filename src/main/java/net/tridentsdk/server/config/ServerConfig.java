@@ -34,6 +34,44 @@ public class ServerConfig extends TridentConfig {
      * The path to the server configuration file
      */
     public static final Path PATH = Misc.HOME_PATH.resolve("server.hjson");
+    /**
+     * The defaults for chunk retention, used when the
+     * server file predates them
+     */
+    public static final int DEFAULT_SPAWN_CHUNK_RADIUS = 3;
+    public static final int DEFAULT_CHUNK_UNLOAD_DELAY = 300;
+    public static final int DEFAULT_CHUNK_UNLOAD_BUDGET = 16;
+    /**
+     * The defaults for autosaving, used when the server
+     * file predates them
+     */
+    public static final int DEFAULT_AUTOSAVE_INTERVAL = 6000;
+    public static final int DEFAULT_AUTOSAVE_BUDGET = 10;
+    /**
+     * The default tick time under which pre-generation
+     * runs, used when the server file predates it
+     */
+    public static final int DEFAULT_PREGEN_TICK_BUDGET = 40;
+    /**
+     * The default number of chunks sent to a player per
+     * tick, used when the server file predates it
+     */
+    public static final int DEFAULT_CHUNK_SEND_BUDGET = 8;
+    /**
+     * The default number of region files kept open, used
+     * when the server file predates it
+     */
+    public static final int DEFAULT_REGION_CACHE_SIZE = 256;
+    /**
+     * The default compression level of chunks saved to
+     * region files, used when the server file predates it
+     */
+    public static final int DEFAULT_REGION_COMPRESSION_LEVEL = 6;
+    /**
+     * The default policy for forcing region files to disk,
+     * used when the server file predates it
+     */
+    public static final String DEFAULT_REGION_DURABILITY = "shutdown";
 
     /**
      * The internal server ip to which the socket
@@ -70,6 +108,48 @@ public class ServerConfig extends TridentConfig {
      */
     @Getter
     private volatile boolean nettyLeakDetectorEnabled;
+    /**
+     * The radius of chunks kept loaded around spawn
+     */
+    private volatile int spawnChunkRadius;
+    /**
+     * The ticks a chunk stays loaded after its last ticket
+     * is removed
+     */
+    private volatile int chunkUnloadDelay;
+    /**
+     * The maximum chunks unloaded per world each tick
+     */
+    private volatile int chunkUnloadBudget;
+    /**
+     * The ticks between autosaves
+     */
+    private volatile int autosaveInterval;
+    /**
+     * The milliseconds each world spends autosaving per tick
+     */
+    private volatile int autosaveBudget;
+    /**
+     * The world tick time above which pre-generation holds
+     * off
+     */
+    private volatile int pregenTickBudget;
+    /**
+     * The chunks sent to each player per tick
+     */
+    private volatile int chunkSendBudget;
+    /**
+     * The region files kept open
+     */
+    private volatile int regionCacheSize;
+    /**
+     * The compression level of saved chunks
+     */
+    private volatile int regionCompressionLevel;
+    /**
+     * When region files are forced to disk
+     */
+    private volatile String regionDurability;
 
     /**
      * Initializes the server file and load all the
@@ -170,6 +250,136 @@ public class ServerConfig extends TridentConfig {
         return this.motd;
     }
 
+    /**
+     * Obtains the radius of chunks around the world spawn
+     * which are always kept loaded.
+     *
+     * <p>By default, this needs to be 3</p>
+     *
+     * @return the spawn chunk radius
+     */
+    public int spawnChunkRadius() {
+        return this.spawnChunkRadius;
+    }
+
+    /**
+     * Obtains the number of ticks that a chunk remains
+     * loaded once nothing retains it anymore, which stops
+     * chunks on a player's view border from being reloaded
+     * constantly.
+     *
+     * <p>By default, this needs to be 300</p>
+     *
+     * @return the unload delay, in ticks
+     */
+    public int chunkUnloadDelay() {
+        return this.chunkUnloadDelay;
+    }
+
+    /**
+     * Obtains the maximum number of chunks that each world
+     * unloads in a single tick.
+     *
+     * <p>By default, this needs to be 16</p>
+     *
+     * @return the unload budget
+     */
+    public int chunkUnloadBudget() {
+        return this.chunkUnloadBudget;
+    }
+
+    /**
+     * Obtains the number of ticks between the autosaves of
+     * modified chunks, or 0 if autosaving is disabled.
+     *
+     * <p>By default, this needs to be 6000</p>
+     *
+     * @return the autosave interval, in ticks
+     */
+    public int autosaveInterval() {
+        return this.autosaveInterval;
+    }
+
+    /**
+     * Obtains the time that each world may spend writing
+     * chunks during a tick while an autosave is running.
+     *
+     * <p>By default, this needs to be 10</p>
+     *
+     * @return the autosave budget, in milliseconds
+     */
+    public int autosaveBudget() {
+        return this.autosaveBudget;
+    }
+
+    /**
+     * Obtains the world tick time above which background
+     * pre-generation stops requesting new chunks until the
+     * world catches up.
+     *
+     * <p>By default, this needs to be 40</p>
+     *
+     * @return the pre-generation tick budget, in
+     * milliseconds
+     */
+    public int pregenTickBudget() {
+        return this.pregenTickBudget;
+    }
+
+    /**
+     * Obtains the maximum number of chunks sent to each
+     * player per tick. Players with a slow connection are
+     * sent fewer.
+     *
+     * <p>By default, this needs to be 8</p>
+     *
+     * @return the chunk send budget
+     */
+    public int chunkSendBudget() {
+        return this.chunkSendBudget;
+    }
+
+    /**
+     * Obtains the maximum number of region files that are
+     * kept open. Files in use are not closed even if more
+     * are open.
+     *
+     * <p>By default, this needs to be 256</p>
+     *
+     * @return the region cache size
+     */
+    public int regionCacheSize() {
+        return this.regionCacheSize;
+    }
+
+    /**
+     * Obtains the deflate level, from 1 to 9, with which
+     * chunks are compressed when saved to region files, or
+     * 0 to store them in uncompressed deflate blocks, which
+     * the vanilla server can still read.
+     *
+     * <p>By default, this needs to be 6</p>
+     *
+     * @return the region compression level
+     */
+    public int regionCompressionLevel() {
+        return this.regionCompressionLevel;
+    }
+
+    /**
+     * Obtains when saved chunks are forced to disk: "none"
+     * to leave it to the operating system, "batch" after
+     * every batch of chunks written to a region file, or
+     * "shutdown" when region files are closed.
+     *
+     * <p>By default, this needs to be shutdown</p>
+     *
+     * @return the region durability policy
+     */
+    public String regionDurability() {
+        return this.regionDurability;
+    }
+
     @Override
     public void load() throws IOException {
         super.load();
@@ -181,5 +391,25 @@ public class ServerConfig extends TridentConfig {
         this.maxPlayers = this.getInt("max-players");
         this.motd = this.getString("motd");
         this.nettyLeakDetectorEnabled = this.getBoolean("netty-leak-detector");
+        this.spawnChunkRadius = this.hasKey("spawn-chunk-radius") ?
+                this.getInt("spawn-chunk-radius") : DEFAULT_SPAWN_CHUNK_RADIUS;
+        this.chunkUnloadDelay = this.hasKey("chunk-unload-delay") ?
+                this.getInt("chunk-unload-delay") : DEFAULT_CHUNK_UNLOAD_DELAY;
+        this.chunkUnloadBudget = this.hasKey("chunk-unload-budget") ?
+                this.getInt("chunk-unload-budget") : DEFAULT_CHUNK_UNLOAD_BUDGET;
+        this.autosaveInterval = this.hasKey("autosave-interval") ?
+                this.getInt("autosave-interval") : DEFAULT_AUTOSAVE_INTERVAL;
+        this.autosaveBudget = this.hasKey("autosave-budget") ?
+                this.getInt("autosave-budget") : DEFAULT_AUTOSAVE_BUDGET;
+        this.pregenTickBudget = this.hasKey("pregen-tick-budget") ?
+                this.getInt("pregen-tick-budget") : DEFAULT_PREGEN_TICK_BUDGET;
+        this.chunkSendBudget = this.hasKey("chunk-send-budget") ?
+                this.getInt("chunk-send-budget") : DEFAULT_CHUNK_SEND_BUDGET;
+        this.regionCacheSize = this.hasKey("region-cache-size") ?
+                this.getInt("region-cache-size") : DEFAULT_REGION_CACHE_SIZE;
+        this.regionCompressionLevel = this.hasKey("region-compression-level") ?
+                this.getInt("region-compression-level") : DEFAULT_REGION_COMPRESSION_LEVEL;
+        this.regionDurability = this.hasKey("region-durability") ?
+                this.getString("region-durability") : DEFAULT_REGION_DURABILITY;
     }
 }
\ No newline at end of file
@@ -40,6 +40,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
@@ -76,6 +77,12 @@ public abstract class TridentEntity implements Entity {
      */
     @GuardedBy("pool")
     private Position position;
+    /**
+     * The most recent position passed to
+     * {@link #setPosition(Position, boolean)}, used to drop
+     * moves superseded while their chunk was loading
+     */
+    private volatile Position pendingPosition;
     /**
      * Whether or not this entity is on the ground
      */
@@ -104,7 +111,7 @@ public abstract class TridentEntity implements Entity {
         if (this instanceof Player) {
             TridentPlayer player = (TridentPlayer) this;
             world.getOccupants().add(player);
-            world.getChunkAt(pos.getChunkX(), pos.getChunkZ()).getOccupants().add(player);
+            world.getChunkAtAsync(pos.getChunkX(), pos.getChunkZ()).thenAccept(chunk -> chunk.getOccupants().add(player));
         } else {
             world.getEntitySet().add(this);
         }
@@ -143,11 +150,38 @@ public abstract class TridentEntity implements Entity {
      * client represented by this entity
      */
     public void setPosition(Position position, boolean sendUpdate) {
+        this.pendingPosition = position;
+
+        TridentWorld destWorld = (TridentWorld) position.getWorld();
+        CompletableFuture<TridentChunk> future = destWorld.getChunkAtAsync(position.getChunkX(), position.getChunkZ());
+        if (future.isDone()) {
+            this.move(position, future.join(), sendUpdate);
+        } else {
+            future.thenAccept(chunk -> this.move(position, chunk, sendUpdate));
+        }
+    }
+
+    /**
+     * Moves this entity into the given chunk once it has
+     * been loaded.
+     *
+     * @param position the position to set
+     * @param destChunk the chunk containing the position
+     * @param sendUpdate {@code true} to update for the
+     * client represented by this entity
+     */
+    private void move(Position position, TridentChunk destChunk, boolean sendUpdate) {
         synchronized (this.pool) {
+            // A newer position was set while the chunk was
+            // loading
+            if (this.pendingPosition != position) {
+                return;
+            }
+
             Position old = this.position;
 
             TridentWorld fromWorld = (TridentWorld) old.getWorld();
-            TridentWorld destWorld = (TridentWorld) position.getWorld();
+            TridentWorld destWorld = destChunk.getWorld();
             if (!destWorld.equals(fromWorld)) {
                 if (this instanceof Player) {
                     fromWorld.getOccupants().remove(this);
@@ -160,11 +194,10 @@ public abstract class TridentEntity implements Entity {
 
             int destCX = position.getChunkX();
             int destCZ = position.getChunkZ();
-            TridentChunk destChunk = destWorld.getChunkAt(destCX, destCZ);
             int fromCX = old.getChunkX();
             int fromCZ = old.getChunkZ();
             if (fromCX != destCX || fromCZ != destCZ) {
-                TridentChunk fromChunk = fromWorld.getChunkAt(fromCX, fromCZ, false);
+                TridentChunk fromChunk = fromWorld.getChunks().getIfReady(fromCX, fromCZ);
                 List<Entity> destroy = Collections.singletonList(this);
 
                 PacketOut spawnThis = this.getSpawnPacket();
@@ -124,8 +124,8 @@ public class NetClient {
     @Getter
     private volatile TridentPlayer player;
     /**
-     * The time it took for the server to receive the
-     * status ping from the player, in ms.
+     * The round trip time of the last keep alive sent to
+     * the player, in ms.
      */
     @Getter
     private final AtomicLong ping = new AtomicLong();
@@ -225,6 +225,16 @@ public class NetClient {
         }
     }
 
+    /**
+     * Determines whether the client's channel can take more
+     * writes without queueing them up in memory.
+     *
+     * @return {@code true} if the channel is writable
+     */
+    public boolean isWritable() {
+        return this.channel.isWritable();
+    }
+
     /**
      * Sends the given packet to the client's channel.
      *
@@ -80,6 +80,7 @@ public final class PlayInKeepAlive extends PacketIn {
             return;
         }
 
+        client.getPing().set((System.nanoTime() - client.lastKeepAlive()) / 1_000_000);
         TICK_IDS.compute(client, (k, v) -> null);
     }
 }
\ No newline at end of file
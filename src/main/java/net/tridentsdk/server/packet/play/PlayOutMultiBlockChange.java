@@ -0,0 +1,62 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.packet.play;
+
+import io.netty.buffer.ByteBuf;
+import net.tridentsdk.server.packet.PacketOut;
+import net.tridentsdk.server.world.TridentChunk;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
+
+import static net.tridentsdk.server.net.NetData.wvint;
+
+/**
+ * Sent by the server to indicate to the client that
+ * multiple blocks in a single chunk have changed.
+ */
+@Immutable
+public final class PlayOutMultiBlockChange extends PacketOut {
+    private final int chunkX;
+    private final int chunkZ;
+    /**
+     * Change records, as created by
+     * {@link TridentChunk#record(int, int, int, short)}
+     */
+    private final int[] records;
+
+    public PlayOutMultiBlockChange(int chunkX, int chunkZ, int[] records, int count) {
+        super(PlayOutMultiBlockChange.class);
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.records = Arrays.copyOf(records, count);
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        buf.writeInt(this.chunkX);
+        buf.writeInt(this.chunkZ);
+        wvint(buf, this.records.length);
+
+        for (int record : this.records) {
+            // Horizontal position, then Y, then block state
+            buf.writeByte(record >>> 24);
+            buf.writeByte(record >>> 16 & 0xFF);
+            wvint(buf, record & 0xFFFF);
+        }
+    }
+}
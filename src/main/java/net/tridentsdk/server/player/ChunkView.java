@@ -0,0 +1,328 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.player;
+
+import net.tridentsdk.server.world.TridentChunk;
+import net.tridentsdk.server.world.TridentWorld;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.Consumer;
+
+/**
+ * The square of chunks around a player which the player
+ * can see, along with the chunks that have been sent to
+ * them.
+ *
+ * <p>Sent chunks are kept in a fixed size array large
+ * enough for the largest view, indexed by the chunk
+ * coordinates modulo its side. Since the view is never
+ * wider than the array, each chunk in view has its own
+ * slot and slots are reused as the view slides over them,
+ * without hashing or boxing the coordinates.</p>
+ *
+ * <p>When the view moves, only the strips of chunks which
+ * enter and leave it are visited.</p>
+ */
+@ThreadSafe
+public class ChunkView {
+    /**
+     * The largest view radius, in chunks
+     */
+    public static final int MAX_RADIUS = 32;
+    /**
+     * The side of the slot array
+     */
+    private static final int SIDE = 2 * MAX_RADIUS + 1;
+    /**
+     * The chunk offsets within the largest radius, packed
+     * as {@code dx << 16 | dz & 0xFFFF} and ordered by
+     * distance from the center
+     */
+    private static final int[] SPIRAL = spiral();
+
+    /**
+     * Visits the coordinates of a chunk.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        /**
+         * Visits the chunk at the given coordinates.
+         *
+         * @param x the chunk x coordinate
+         * @param z the chunk z coordinate
+         */
+        void visit(int x, int z);
+    }
+
+    /**
+     * The chunks sent to the player, by slot
+     */
+    @GuardedBy("this")
+    private final TridentChunk[] chunks = new TridentChunk[SIDE * SIDE];
+    /**
+     * The world which the view is in, or {@code null} if
+     * the view is empty
+     */
+    @GuardedBy("this")
+    private TridentWorld world;
+    @GuardedBy("this")
+    private int centerX;
+    @GuardedBy("this")
+    private int centerZ;
+    @GuardedBy("this")
+    private int radius;
+    /**
+     * The number of chunks sent to the player
+     */
+    @GuardedBy("this")
+    private int size;
+
+    /**
+     * Computes the offsets of the chunks within the largest
+     * radius, closest first.
+     */
+    private static int[] spiral() {
+        Integer[] offsets = new Integer[SIDE * SIDE];
+        int i = 0;
+        for (int dx = -MAX_RADIUS; dx <= MAX_RADIUS; dx++) {
+            for (int dz = -MAX_RADIUS; dz <= MAX_RADIUS; dz++) {
+                offsets[i++] = dx << 16 | dz & 0xFFFF;
+            }
+        }
+
+        Arrays.sort(offsets, Comparator.comparingInt(o -> {
+            int dx = o >> 16;
+            int dz = (short) (int) o;
+            return dx * dx + dz * dz;
+        }));
+
+        int[] spiral = new int[offsets.length];
+        for (i = 0; i < spiral.length; i++) {
+            spiral[i] = offsets[i];
+        }
+        return spiral;
+    }
+
+    /**
+     * Obtains the slot of the given chunk coordinates.
+     */
+    private static int slot(int x, int z) {
+        return Math.floorMod(x, SIDE) * SIDE + Math.floorMod(z, SIDE);
+    }
+
+    /**
+     * Moves the view to the given center and radius.
+     *
+     * <p>Chunks which leave the view are passed to the
+     * release callback if they had been sent. The
+     * coordinates of the chunks which enter it are passed to
+     * the entering visitor, closest first if the view does
+     * not overlap its previous position.</p>
+     *
+     * @param world the world the player is in
+     * @param centerX the center chunk x coordinate
+     * @param centerZ the center chunk z coordinate
+     * @param radius the view radius, at most
+     * {@link #MAX_RADIUS}
+     * @param entering visits the chunks entering the view
+     * @param released receives the sent chunks leaving the
+     * view
+     */
+    public synchronized void move(TridentWorld world, int centerX, int centerZ, int radius,
+                                  Visitor entering, Consumer<TridentChunk> released) {
+        radius = Math.min(radius, MAX_RADIUS);
+        if (world == this.world && centerX == this.centerX && centerZ == this.centerZ && radius == this.radius) {
+            return;
+        }
+
+        boolean overlaps = world == this.world &&
+                Math.abs(centerX - this.centerX) <= radius + this.radius &&
+                Math.abs(centerZ - this.centerZ) <= radius + this.radius;
+
+        if (this.world != null) {
+            Visitor leaving = (x, z) -> this.release(x, z, released);
+            if (overlaps) {
+                difference(this.centerX, this.centerZ, this.radius, centerX, centerZ, radius, leaving);
+            } else {
+                square(this.centerX, this.centerZ, this.radius, leaving);
+            }
+        }
+
+        int oldX = this.centerX;
+        int oldZ = this.centerZ;
+        int oldRadius = this.radius;
+        this.world = world;
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.radius = radius;
+
+        if (overlaps) {
+            difference(centerX, centerZ, radius, oldX, oldZ, oldRadius, entering);
+        } else {
+            spiral(centerX, centerZ, radius, entering);
+        }
+    }
+
+    /**
+     * Visits every chunk of a square, closest to the center
+     * first.
+     */
+    static void spiral(int cx, int cz, int radius, Visitor visitor) {
+        int max = 2 * radius * radius;
+        for (int offset : SPIRAL) {
+            int dx = offset >> 16;
+            int dz = (short) offset;
+            if (dx * dx + dz * dz > max) {
+                break;
+            }
+
+            if (Math.abs(dx) <= radius && Math.abs(dz) <= radius) {
+                visitor.visit(cx + dx, cz + dz);
+            }
+        }
+    }
+
+    /**
+     * Visits every chunk of the first square which is not
+     * in the second, one strip at a time.
+     */
+    static void difference(int ax, int az, int ar, int bx, int bz, int br, Visitor visitor) {
+        int bMinX = bx - br;
+        int bMaxX = bx + br;
+        int bMinZ = bz - br;
+        int bMaxZ = bz + br;
+        int aMinZ = az - ar;
+        int aMaxZ = az + ar;
+
+        for (int x = ax - ar; x <= ax + ar; x++) {
+            if (x < bMinX || x > bMaxX) {
+                for (int z = aMinZ; z <= aMaxZ; z++) {
+                    visitor.visit(x, z);
+                }
+            } else {
+                for (int z = aMinZ, end = Math.min(aMaxZ, bMinZ - 1); z <= end; z++) {
+                    visitor.visit(x, z);
+                }
+                for (int z = Math.max(aMinZ, bMaxZ + 1); z <= aMaxZ; z++) {
+                    visitor.visit(x, z);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits every chunk of a square.
+     */
+    static void square(int cx, int cz, int radius, Visitor visitor) {
+        for (int x = cx - radius; x <= cx + radius; x++) {
+            for (int z = cz - radius; z <= cz + radius; z++) {
+                visitor.visit(x, z);
+            }
+        }
+    }
+
+    /**
+     * Empties the slot of the given chunk, passing the chunk
+     * to the callback if it had been sent.
+     */
+    @GuardedBy("this")
+    private void release(int x, int z, Consumer<TridentChunk> released) {
+        int slot = slot(x, z);
+        TridentChunk chunk = this.chunks[slot];
+        if (chunk != null && chunk.getX() == x && chunk.getZ() == z) {
+            this.chunks[slot] = null;
+            this.size--;
+            released.accept(chunk);
+        }
+    }
+
+    /**
+     * Determines whether the given chunk coordinates are in
+     * view.
+     */
+    @GuardedBy("this")
+    private boolean inView(TridentWorld world, int x, int z) {
+        return world == this.world &&
+                Math.abs(x - this.centerX) <= this.radius &&
+                Math.abs(z - this.centerZ) <= this.radius;
+    }
+
+    /**
+     * Determines whether the given chunk is in view.
+     *
+     * @param chunk the chunk to check
+     * @return {@code true} if the player can see the chunk
+     */
+    public synchronized boolean contains(TridentChunk chunk) {
+        return this.inView(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    /**
+     * Records the given chunk as sent if it is in view and
+     * has not been sent already.
+     *
+     * @param chunk the chunk to send
+     * @return {@code true} if the chunk should be sent
+     */
+    public synchronized boolean hold(TridentChunk chunk) {
+        int x = chunk.getX();
+        int z = chunk.getZ();
+        if (!this.inView(chunk.getWorld(), x, z)) {
+            return false;
+        }
+
+        int slot = slot(x, z);
+        TridentChunk held = this.chunks[slot];
+        if (held != null && held.getX() == x && held.getZ() == z) {
+            return false;
+        }
+
+        this.chunks[slot] = chunk;
+        this.size++;
+        return true;
+    }
+
+    /**
+     * Releases every sent chunk and empties the view.
+     *
+     * @param released receives the sent chunks
+     */
+    public synchronized void clear(Consumer<TridentChunk> released) {
+        for (int i = 0; i < this.chunks.length; i++) {
+            TridentChunk chunk = this.chunks[i];
+            if (chunk != null) {
+                this.chunks[i] = null;
+                released.accept(chunk);
+            }
+        }
+
+        this.size = 0;
+        this.world = null;
+    }
+
+    /**
+     * Obtains the number of chunks sent to the player.
+     *
+     * @return the number of chunks in view that were sent
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.player;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Estimates the horizontal velocity of a player from the
+ * positions reported by the client.
+ *
+ * <p>Each reported position is turned into an
+ * instantaneous velocity which is blended into a moving
+ * average, so that a single late or early packet does not
+ * swing the estimate. Jumps faster than any legitimate
+ * movement, such as teleports, reset the estimate instead
+ * of being averaged in.</p>
+ */
+@ThreadSafe
+public class PlayerMotion {
+    /**
+     * The weight of the newest sample in the average
+     */
+    private static final double SMOOTHING = 0.3;
+    /**
+     * The speed, in blocks per second, above which a
+     * movement is treated as a teleport
+     */
+    private static final double MAX_SPEED = 100;
+    /**
+     * The time without any movement after which the
+     * estimate is reset, in nanoseconds
+     */
+    private static final long STALE_NANOS = 1_000_000_000L;
+
+    @GuardedBy("this")
+    private boolean seeded;
+    @GuardedBy("this")
+    private double lastX;
+    @GuardedBy("this")
+    private double lastZ;
+    @GuardedBy("this")
+    private long lastTime;
+    /**
+     * The estimated velocity, in blocks per second
+     */
+    @GuardedBy("this")
+    private double vx;
+    @GuardedBy("this")
+    private double vz;
+
+    /**
+     * Records a position reported by the client.
+     *
+     * @param x the x coordinate
+     * @param z the z coordinate
+     */
+    public synchronized void update(double x, double z) {
+        long now = System.nanoTime();
+        if (!this.seeded || now - this.lastTime > STALE_NANOS) {
+            this.reset(x, z, now);
+            return;
+        }
+
+        long elapsed = now - this.lastTime;
+        if (elapsed <= 0) {
+            return;
+        }
+
+        double seconds = elapsed / 1e9;
+        double vx = (x - this.lastX) / seconds;
+        double vz = (z - this.lastZ) / seconds;
+        if (vx * vx + vz * vz > MAX_SPEED * MAX_SPEED) {
+            this.reset(x, z, now);
+            return;
+        }
+
+        this.vx += (vx - this.vx) * SMOOTHING;
+        this.vz += (vz - this.vz) * SMOOTHING;
+        this.lastX = x;
+        this.lastZ = z;
+        this.lastTime = now;
+    }
+
+    /**
+     * Starts estimating again from the given position.
+     */
+    @GuardedBy("this")
+    private void reset(double x, double z, long now) {
+        this.seeded = true;
+        this.lastX = x;
+        this.lastZ = z;
+        this.lastTime = now;
+        this.vx = 0;
+        this.vz = 0;
+    }
+
+    /**
+     * Obtains the estimated velocity along the x axis.
+     *
+     * @return the velocity, in blocks per second
+     */
+    public synchronized double getVelocityX() {
+        return System.nanoTime() - this.lastTime > STALE_NANOS ? 0 : this.vx;
+    }
+
+    /**
+     * Obtains the estimated velocity along the z axis.
+     *
+     * @return the velocity, in blocks per second
+     */
+    public synchronized double getVelocityZ() {
+        return System.nanoTime() - this.lastTime > STALE_NANOS ? 0 : this.vz;
+    }
+}
@@ -77,6 +77,10 @@ public final class RecipientSelector {
      * Sends the given packet to those who can see the given
      * entity.
      *
+     * <p>If the chunk holding the entity is still loading,
+     * the packets are sent once it is ready rather than
+     * blocking the caller.</p>
+     *
      * @param canSee the entity that can be seen
      * @param exclude whether or not to exclude the player
      * @param packetOut the packets to send to selected
@@ -84,8 +88,8 @@ public final class RecipientSelector {
      */
     public static void whoCanSee(TridentEntity canSee, boolean exclude, PacketOut... packetOut) {
         Position pos = canSee.getPosition();
-        whoCanSee(canSee.getWorld().getChunkAt(pos.getChunkX(), pos.getChunkZ(), true),
-                exclude ? canSee : null, packetOut);
+        canSee.getWorld().getChunkAtAsync(pos.getChunkX(), pos.getChunkZ()).
+                thenAccept(chunk -> whoCanSee(chunk, exclude ? canSee : null, packetOut));
     }
 
     /**
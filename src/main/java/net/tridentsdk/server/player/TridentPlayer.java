@@ -30,6 +30,7 @@ import net.tridentsdk.inventory.Inventory;
 import net.tridentsdk.server.TridentServer;
 import net.tridentsdk.server.concurrent.PoolSpec;
 import net.tridentsdk.server.concurrent.ServerThreadPool;
+import net.tridentsdk.server.config.ServerConfig;
 import net.tridentsdk.server.entity.TridentEntity;
 import net.tridentsdk.server.entity.meta.EntityMetaType;
 import net.tridentsdk.server.inventory.TridentInventory;
@@ -44,13 +45,13 @@ import net.tridentsdk.server.ui.tablist.TabListElement;
 import net.tridentsdk.server.ui.tablist.TridentGlobalTabList;
 import net.tridentsdk.server.ui.tablist.TridentTabList;
 import net.tridentsdk.server.util.Debug;
+import net.tridentsdk.server.world.ChunkTickets;
 import net.tridentsdk.server.world.TridentChunk;
 import net.tridentsdk.server.world.TridentWorld;
 import net.tridentsdk.ui.bossbar.BossBar;
 import net.tridentsdk.ui.chat.*;
 import net.tridentsdk.ui.tablist.TabList;
 import net.tridentsdk.ui.title.Title;
-import net.tridentsdk.world.IntPair;
 import net.tridentsdk.world.opt.GameMode;
 
 import javax.annotation.concurrent.GuardedBy;
@@ -133,6 +134,21 @@ public class TridentPlayer extends TridentEntity implements Player {
 
                 return 0; // Otherwise same
             });
+    /**
+     * The speed, in blocks per second, above which chunks
+     * are loaded ahead of a moving player
+     */
+    private static final double MIN_PREFETCH_SPEED = 6;
+    /**
+     * How far ahead, in seconds of movement, chunks are
+     * loaded for a moving player
+     */
+    private static final double PREFETCH_SECONDS = 4;
+    /**
+     * The round trip time, in milliseconds, above which a
+     * player is sent proportionally fewer chunks per tick
+     */
+    private static final long SEND_RTT_REFERENCE = 100;
 
     // -----------------------------------------------------
     // LOGIN HEADERS ---------------------------------------
@@ -184,9 +200,21 @@ public class TridentPlayer extends TridentEntity implements Player {
     @Setter
     private volatile int renderDistance = 7;
     /**
-     * The chunks that are held by this player
+     * The chunks in view of this player and those which
+     * have been sent
+     */
+    private final ChunkView view = new ChunkView();
+    /**
+     * The estimated movement of this player, used to load
+     * chunks ahead of them
+     */
+    @Getter
+    private final PlayerMotion motion = new PlayerMotion();
+    /**
+     * The loaded chunks waiting to be sent to this player
      */
-    private final Map<IntPair, TridentChunk> heldChunks = new ConcurrentHashMap<>();
+    @GuardedBy("sendQueue")
+    private final List<TridentChunk> sendQueue = new ArrayList<>();
 
     // -----------------------------------------------------
     // PLAYER META -----------------------------------------
@@ -226,10 +254,14 @@ public class TridentPlayer extends TridentEntity implements Player {
     // UI SETTINGS -----------------------------------------
     // -----------------------------------------------------
 
+    /**
+     * Lock protecting the tablist
+     */
+    private final Object tabListLock = new Object();
     /**
      * The player's current tablist
      */
-    @GuardedBy("heldChunks") // random field used to lock
+    @GuardedBy("tabListLock")
     @Getter
     private TridentTabList tabList;
     /**
@@ -380,6 +412,7 @@ public class TridentPlayer extends TridentEntity implements Player {
     @Override
     public void doTick() {
         this.client.tick();
+        this.sendChunks();
     }
 
     @Override
@@ -402,10 +435,14 @@ public class TridentPlayer extends TridentEntity implements Player {
         this.setTabList(null);
         TridentGlobalTabList.getInstance().unsubscribe(this);
         TridentInventory.clean();
-        for (TridentChunk chunk : this.heldChunks.values()) {
+        this.view.clear(chunk -> {
             chunk.getHolders().remove(this);
+            chunk.getWorld().getTickets().remove(ChunkTickets.Type.PLAYER, chunk.getX(), chunk.getZ(), this);
+        });
+        synchronized (this.sendQueue) {
+            this.sendQueue.clear();
         }
-        this.heldChunks.clear();
+        this.getWorld().getLoadQueue().cancel(this);
 
         ChatComponent chat = ChatComponent.create()
                 .setColor(ChatColor.YELLOW)
@@ -444,7 +481,7 @@ public class TridentPlayer extends TridentEntity implements Player {
 
     @Override
     public void setTabList(TabList tabList) {
-        synchronized (this.heldChunks) {
+        synchronized (this.tabListLock) {
             TridentTabList old = this.tabList;
             if (old != null) {
                 old.unsubscribe(this);
@@ -643,43 +680,194 @@ public class TridentPlayer extends TridentEntity implements Player {
     /**
      * Send an update to the client with the chunks
      * If direction is null, chunks around the player will be sent
+     *
+     * <p>Chunks that are not loaded yet are requested from
+     * the world's load queue, closest first, and queued to
+     * be sent as each one becomes ready.</p>
      */
     public void updateChunks(Position position) {
         TridentWorld world = (TridentWorld) position.getWorld();
         int centerX = position.getChunkX();
         int centerZ = position.getChunkZ();
 
-        int radius = this.renderDistance;
+        int radius = Math.min(this.renderDistance, ChunkView.MAX_RADIUS);
 
         this.pool.execute(() -> {
-            for (int x = centerX - radius; x < centerX + radius; x++) {
-                for (int z = centerZ - radius; z < centerZ + radius; z++) {
-                    IntPair pair = IntPair.make(x, z);
-                    if (!this.heldChunks.containsKey(pair)) {
-                        TridentChunk chunk = world.getChunkAt(x, z);
-                        this.heldChunks.put(pair, chunk);
-                        chunk.getHolders().add(this);
-                        chunk.getEntities().filter(e -> !e.equals(this)).forEach(e -> this.net().sendPacket(((TridentEntity) e).getSpawnPacket()));
-                        this.net().sendPacket(new PlayOutChunk(chunk));
-                    }
-                }
-            }
+            this.view.move(world, centerX, centerZ, radius,
+                    (x, z) -> world.getLoadQueue().request(x, z, this).thenAccept(this::queueSend),
+                    this::release);
+            this.prefetch(world, position, radius);
         });
+    }
 
-        this.pool.execute(() -> {
-            for (TridentChunk chunk : this.heldChunks.values()) {
-                if (Math.abs(chunk.getX() - centerX) > radius || Math.abs(chunk.getZ() - centerZ) > radius) {
-                    this.heldChunks.remove(IntPair.make(chunk.getX(), chunk.getZ()));
-                    chunk.getHolders().remove(this);
-                    this.net().sendPacket(new PlayOutUnloadChunk(chunk.getX(), chunk.getZ()));
-
-                    if (!chunk.getEntitySet().isEmpty() || !chunk.getOccupants().isEmpty()) {
-                        this.net().sendPacket(new PlayOutDestroyEntities(chunk.getEntities().collect(Collectors.toList())));
+    /**
+     * Unloads a chunk which has left this player's view
+     * from the client.
+     *
+     * @param chunk the chunk to unload
+     */
+    private void release(TridentChunk chunk) {
+        chunk.getHolders().remove(this);
+        this.net().sendPacket(new PlayOutUnloadChunk(chunk.getX(), chunk.getZ()));
+
+        if (!chunk.getEntitySet().isEmpty() || !chunk.getOccupants().isEmpty()) {
+            this.net().sendPacket(new PlayOutDestroyEntities(chunk.getEntities().collect(Collectors.toList())));
+        }
+        chunk.getWorld().getTickets().remove(ChunkTickets.Type.PLAYER, chunk.getX(), chunk.getZ(), this);
+    }
+
+    /**
+     * Requests the chunks that will come into view if this
+     * player keeps moving at their estimated velocity, so
+     * that fast travel does not outrun chunk loading.
+     *
+     * <p>The predicted path is walked a chunk at a time for
+     * {@link #PREFETCH_SECONDS}, and only the chunks which
+     * each step adds to the view are requested.</p>
+     */
+    private void prefetch(TridentWorld world, Position position, int radius) {
+        double vx = this.motion.getVelocityX();
+        double vz = this.motion.getVelocityZ();
+        double speed = Math.sqrt(vx * vx + vz * vz);
+        if (speed < MIN_PREFETCH_SPEED) {
+            return;
+        }
+
+        int steps = (int) Math.ceil(speed * PREFETCH_SECONDS / 16);
+        double stepX = vx / speed * 16;
+        double stepZ = vz / speed * 16;
+        int lastX = position.getChunkX();
+        int lastZ = position.getChunkZ();
+        for (int i = 1; i <= steps; i++) {
+            int cx = (int) Math.floor(position.getX() + stepX * i) >> 4;
+            int cz = (int) Math.floor(position.getZ() + stepZ * i) >> 4;
+            if (cx == lastX && cz == lastZ) {
+                continue;
+            }
+
+            for (int x = cx - radius; x <= cx + radius; x++) {
+                for (int z = cz - radius; z <= cz + radius; z++) {
+                    if (Math.abs(x - lastX) > radius || Math.abs(z - lastZ) > radius) {
+                        world.getLoadQueue().prefetch(x, z, this);
                     }
-                    chunk.checkValidForGc();
                 }
             }
-        });
+
+            lastX = cx;
+            lastZ = cz;
+        }
+    }
+
+    /**
+     * Queues a chunk that has finished loading to be sent
+     * to this player on a later tick.
+     *
+     * @param chunk the chunk to send
+     */
+    private void queueSend(TridentChunk chunk) {
+        synchronized (this.sendQueue) {
+            this.sendQueue.add(chunk);
+        }
+    }
+
+    /**
+     * Obtains the number of chunks this player may be sent
+     * this tick, which is reduced for clients with a high
+     * round trip time and is 0 while their connection is
+     * backed up.
+     */
+    private int sendBudget() {
+        if (!this.client.isWritable()) {
+            return 0;
+        }
+
+        ServerConfig cfg = TridentServer.cfg();
+        int budget = cfg == null ? ServerConfig.DEFAULT_CHUNK_SEND_BUDGET : cfg.chunkSendBudget();
+        long rtt = this.client.getPing().get();
+        if (rtt > SEND_RTT_REFERENCE) {
+            budget = (int) (budget * SEND_RTT_REFERENCE / rtt);
+        }
+
+        return Math.max(1, budget);
+    }
+
+    /**
+     * Sends the queued chunks closest to this player, up to
+     * the send budget.
+     */
+    private void sendChunks() {
+        int budget = this.sendBudget();
+        if (budget == 0) {
+            return;
+        }
+
+        List<TridentChunk> queue;
+        synchronized (this.sendQueue) {
+            if (this.sendQueue.isEmpty()) {
+                return;
+            }
+
+            queue = new ArrayList<>(this.sendQueue);
+            this.sendQueue.clear();
+        }
+
+        if (queue.size() > budget) {
+            Position position = this.getPosition();
+            int centerX = position.getChunkX();
+            int centerZ = position.getChunkZ();
+            queue.sort(Comparator.comparingInt(c -> {
+                int dx = c.getX() - centerX;
+                int dz = c.getZ() - centerZ;
+                return dx * dx + dz * dz;
+            }));
+        }
+
+        int i = 0;
+        int sent = 0;
+        while (sent < budget && i < queue.size()) {
+            if (this.sendChunk(queue.get(i++))) {
+                sent++;
+            }
+        }
+
+        if (i < queue.size()) {
+            synchronized (this.sendQueue) {
+                this.sendQueue.addAll(queue.subList(i, queue.size()));
+            }
+        }
+    }
+
+    /**
+     * Sends a chunk that has finished loading to this
+     * player, unless it was already sent or has left the
+     * player's view. Chunks which were unloaded while
+     * queued are requested again.
+     *
+     * @param chunk the chunk to send
+     * @return {@code true} if the chunk was sent
+     */
+    private boolean sendChunk(TridentChunk chunk) {
+        TridentWorld world = chunk.getWorld();
+        if (world.getChunks().getIfReady(chunk.getX(), chunk.getZ()) != chunk) {
+            if (this.view.contains(chunk)) {
+                world.getLoadQueue().request(chunk.getX(), chunk.getZ(), this).thenAccept(this::queueSend);
+            }
+            return false;
+        }
+
+        // Held while sending so that the chunk cannot be
+        // released before the client has it
+        synchronized (this.view) {
+            if (!this.view.hold(chunk)) {
+                return false;
+            }
+
+            world.getTickets().add(ChunkTickets.Type.PLAYER, chunk.getX(), chunk.getZ(), 0, this);
+            chunk.getHolders().add(this);
+            chunk.getEntities().filter(e -> !e.equals(this)).forEach(e -> this.net().sendPacket(((TridentEntity) e).getSpawnPacket()));
+            this.net().sendPacket(new PlayOutChunk(chunk));
+            return true;
+        }
     }
 
     @Override
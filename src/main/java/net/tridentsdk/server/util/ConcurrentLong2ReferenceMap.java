@@ -0,0 +1,397 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.util;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * A concurrent hash map of primitive long keys to object
+ * values.
+ *
+ * <p>The map is split into stripes, each a separately
+ * locked table of bins holding immutable chains of nodes.
+ * Writers lock only the stripe owning the key and publish a
+ * new chain to the bin, so readers never lock and only
+ * need to traverse the chain they read.</p>
+ *
+ * <p>Iteration is weakly consistent: it never throws
+ * {@link java.util.ConcurrentModificationException} and
+ * sees every mapping present for the whole iteration, but
+ * may or may not see mappings changed during it.</p>
+ *
+ * @param <V> the type of value
+ */
+@ThreadSafe
+public class ConcurrentLong2ReferenceMap<V> {
+    /**
+     * The number of stripes, must be a power of two
+     */
+    private static final int STRIPES = 64;
+    /**
+     * The initial number of bins in each stripe
+     */
+    private static final int INITIAL_BINS = 16;
+
+    /**
+     * The stripes of this map
+     */
+    private final Stripe<V>[] stripes;
+
+    /**
+     * Creates a new, empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLong2ReferenceMap() {
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe<>();
+        }
+    }
+
+    /**
+     * An immutable entry in a bin chain.
+     */
+    private static final class Node<V> {
+        private final long key;
+        private final V value;
+        private final Node<V> next;
+
+        Node(long key, V value, Node<V> next) {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * A separately locked table of bins.
+     */
+    private static final class Stripe<V> {
+        /**
+         * The bins of this stripe, replaced when resized
+         */
+        private volatile AtomicReferenceArray<Node<V>> bins = new AtomicReferenceArray<>(INITIAL_BINS);
+        /**
+         * The number of mappings in this stripe, only
+         * written while holding the stripe lock
+         */
+        private volatile int size;
+
+        /**
+         * Doubles the number of bins, must be called while
+         * holding the stripe lock.
+         */
+        void resize() {
+            AtomicReferenceArray<Node<V>> bins = this.bins;
+            AtomicReferenceArray<Node<V>> resized = new AtomicReferenceArray<>(bins.length() << 1);
+            int mask = resized.length() - 1;
+
+            for (int i = 0; i < bins.length(); i++) {
+                for (Node<V> node = bins.get(i); node != null; node = node.next) {
+                    int idx = binHash(node.key) & mask;
+                    resized.set(idx, new Node<>(node.key, node.value, resized.get(idx)));
+                }
+            }
+
+            this.bins = resized;
+        }
+    }
+
+    /**
+     * Spreads the bits of the given key.
+     */
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ h >>> 32;
+    }
+
+    /**
+     * The hash used to pick the stripe of a key.
+     */
+    private static int stripeHash(long key) {
+        return (int) (mix(key) >>> 26);
+    }
+
+    /**
+     * The hash used to pick the bin of a key within its
+     * stripe.
+     */
+    private static int binHash(long key) {
+        return (int) mix(key);
+    }
+
+    private Stripe<V> stripe(long key) {
+        return this.stripes[stripeHash(key) & STRIPES - 1];
+    }
+
+    /**
+     * Obtains the value mapped to the given key.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if none
+     */
+    public V get(long key) {
+        AtomicReferenceArray<Node<V>> bins = this.stripe(key).bins;
+        for (Node<V> node = bins.get(binHash(key) & bins.length() - 1); node != null; node = node.next) {
+            if (node.key == key) {
+                return node.value;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Maps the given key to the given value.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the value previously mapped to the key, or
+     * {@code null}
+     */
+    public V put(long key, V value) {
+        Stripe<V> stripe = this.stripe(key);
+        synchronized (stripe) {
+            V old = this.removeLocked(stripe, key, null);
+            this.insertLocked(stripe, key, value);
+            return old;
+        }
+    }
+
+    /**
+     * Obtains the value mapped to the given key, or maps
+     * it to the value created by the given function if
+     * there is none.
+     *
+     * <p>The function is called at most once, while the
+     * stripe is locked, and so must be quick.</p>
+     *
+     * @param key the key
+     * @param function the function creating the value
+     * @return the current or created value
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> function) {
+        V value = this.get(key);
+        if (value != null) {
+            return value;
+        }
+
+        Stripe<V> stripe = this.stripe(key);
+        synchronized (stripe) {
+            value = this.get(key);
+            if (value == null) {
+                value = function.apply(key);
+                this.insertLocked(stripe, key, value);
+            }
+
+            return value;
+        }
+    }
+
+    /**
+     * Removes the mapping for the given key.
+     *
+     * @param key the key
+     * @return the value that was removed, or {@code null}
+     */
+    public V remove(long key) {
+        Stripe<V> stripe = this.stripe(key);
+        synchronized (stripe) {
+            return this.removeLocked(stripe, key, null);
+        }
+    }
+
+    /**
+     * Removes the mapping for the given key only if it is
+     * mapped to the given value.
+     *
+     * @param key the key
+     * @param value the expected value
+     * @return {@code true} if the mapping was removed
+     */
+    public boolean remove(long key, V value) {
+        Stripe<V> stripe = this.stripe(key);
+        synchronized (stripe) {
+            return this.removeLocked(stripe, key, value) != null;
+        }
+    }
+
+    private void insertLocked(Stripe<V> stripe, long key, V value) {
+        AtomicReferenceArray<Node<V>> bins = stripe.bins;
+        int idx = binHash(key) & bins.length() - 1;
+        bins.set(idx, new Node<>(key, value, bins.get(idx)));
+
+        int size = stripe.size + 1;
+        stripe.size = size;
+        if (size > bins.length() - (bins.length() >> 2)) {
+            stripe.resize();
+        }
+    }
+
+    /**
+     * Removes the given key by publishing a copy of the
+     * nodes preceding it, linked to the nodes after it.
+     *
+     * @param expect the value that must be mapped, or
+     * {@code null} to remove any value
+     */
+    private V removeLocked(Stripe<V> stripe, long key, V expect) {
+        AtomicReferenceArray<Node<V>> bins = stripe.bins;
+        int idx = binHash(key) & bins.length() - 1;
+        Node<V> head = bins.get(idx);
+
+        Node<V> found = head;
+        while (found != null && found.key != key) {
+            found = found.next;
+        }
+
+        if (found == null || expect != null && found.value != expect) {
+            return null;
+        }
+
+        Node<V> chain = found.next;
+        for (Node<V> node = head; node != found; node = node.next) {
+            chain = new Node<>(node.key, node.value, chain);
+        }
+
+        bins.set(idx, chain);
+        stripe.size = stripe.size - 1;
+        return found.value;
+    }
+
+    /**
+     * Obtains the number of mappings, which may be
+     * inaccurate while the map is being modified.
+     *
+     * @return the number of mappings
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe<V> stripe : this.stripes) {
+            size += stripe.size;
+        }
+
+        return size;
+    }
+
+    /**
+     * Removes every mapping.
+     */
+    public void clear() {
+        for (Stripe<V> stripe : this.stripes) {
+            synchronized (stripe) {
+                stripe.bins = new AtomicReferenceArray<>(INITIAL_BINS);
+                stripe.size = 0;
+            }
+        }
+    }
+
+    /**
+     * Performs the given action on each value, without
+     * locking.
+     *
+     * @param action the action to perform
+     */
+    public void forEach(Consumer<? super V> action) {
+        for (Stripe<V> stripe : this.stripes) {
+            AtomicReferenceArray<Node<V>> bins = stripe.bins;
+            for (int i = 0; i < bins.length(); i++) {
+                for (Node<V> node = bins.get(i); node != null; node = node.next) {
+                    action.accept(node.value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtains a weakly consistent view of the values in
+     * this map.
+     *
+     * @return the values
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size() {
+                return ConcurrentLong2ReferenceMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Iterates the bins of each stripe as they were when
+     * the iterator reached the stripe.
+     */
+    private final class ValueIterator implements Iterator<V> {
+        private int stripe = -1;
+        private AtomicReferenceArray<Node<V>> bins;
+        private int bin;
+        private Node<V> next;
+
+        ValueIterator() {
+            this.advance();
+        }
+
+        private void advance() {
+            if (this.next != null) {
+                this.next = this.next.next;
+            }
+
+            while (this.next == null) {
+                if (this.bins == null || this.bin == this.bins.length()) {
+                    if (++this.stripe == STRIPES) {
+                        return;
+                    }
+
+                    this.bins = ConcurrentLong2ReferenceMap.this.stripes[this.stripe].bins;
+                    this.bin = 0;
+                    continue;
+                }
+
+                this.next = this.bins.get(this.bin++);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public V next() {
+            Node<V> node = this.next;
+            if (node == null) {
+                throw new NoSuchElementException();
+            }
+
+            this.advance();
+            return node.value;
+        }
+    }
+}
@@ -600,6 +600,10 @@ public class Long2ReferenceOpenHashMap<V> {
         Arrays.fill(this.value, null);
     }
 
+    public int size() {
+        return this.size;
+    }
+
     public boolean containsKey(final long k) {
         if (((k) == (0)))
             return this.containsNullKey;
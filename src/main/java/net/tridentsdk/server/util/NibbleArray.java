@@ -17,26 +17,50 @@
 package net.tridentsdk.server.util;
 
 import io.netty.buffer.ByteBuf;
-import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * This object represents a data format that stores values
  * into half-bytes called nibbles. This is used for storing
  * block lighting and sky light for chunk generation.
+ *
+ * <p>An array in which every nibble holds the same value
+ * does not allocate any storage of its own. The backing
+ * splices are only created on the first write of a
+ * different value, and the shared constant data is written
+ * out as-is when sent.</p>
  */
 @ThreadSafe
-@RequiredArgsConstructor
 public class NibbleArray {
     /**
      * 8 bytes compressed into one long to represent 16
      * nibbles
      */
     public static final int BYTES_PER_LONG = 8;
+    /**
+     * Shared bytes of a section sized array in which every
+     * nibble is full-bright
+     */
+    private static final byte[] FULL_BRIGHT = new byte[2048];
+    /**
+     * Updater used to replace the constant value with the
+     * spliced array on first write
+     */
+    private static final AtomicReferenceFieldUpdater<NibbleArray, AtomicLongArray> NIBBLES =
+            AtomicReferenceFieldUpdater.newUpdater(NibbleArray.class, AtomicLongArray.class, "nibbles");
+
+    static {
+        Arrays.fill(FULL_BRIGHT, (byte) 0xFF);
+    }
 
+    /**
+     * The number of bytes held by this array
+     */
+    private final int length;
     /**
      * The array of nibbles.
      *
@@ -44,9 +68,16 @@ public class NibbleArray {
      * into a single long value. 8 bytes of 8 bits each fit
      * into a 64 bit long, which composes of 16 4-bit half-
      * byte nibbles.</p>
+     *
+     * <p>This is {@code null} while every nibble is equal
+     * to {@link #constant}.</p>
      */
-    @NonNull
-    private final AtomicLongArray nibbles;
+    private volatile AtomicLongArray nibbles;
+    /**
+     * The value held by every nibble while the array has
+     * not been written
+     */
+    private volatile byte constant;
 
     /**
      * Creates a new nibble array with an array size of the
@@ -55,7 +86,7 @@ public class NibbleArray {
      * @param length the length of the nibble array
      */
     public NibbleArray(int length) {
-        this.nibbles = new AtomicLongArray(length / BYTES_PER_LONG);
+        this.length = length;
     }
 
     /**
@@ -86,13 +117,55 @@ public class NibbleArray {
         }
     }
 
+    /**
+     * Creates a splice with every nibble set to the given
+     * value.
+     *
+     * @param value the nibble value
+     * @return the filled splice
+     */
+    private static long splice(byte value) {
+        long splice = 0;
+        long newValue = (value & 0x0F) << 4 | value & 0x0F;
+        for (int i = 0; i < 64; i += 8) {
+            splice |= newValue << i;
+        }
+
+        return splice;
+    }
+
+    /**
+     * Obtains the spliced array, copying the constant
+     * value into a new one if it has not yet been created.
+     *
+     * @return the spliced nibble array
+     */
+    private AtomicLongArray nibbles() {
+        AtomicLongArray nibbles = this.nibbles;
+        if (nibbles != null) {
+            return nibbles;
+        }
+
+        long splice = splice(this.constant);
+        AtomicLongArray copy = new AtomicLongArray(this.length / BYTES_PER_LONG);
+        for (int i = 0; i < copy.length(); i++) {
+            copy.set(i, splice);
+        }
+
+        if (NIBBLES.compareAndSet(this, null, copy)) {
+            return copy;
+        }
+
+        return this.nibbles;
+    }
+
     /**
      * Obtains the number of nibbles multiplied by two.
      *
      * @return the length of the nibbles * 2
      */
     public int getLength() {
-        return this.nibbles.length() * BYTES_PER_LONG << 1;
+        return this.length << 1;
     }
 
     /**
@@ -103,6 +176,11 @@ public class NibbleArray {
      * @return the nibble value at the index
      */
     public byte getByte(int position) {
+        AtomicLongArray nibbles = this.nibbles;
+        if (nibbles == null) {
+            return this.constant;
+        }
+
         // Find nibble pos b/c 2 nibbles in single byte
         // Find splice which byte is located in
         // Find shift by figuring out what offset from the
@@ -114,7 +192,7 @@ public class NibbleArray {
         // respectively
 
         int nibblePosition = position / 2;
-        long splice = this.nibbles.get(nibblePosition / BYTES_PER_LONG);
+        long splice = nibbles.get(nibblePosition / BYTES_PER_LONG);
         long shift = nibblePosition % BYTES_PER_LONG << 3;
         long shifted = splice >> shift;
 
@@ -136,6 +214,11 @@ public class NibbleArray {
      * @param value the nibble value
      */
     public void setByte(int position, byte value) {
+        if (this.nibbles == null && this.constant == value) {
+            return;
+        }
+
+        AtomicLongArray nibbles = this.nibbles();
         int nibblePosition = position / 2;
         int spliceIndex = nibblePosition >> 3;
         long shift = nibblePosition % BYTES_PER_LONG << 3;
@@ -144,21 +227,21 @@ public class NibbleArray {
         long newSplice;
         if ((position & 1) == 0) {
             do {
-                oldSpice = this.nibbles.get(spliceIndex);
+                oldSpice = nibbles.get(spliceIndex);
                 long newByte = oldSpice >>> shift & 0xF0 | value;
 
                 newSplice = oldSpice & ~(0xFFL << shift) | newByte << shift;
             }
-            while (!this.nibbles.compareAndSet(spliceIndex, oldSpice, newSplice));
+            while (!nibbles.compareAndSet(spliceIndex, oldSpice, newSplice));
         } else {
             long shiftedVal = value << 4;
             do {
-                oldSpice = this.nibbles.get(spliceIndex);
+                oldSpice = nibbles.get(spliceIndex);
                 long newByte = oldSpice >>> shift & 0x0F | shiftedVal;
 
                 newSplice = oldSpice & ~(0xFFL << shift) | newByte << shift;
             }
-            while (!this.nibbles.compareAndSet(spliceIndex, oldSpice, newSplice));
+            while (!nibbles.compareAndSet(spliceIndex, oldSpice, newSplice));
         }
     }
 
@@ -169,13 +252,24 @@ public class NibbleArray {
      * @param buf the buffer to write
      */
     public void write(ByteBuf buf) {
-        for (int i = 0, len = this.nibbles.length(); i < len; i++) {
-            long l = this.nibbles.get(i);
-            for (int shift = 0; shift < 64; shift += 8) {
-                long shifted = l >> shift;
-                byte b = (byte) (shifted & 0xFF);
-                buf.writeByte(b);
+        AtomicLongArray nibbles = this.nibbles;
+        if (nibbles == null) {
+            byte constant = this.constant;
+            if (constant == 0) {
+                buf.writeZero(this.length);
+            } else if (constant == 0xF && this.length <= FULL_BRIGHT.length) {
+                buf.writeBytes(FULL_BRIGHT, 0, this.length);
+            } else {
+                long splice = splice(constant);
+                for (int i = 0, len = this.length / BYTES_PER_LONG; i < len; i++) {
+                    buf.writeLongLE(splice);
+                }
             }
+            return;
+        }
+
+        for (int i = 0, len = nibbles.length(); i < len; i++) {
+            buf.writeLongLE(nibbles.get(i));
         }
     }
 
@@ -186,15 +280,8 @@ public class NibbleArray {
      * @param value the value to fill
      */
     public void fill(byte value) {
-        long splice = 0;
-        long newValue = value << 4 | value & 0xFF;
-        for (int i = 0; i < 64; i += 8) {
-            splice |= newValue << i;
-        }
-
-        for (int i = 0; i < this.nibbles.length(); i++) {
-            this.nibbles.set(i, splice);
-        }
+        this.constant = value;
+        this.nibbles = null;
     }
 
     /**
@@ -204,18 +291,38 @@ public class NibbleArray {
      * @param bytes the bytes to load
      */
     public void read(byte[] bytes) {
+        // Keep sharing the constant if every byte is the
+        // same, which is the case for most sections
+        byte first = bytes.length == 0 ? 0 : bytes[0];
+        if ((first >> 4 & 0x0F) == (first & 0x0F)) {
+            boolean uniform = true;
+            for (byte b : bytes) {
+                if (b != first) {
+                    uniform = false;
+                    break;
+                }
+            }
+
+            if (uniform) {
+                this.fill((byte) (first & 0x0F));
+                return;
+            }
+        }
+
+        AtomicLongArray nibbles = new AtomicLongArray(this.length / BYTES_PER_LONG);
         long cur = 0;
         for (int i = 0, shift = 0, splice = 0; i < bytes.length; i++) {
-            cur |= (long) bytes[i] << shift;
+            cur |= (bytes[i] & 0xFFL) << shift;
 
             shift += 8;
             if (shift == 64) {
-                this.nibbles.set(splice, cur);
+                nibbles.set(splice, cur);
                 cur = 0;
                 shift = 0;
                 splice++;
             }
         }
+        this.nibbles = nibbles;
     }
 
     /**
@@ -225,9 +332,16 @@ public class NibbleArray {
      * @return the data written from this nibble array
      */
     public byte[] write() {
-        byte[] bytes = new byte[this.nibbles.length() * BYTES_PER_LONG];
-        for (int i = 0, len = this.nibbles.length(); i < len; i++) {
-            long l = this.nibbles.get(i);
+        byte[] bytes = new byte[this.length];
+        AtomicLongArray nibbles = this.nibbles;
+        if (nibbles == null) {
+            byte constant = this.constant;
+            Arrays.fill(bytes, (byte) (constant << 4 | constant));
+            return bytes;
+        }
+
+        for (int i = 0, len = nibbles.length(); i < len; i++) {
+            long l = nibbles.get(i);
             for (int shift = 0, offset = 0; shift < 64; shift += 8, offset++) {
                 long shifted = l >> shift;
                 byte b = (byte) (shifted & 0xFF);
@@ -236,4 +350,4 @@ public class NibbleArray {
         }
         return bytes;
     }
-}
\ No newline at end of file
+}
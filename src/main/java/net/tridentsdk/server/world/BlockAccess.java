@@ -0,0 +1,170 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import net.tridentsdk.base.Substance;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A reusable cursor for reading and writing blocks in a
+ * world without allocating a {@link TridentBlock} for
+ * each block.
+ *
+ * <p>The last chunk and section accessed are cached, so
+ * scanning neighboring blocks only looks up the chunk map
+ * when crossing into another chunk. Block states are
+ * passed as {@code id << 4 | data}.</p>
+ *
+ * <p>Each thread should use its own cursor.</p>
+ */
+@NotThreadSafe
+public class BlockAccess {
+    /**
+     * The world being accessed
+     */
+    private final TridentWorld world;
+
+    /**
+     * The cached chunk, or {@code null}
+     */
+    private TridentChunk chunk;
+    /**
+     * The cached section, or {@code null} if it has not
+     * been created
+     */
+    private ChunkSection section;
+    /**
+     * The index of the cached section
+     */
+    private int sectionIdx = -1;
+
+    /**
+     * Creates a new cursor over the given world.
+     *
+     * @param world the world to access
+     */
+    public BlockAccess(TridentWorld world) {
+        this.world = world;
+    }
+
+    /**
+     * Obtains the chunk containing the given block
+     * coordinates, generating it if necessary.
+     */
+    private TridentChunk chunk(int x, int z) {
+        int cX = x >> 4;
+        int cZ = z >> 4;
+
+        TridentChunk chunk = this.chunk;
+        if (chunk == null || chunk.getX() != cX || chunk.getZ() != cZ || !chunk.canUse()) {
+            chunk = this.world.getChunkAt(cX, cZ);
+            this.chunk = chunk;
+            this.section = null;
+            this.sectionIdx = -1;
+        }
+
+        return chunk;
+    }
+
+    /**
+     * Obtains the block state at the given position.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @return the block state, or air if outside of the
+     * world
+     */
+    public short get(int x, int y, int z) {
+        if (y < 0 || y > 255) {
+            return 0;
+        }
+
+        TridentChunk chunk = this.chunk(x, z);
+        int sectionIdx = y >> 4;
+        ChunkSection section = this.section;
+        if (section == null || this.sectionIdx != sectionIdx) {
+            section = chunk.getSection(sectionIdx);
+            if (section == null) {
+                return 0;
+            }
+
+            this.section = section;
+            this.sectionIdx = sectionIdx;
+        }
+
+        return section.dataAt((y & 15) << 8 | (z & 15) << 4 | x & 15);
+    }
+
+    /**
+     * Obtains the block ID at the given position.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @return the block ID
+     */
+    public int getId(int x, int y, int z) {
+        return this.get(x, y, z) >> 4 & 0xFFF;
+    }
+
+    /**
+     * Obtains the block data at the given position.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @return the block data
+     */
+    public byte getData(int x, int y, int z) {
+        return (byte) (this.get(x, y, z) & 0xF);
+    }
+
+    /**
+     * Sets the block state at the given position.
+     *
+     * <p>Changes are relit and sent to players the same
+     * way as changes made through {@link TridentBlock}.
+     * </p>
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @param state the new block state
+     */
+    public void set(int x, int y, int z, short state) {
+        if (y < 0 || y > 255) {
+            return;
+        }
+
+        this.chunk(x, z).set(x & 15, y, z & 15, state);
+    }
+
+    /**
+     * Sets the block at the given position.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @param substance the block substance
+     * @param data the block data
+     */
+    public void set(int x, int y, int z, Substance substance, byte data) {
+        this.set(x, y, z, (short) (substance.getId() << 4 | data & 0xF));
+    }
+}
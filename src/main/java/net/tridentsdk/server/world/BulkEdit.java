@@ -0,0 +1,250 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import net.tridentsdk.base.Substance;
+import net.tridentsdk.server.util.Long2ReferenceOpenHashMap;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * A batch of block changes which are applied to a world at
+ * once.
+ *
+ * <p>Changes are grouped by chunk as they are added. When
+ * applied, each chunk writes its changes section by
+ * section and sends them to players as a single multi
+ * block change, or as the whole chunk if most of it has
+ * changed.</p>
+ *
+ * <p>Later changes to the same block override earlier
+ * ones.</p>
+ */
+@NotThreadSafe
+public class BulkEdit {
+    /**
+     * The world which the changes are applied to
+     */
+    private final TridentWorld world;
+    /**
+     * The changes to each chunk, keyed by chunk coordinates
+     */
+    private final Long2ReferenceOpenHashMap<ChunkEdit> chunks = new Long2ReferenceOpenHashMap<>();
+    /**
+     * The chunk that was last changed, as consecutive
+     * changes are usually to the same chunk
+     */
+    private ChunkEdit last;
+
+    /**
+     * Creates a new bulk edit of the given world.
+     *
+     * @param world the world to edit
+     */
+    public BulkEdit(TridentWorld world) {
+        this.world = world;
+    }
+
+    /**
+     * The change records for a single chunk.
+     */
+    private static final class ChunkEdit {
+        private final int x;
+        private final int z;
+        private int[] records = new int[256];
+        private int count;
+
+        ChunkEdit(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+
+        void add(int record) {
+            if (this.count == this.records.length) {
+                this.records = Arrays.copyOf(this.records, this.count << 1);
+            }
+
+            this.records[this.count++] = record;
+        }
+
+        /**
+         * Sorts the records by section, keeping the order
+         * of records within each section.
+         */
+        int[] sorted() {
+            int[] starts = new int[17];
+            for (int i = 0; i < this.count; i++) {
+                starts[(this.records[i] >>> 20 & 0xF) + 1]++;
+            }
+
+            for (int i = 1; i < starts.length; i++) {
+                starts[i] += starts[i - 1];
+            }
+
+            int[] sorted = new int[this.count];
+            for (int i = 0; i < this.count; i++) {
+                int record = this.records[i];
+                sorted[starts[record >>> 20 & 0xF]++] = record;
+            }
+
+            return sorted;
+        }
+    }
+
+    private ChunkEdit chunk(int chunkX, int chunkZ) {
+        ChunkEdit edit = this.last;
+        if (edit != null && edit.x == chunkX && edit.z == chunkZ) {
+            return edit;
+        }
+
+        long key = (long) chunkX << 32 | chunkZ & 0xFFFFFFFFL;
+        edit = this.chunks.get(key);
+        if (edit == null) {
+            edit = new ChunkEdit(chunkX, chunkZ);
+            this.chunks.put(key, edit);
+        }
+
+        this.last = edit;
+        return edit;
+    }
+
+    /**
+     * Sets the block at the given position.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @param state the block state
+     * @return this edit, for chaining
+     */
+    public BulkEdit set(int x, int y, int z, short state) {
+        if (y < 0 || y > 255) {
+            return this;
+        }
+
+        this.chunk(x >> 4, z >> 4).add(TridentChunk.record(x & 15, y, z & 15, state));
+        return this;
+    }
+
+    /**
+     * Sets the block at the given position.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @param substance the block substance
+     * @param data the block data
+     * @return this edit, for chaining
+     */
+    public BulkEdit set(int x, int y, int z, Substance substance, byte data) {
+        return this.set(x, y, z, (short) (substance.getId() << 4 | data & 0xF));
+    }
+
+    /**
+     * Fills the cuboid between the two given corners,
+     * inclusive.
+     *
+     * @param x1 the x coordinate of the first corner
+     * @param y1 the y coordinate of the first corner
+     * @param z1 the z coordinate of the first corner
+     * @param x2 the x coordinate of the second corner
+     * @param y2 the y coordinate of the second corner
+     * @param z2 the z coordinate of the second corner
+     * @param state the block state to fill with
+     * @return this edit, for chaining
+     */
+    public BulkEdit fill(int x1, int y1, int z1, int x2, int y2, int z2, short state) {
+        int minX = Math.min(x1, x2);
+        int maxX = Math.max(x1, x2);
+        int minY = Math.max(0, Math.min(y1, y2));
+        int maxY = Math.min(255, Math.max(y1, y2));
+        int minZ = Math.min(z1, z2);
+        int maxZ = Math.max(z1, z2);
+
+        // Fill chunk by chunk, bottom to top, so that the
+        // records are already grouped by section
+        for (int cX = minX >> 4; cX <= maxX >> 4; cX++) {
+            for (int cZ = minZ >> 4; cZ <= maxZ >> 4; cZ++) {
+                ChunkEdit edit = this.chunk(cX, cZ);
+                int fromX = Math.max(minX, cX << 4) & 15;
+                int toX = Math.min(maxX, cX << 4 | 15) & 15;
+                int fromZ = Math.max(minZ, cZ << 4) & 15;
+                int toZ = Math.min(maxZ, cZ << 4 | 15) & 15;
+
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = fromZ; z <= toZ; z++) {
+                        for (int x = fromX; x <= toX; x++) {
+                            edit.add(TridentChunk.record(x, y, z, state));
+                        }
+                    }
+                }
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Pastes the blocks in the given clipboard with its
+     * lowest corner at the given position.
+     *
+     * @param clipboard the clipboard to paste
+     * @param x the x coordinate of the lowest corner
+     * @param y the y coordinate of the lowest corner
+     * @param z the z coordinate of the lowest corner
+     * @param ignoreAir {@code true} to leave the blocks
+     * where the clipboard holds air unchanged
+     * @return this edit, for chaining
+     */
+    public BulkEdit paste(Clipboard clipboard, int x, int y, int z, boolean ignoreAir) {
+        for (int dY = 0; dY < clipboard.getHeight(); dY++) {
+            for (int dZ = 0; dZ < clipboard.getLength(); dZ++) {
+                for (int dX = 0; dX < clipboard.getWidth(); dX++) {
+                    short state = clipboard.get(dX, dY, dZ);
+                    if (ignoreAir && state >> 4 == 0) {
+                        continue;
+                    }
+
+                    this.set(x + dX, y + dY, z + dZ, state);
+                }
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Applies every change in this edit to the world,
+     * generating chunks where necessary, and clears this
+     * edit so that it may be reused.
+     *
+     * @return the number of blocks that were set
+     */
+    public int apply() {
+        int total = 0;
+        for (ChunkEdit edit : this.chunks.values()) {
+            TridentChunk chunk = this.world.getChunkAt(edit.x, edit.z);
+            chunk.setAll(edit.sorted(), edit.count);
+            total += edit.count;
+        }
+
+        this.chunks.clear();
+        this.last = null;
+        return total;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import lombok.Getter;
+import net.tridentsdk.logger.Logger;
+import net.tridentsdk.server.TridentServer;
+import net.tridentsdk.server.config.ServerConfig;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes the modified chunks of a world to
+ * disk.
+ *
+ * <p>Every autosave interval, the chunks which were changed
+ * since they were last saved are collected and handed to
+ * the world's {@link ChunkSaveQueue} a few at a time,
+ * spending no more than the autosave budget on each tick.
+ * The tick only selects the chunks; they are serialized
+ * and written by the save queue, which also retries
+ * regions that fail to be written.</p>
+ *
+ * <p>The chunks are ordered by region file and queued in
+ * batches of up to {@link #MAX_BATCH} chunks of the same
+ * region, so that the save queue writes each batch with one
+ * header update. Batches are only queued while the save
+ * queue has room for them, so the autosave keeps pace with
+ * the disk instead of making the tick write chunks
+ * itself.</p>
+ *
+ * <p>This is only ticked by its world, the progress
+ * getters may be read from any thread.</p>
+ */
+@NotThreadSafe
+public class ChunkAutosave {
+    private static final Logger LOGGER = Logger.get(ChunkAutosave.class);
+    /**
+     * The most chunks queued for a region file at once
+     */
+    private static final int MAX_BATCH = 64;
+
+    /**
+     * The world being saved
+     */
+    private final TridentWorld world;
+
+    /**
+     * The ticks since the last autosave started
+     */
+    private int ticks;
+    /**
+     * The chunks being saved by the current autosave, or
+     * {@code null} if none is running
+     */
+    private List<TridentChunk> cycle;
+    /**
+     * The index of the next chunk to save
+     */
+    private int index;
+    /**
+     * The time at which the current autosave started
+     */
+    private long start;
+    /**
+     * Whether a chunk of the current autosave could not be
+     * queued, so that the failure is only logged once
+     */
+    private boolean failed;
+
+    /**
+     * The number of chunks in the current autosave
+     */
+    @Getter
+    private volatile int total;
+    /**
+     * The number of chunks queued by the current autosave
+     */
+    @Getter
+    private volatile int saved;
+    /**
+     * The chunks queued per second by the last completed
+     * autosave, which is bounded by how fast the save queue
+     * writes them
+     */
+    @Getter
+    private volatile double lastThroughput;
+
+    /**
+     * Creates a new autosave for the given world.
+     *
+     * @param world the world to save
+     */
+    public ChunkAutosave(TridentWorld world) {
+        this.world = world;
+    }
+
+    /**
+     * Determines whether an autosave is in progress.
+     *
+     * @return {@code true} if chunks are being saved
+     */
+    public boolean isRunning() {
+        return this.total > 0;
+    }
+
+    /**
+     * Starts an autosave when the interval has elapsed and
+     * queues the next chunks within the tick budget.
+     */
+    public void tick() {
+        ServerConfig cfg = TridentServer.cfg();
+        if (this.cycle == null) {
+            int interval = cfg == null ? ServerConfig.DEFAULT_AUTOSAVE_INTERVAL : cfg.autosaveInterval();
+            if (interval <= 0 || ++this.ticks < interval) {
+                return;
+            }
+
+            this.ticks = 0;
+            if (!this.begin()) {
+                return;
+            }
+        }
+
+        int budget = cfg == null ? ServerConfig.DEFAULT_AUTOSAVE_BUDGET : cfg.autosaveBudget();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budget);
+        ChunkSaveQueue queue = this.world.getSaveQueue();
+        List<TridentChunk> batch = new ArrayList<>(MAX_BATCH);
+        int saved = this.saved;
+        do {
+            if (!queue.hasRoom(MAX_BATCH)) {
+                break;
+            }
+
+            TridentChunk first = this.cycle.get(this.index);
+            do {
+                TridentChunk chunk = this.cycle.get(this.index++);
+
+                // Chunks unloaded since the autosave began are
+                // written by the save queue
+                if (chunk.isDirty() && chunk.isReady()) {
+                    batch.add(chunk);
+                }
+            } while (this.index < this.cycle.size() && batch.size() < MAX_BATCH &&
+                    sameRegion(first, this.cycle.get(this.index)));
+
+            if (!batch.isEmpty()) {
+                this.queue(queue, batch);
+                saved += batch.size();
+                batch.clear();
+            }
+        } while (this.index < this.cycle.size() && System.nanoTime() < deadline);
+        this.saved = saved;
+
+        if (this.index == this.cycle.size()) {
+            this.finish();
+        }
+    }
+
+    /**
+     * Hands a batch of chunks to the save queue, leaving
+     * any chunk which could not be queued modified so that
+     * the next autosave picks it up.
+     */
+    private void queue(ChunkSaveQueue queue, List<TridentChunk> batch) {
+        try {
+            for (TridentChunk chunk : batch) {
+                queue.save(chunk);
+            }
+        } catch (RuntimeException e) {
+            for (TridentChunk chunk : batch) {
+                chunk.markDirty();
+            }
+
+            if (!this.failed) {
+                this.failed = true;
+                LOGGER.error("Failed to queue chunks of world \"" + this.world.getName() + "\" for autosave: " + e);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Collects the modified chunks to save.
+     *
+     * @return {@code true} if there is anything to save
+     */
+    private boolean begin() {
+        List<TridentChunk> dirty = new ArrayList<>();
+        this.world.getChunks().forEach(chunk -> {
+            if (chunk.isDirty()) {
+                dirty.add(chunk);
+            }
+        });
+
+        if (dirty.isEmpty()) {
+            return false;
+        }
+
+        dirty.sort(Comparator.<TridentChunk>comparingInt(c -> c.getX() >> 5).thenComparingInt(c -> c.getZ() >> 5));
+        this.cycle = dirty;
+        this.index = 0;
+        this.start = System.nanoTime();
+        this.saved = 0;
+        this.failed = false;
+        this.total = dirty.size();
+        LOGGER.log("Autosaving " + dirty.size() + " chunks in world \"" + this.world.getName() + "\"...");
+        return true;
+    }
+
+    /**
+     * Determines whether the given chunks are stored in the
+     * same region file.
+     */
+    private static boolean sameRegion(TridentChunk a, TridentChunk b) {
+        return a.getX() >> 5 == b.getX() >> 5 && a.getZ() >> 5 == b.getZ() >> 5;
+    }
+
+    /**
+     * Reports the completed autosave.
+     */
+    private void finish() {
+        long elapsed = System.nanoTime() - this.start;
+        double seconds = elapsed / 1e9;
+        int saved = this.saved;
+        this.lastThroughput = seconds == 0 ? saved : saved / seconds;
+        LOGGER.log(String.format("Queued %d chunks of world \"%s\" for autosave in %d ms (%.1f chunks/s)",
+                saved, this.world.getName(), TimeUnit.NANOSECONDS.toMillis(elapsed), this.lastThroughput));
+
+        this.cycle = null;
+        this.total = 0;
+    }
+}
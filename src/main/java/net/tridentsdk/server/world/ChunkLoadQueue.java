@@ -0,0 +1,557 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import net.tridentsdk.base.Position;
+import net.tridentsdk.server.player.TridentPlayer;
+import net.tridentsdk.server.util.Long2ReferenceOpenHashMap;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Schedules the chunks requested by players in a world so
+ * that the closest ones are loaded first.
+ *
+ * <p>Requests are ordered by the squared distance to the
+ * nearest player that wants the chunk, which is recomputed
+ * every tick as players move. Only a limited number of
+ * requests are handed to the chunk pools at once, and
+ * requests which are no longer in range of any interested
+ * player are cancelled before they start.</p>
+ *
+ * <p>Chunks may also be prefetched ahead of a moving
+ * player. Prefetches always rank behind requests for chunks
+ * in view, use at most half of the in-flight slots and are
+ * dropped entirely while the world is running behind or
+ * the queue is already long.</p>
+ */
+@ThreadSafe
+public class ChunkLoadQueue {
+    /**
+     * The maximum number of chunks being loaded or
+     * generated at the same time
+     */
+    private static final int MAX_IN_FLIGHT = Runtime.getRuntime().availableProcessors() * 2;
+    /**
+     * The maximum number of prefetches being loaded at the
+     * same time
+     */
+    private static final int MAX_PREFETCH_IN_FLIGHT = Math.max(1, MAX_IN_FLIGHT / 2);
+    /**
+     * The number of pending requests above which no more
+     * prefetches are accepted
+     */
+    private static final int MAX_PREFETCH_PENDING = 256;
+    /**
+     * The duration of a world tick, in nanoseconds, above
+     * which prefetching is suspended
+     */
+    private static final long PREFETCH_TICK_BUDGET = 40_000_000L;
+    /**
+     * The distance in chunks beyond a player's render
+     * distance after which prefetches are cancelled
+     */
+    private static final int PREFETCH_RANGE = 32;
+    /**
+     * Added to the distance of prefetches so that they are
+     * ordered after any chunk in view
+     */
+    private static final long PREFETCH_PRIORITY = 1L << 32;
+    /**
+     * Orders requests with the closest first
+     */
+    private static final Comparator<Request> BY_DISTANCE = Comparator.comparingLong(r -> r.distance);
+
+    /**
+     * The world which chunks are loaded for
+     */
+    private final TridentWorld world;
+
+    /**
+     * Lock protecting the pending requests
+     */
+    private final Object lock = new Object();
+    /**
+     * The requests that have not completed yet, including
+     * those already being loaded
+     */
+    @GuardedBy("lock")
+    private final Long2ReferenceOpenHashMap<Request> requests = new Long2ReferenceOpenHashMap<>();
+    /**
+     * The requests waiting to be handed to the chunk pools
+     */
+    @GuardedBy("lock")
+    private final PriorityQueue<Request> waiting = new PriorityQueue<>(BY_DISTANCE);
+    /**
+     * The number of requests currently being loaded
+     */
+    @GuardedBy("lock")
+    private int inFlight;
+    /**
+     * The number of prefetches currently being loaded
+     */
+    @GuardedBy("lock")
+    private int prefetchesInFlight;
+
+    /**
+     * Load statistics
+     */
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder prefetched = new LongAdder();
+
+    /**
+     * Creates a new load queue for the given world.
+     *
+     * @param world the world to load chunks for
+     */
+    public ChunkLoadQueue(TridentWorld world) {
+        this.world = world;
+    }
+
+    /**
+     * Obtains the map key for the given chunk coordinates.
+     */
+    private static long key(int x, int z) {
+        return (long) x << 32 | z & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Obtains the squared distance of the given player to
+     * a chunk, or {@link Long#MAX_VALUE} if the chunk is
+     * out of the player's render distance.
+     */
+    private long distance(TridentPlayer player, int x, int z) {
+        Position position = player.getPosition();
+        if (position.getWorld() != this.world) {
+            return Long.MAX_VALUE;
+        }
+
+        long dx = x - position.getChunkX();
+        long dz = z - position.getChunkZ();
+        int radius = player.getRenderDistance();
+        if (Math.abs(dx) > radius || Math.abs(dz) > radius) {
+            return Long.MAX_VALUE;
+        }
+
+        return dx * dx + dz * dz;
+    }
+
+    /**
+     * Obtains the priority of a prefetch for the given
+     * player, or {@link Long#MAX_VALUE} if the chunk is too
+     * far away to still be useful.
+     */
+    private long prefetchDistance(TridentPlayer player, int x, int z) {
+        Position position = player.getPosition();
+        if (position.getWorld() != this.world) {
+            return Long.MAX_VALUE;
+        }
+
+        long dx = x - position.getChunkX();
+        long dz = z - position.getChunkZ();
+        int radius = player.getRenderDistance() + PREFETCH_RANGE;
+        if (Math.abs(dx) > radius || Math.abs(dz) > radius) {
+            return Long.MAX_VALUE;
+        }
+
+        return PREFETCH_PRIORITY + dx * dx + dz * dz;
+    }
+
+    /**
+     * Obtains the priority of a request from the players
+     * that want it, removing those which are out of range.
+     */
+    @GuardedBy("lock")
+    private long distance(Request request) {
+        long distance = Long.MAX_VALUE;
+        for (Iterator<TridentPlayer> players = request.interested.iterator(); players.hasNext(); ) {
+            long d = this.distance(players.next(), request.x, request.z);
+            if (d == Long.MAX_VALUE) {
+                players.remove();
+            } else {
+                distance = Math.min(distance, d);
+            }
+        }
+
+        if (request.prefetchers != null) {
+            for (Iterator<TridentPlayer> players = request.prefetchers.iterator(); players.hasNext(); ) {
+                long d = this.prefetchDistance(players.next(), request.x, request.z);
+                if (d == Long.MAX_VALUE) {
+                    players.remove();
+                } else {
+                    distance = Math.min(distance, d);
+                }
+            }
+        }
+
+        return distance;
+    }
+
+    /**
+     * Requests the chunk at the given coordinates to be
+     * loaded on behalf of the given player.
+     *
+     * <p>If the chunk is already loaded, the returned
+     * future is already complete. Otherwise it completes
+     * once the chunk is ready, or is cancelled if the
+     * player moves out of range first.</p>
+     *
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     * @param player the player wanting the chunk
+     * @return a future completed with the chunk
+     */
+    public CompletableFuture<TridentChunk> request(int x, int z, TridentPlayer player) {
+        TridentChunk chunk = this.world.getChunks().getIfReady(x, z);
+        if (chunk != null) {
+            return CompletableFuture.completedFuture(chunk);
+        }
+
+        long key = key(x, z);
+        long distance = this.distance(player, x, z);
+        Request request;
+        synchronized (this.lock) {
+            request = this.requests.get(key);
+            if (request == null) {
+                request = new Request(x, z);
+                request.distance = distance;
+                this.requests.put(key, request);
+                this.waiting.add(request);
+                this.queued.increment();
+            } else if (!request.loading && distance < request.distance) {
+                this.waiting.remove(request);
+                request.distance = distance;
+                this.waiting.add(request);
+            }
+
+            request.interested.add(player);
+        }
+
+        this.dispatch();
+        return request.future;
+    }
+
+    /**
+     * Requests the chunk at the given coordinates to be
+     * loaded ahead of the given player moving towards it.
+     *
+     * <p>The chunk is loaded after every chunk in view, and
+     * the request is ignored if the world or the queue is
+     * too busy. Prefetched chunks are not sent to the
+     * player, they stay loaded until they unload after the
+     * usual delay, or until the player requests them.</p>
+     *
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     * @param player the player moving towards the chunk
+     */
+    public void prefetch(int x, int z, TridentPlayer player) {
+        if (this.world.getLastTickNanos() > PREFETCH_TICK_BUDGET ||
+                this.world.getChunks().getLoaded(x, z) != null) {
+            return;
+        }
+
+        long key = key(x, z);
+        long distance = this.prefetchDistance(player, x, z);
+        if (distance == Long.MAX_VALUE) {
+            return;
+        }
+
+        synchronized (this.lock) {
+            Request request = this.requests.get(key);
+            if (request == null) {
+                if (this.requests.size() >= MAX_PREFETCH_PENDING) {
+                    return;
+                }
+
+                request = new Request(x, z);
+                request.distance = distance;
+                this.requests.put(key, request);
+                this.waiting.add(request);
+                this.prefetched.increment();
+            }
+
+            if (request.prefetchers == null) {
+                request.prefetchers = new HashSet<>(1);
+            }
+            request.prefetchers.add(player);
+        }
+
+        this.dispatch();
+    }
+
+    /**
+     * Withdraws the given player's interest from every
+     * request, cancelling those which no other player
+     * wants.
+     *
+     * @param player the player to remove
+     */
+    public void cancel(TridentPlayer player) {
+        List<Request> cancel = new ArrayList<>();
+        synchronized (this.lock) {
+            for (Iterator<Request> it = this.requests.values().iterator(); it.hasNext(); ) {
+                Request request = it.next();
+                boolean removed = request.interested.remove(player);
+                if (request.prefetchers != null) {
+                    removed |= request.prefetchers.remove(player);
+                }
+
+                if (removed && request.isAbandoned() && !request.loading) {
+                    it.remove();
+                    this.waiting.remove(request);
+                    cancel.add(request);
+                }
+            }
+        }
+
+        this.cancelAll(cancel);
+    }
+
+    /**
+     * Recomputes the priority of every waiting request from
+     * the current player positions, cancels the requests
+     * no longer in range of anyone and starts loading the
+     * closest ones.
+     */
+    public void tick() {
+        List<Request> cancel = new ArrayList<>();
+        synchronized (this.lock) {
+            if (this.waiting.isEmpty()) {
+                return;
+            }
+
+            this.waiting.clear();
+            for (Iterator<Request> it = this.requests.values().iterator(); it.hasNext(); ) {
+                Request request = it.next();
+                if (request.loading) {
+                    continue;
+                }
+
+                long distance = this.distance(request);
+                if (request.isAbandoned()) {
+                    it.remove();
+                    cancel.add(request);
+                } else {
+                    request.distance = distance;
+                    this.waiting.add(request);
+                }
+            }
+        }
+
+        this.cancelAll(cancel);
+        this.dispatch();
+    }
+
+    /**
+     * Cancels the given requests, which must already have
+     * been removed from the queue.
+     */
+    private void cancelAll(List<Request> cancel) {
+        for (Request request : cancel) {
+            this.cancelled.increment();
+            request.future.cancel(false);
+        }
+    }
+
+    /**
+     * Hands the closest waiting requests to the chunk pools
+     * until the in-flight limit is reached.
+     */
+    private void dispatch() {
+        List<Request> start = null;
+        synchronized (this.lock) {
+            boolean busy = this.world.getLastTickNanos() > PREFETCH_TICK_BUDGET;
+            while (this.inFlight < MAX_IN_FLIGHT && !this.waiting.isEmpty()) {
+                // Prefetches are ordered last, so none of the
+                // remaining requests can start either
+                Request request = this.waiting.peek();
+                boolean prefetch = request.distance >= PREFETCH_PRIORITY;
+                if (prefetch && (busy || this.prefetchesInFlight >= MAX_PREFETCH_IN_FLIGHT)) {
+                    break;
+                }
+
+                this.waiting.poll();
+                request.loading = true;
+                request.prefetch = prefetch;
+                this.inFlight++;
+                if (prefetch) {
+                    this.prefetchesInFlight++;
+                }
+
+                if (start == null) {
+                    start = new ArrayList<>();
+                }
+                start.add(request);
+            }
+        }
+
+        if (start != null) {
+            for (Request request : start) {
+                this.world.getChunks().getAsync(request.x, request.z).
+                        whenComplete((chunk, t) -> this.finish(request, chunk, t));
+            }
+        }
+    }
+
+    /**
+     * Completes a request once its chunk has loaded and
+     * starts the next waiting one.
+     */
+    private void finish(Request request, TridentChunk chunk, Throwable t) {
+        synchronized (this.lock) {
+            this.inFlight--;
+            if (request.prefetch) {
+                this.prefetchesInFlight--;
+            }
+            long key = key(request.x, request.z);
+            if (this.requests.get(key) == request) {
+                this.requests.remove(key);
+            }
+        }
+
+        if (t == null) {
+            this.completed.increment();
+            request.future.complete(chunk);
+        } else {
+            this.failed.increment();
+            request.future.completeExceptionally(t);
+        }
+
+        this.dispatch();
+    }
+
+    /**
+     * Obtains the number of requests which have not
+     * completed yet.
+     *
+     * @return the number of pending requests
+     */
+    public int getPending() {
+        synchronized (this.lock) {
+            return this.requests.size();
+        }
+    }
+
+    /**
+     * Obtains the total number of requests that were
+     * queued.
+     *
+     * @return the number of queued requests
+     */
+    public long getQueued() {
+        return this.queued.sum();
+    }
+
+    /**
+     * Obtains the total number of requests that were
+     * cancelled before they were loaded.
+     *
+     * @return the number of cancelled requests
+     */
+    public long getCancelled() {
+        return this.cancelled.sum();
+    }
+
+    /**
+     * Obtains the total number of requests that finished
+     * loading.
+     *
+     * @return the number of completed requests
+     */
+    public long getCompleted() {
+        return this.completed.sum();
+    }
+
+    /**
+     * Obtains the total number of requests whose chunk
+     * failed to load.
+     *
+     * @return the number of failed requests
+     */
+    public long getFailed() {
+        return this.failed.sum();
+    }
+
+    /**
+     * Obtains the total number of chunks that were queued
+     * to be loaded ahead of moving players.
+     *
+     * @return the number of prefetches
+     */
+    public long getPrefetched() {
+        return this.prefetched.sum();
+    }
+
+    /**
+     * A request to load a single chunk.
+     */
+    private static final class Request {
+        private final int x;
+        private final int z;
+        private final CompletableFuture<TridentChunk> future = new CompletableFuture<>();
+        /**
+         * The players which want the chunk
+         */
+        @GuardedBy("ChunkLoadQueue.lock")
+        private final Set<TridentPlayer> interested = new HashSet<>();
+        /**
+         * The players which are moving towards the chunk, or
+         * {@code null} if it was never prefetched
+         */
+        @GuardedBy("ChunkLoadQueue.lock")
+        private Set<TridentPlayer> prefetchers;
+        /**
+         * The squared distance to the closest interested
+         * player
+         */
+        @GuardedBy("ChunkLoadQueue.lock")
+        private long distance;
+        /**
+         * Whether the chunk has been handed to the pools
+         */
+        @GuardedBy("ChunkLoadQueue.lock")
+        private boolean loading;
+        /**
+         * Whether the chunk was handed to the pools as a
+         * prefetch
+         */
+        @GuardedBy("ChunkLoadQueue.lock")
+        private boolean prefetch;
+
+        Request(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+
+        /**
+         * Determines whether no player wants the chunk
+         * anymore.
+         */
+        @GuardedBy("ChunkLoadQueue.lock")
+        boolean isAbandoned() {
+            return this.interested.isEmpty() && (this.prefetchers == null || this.prefetchers.isEmpty());
+        }
+    }
+}
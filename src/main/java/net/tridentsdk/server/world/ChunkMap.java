@@ -16,30 +16,28 @@
  */
 package net.tridentsdk.server.world;
 
-import net.tridentsdk.server.util.Long2ReferenceOpenHashMap;
+import net.tridentsdk.server.util.ConcurrentLong2ReferenceMap;
 
 import javax.annotation.Nonnull;
-import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 /**
  * Map of loaded chunks.
  *
  * <p>This class makes concurrency handing easier on the
- * world.</p>
+ * world. Lookups do not lock, and iteration is weakly
+ * consistent.</p>
  */
+@ThreadSafe
 public class ChunkMap implements Iterable<TridentChunk> {
-    /**
-     * The lock guarding the chunk map
-     */
-    private final Object lock = new Object();
     /**
      * The actual map of chunks
      */
-    @GuardedBy("lock")
-    private final Long2ReferenceOpenHashMap<TridentChunk> chunks = new Long2ReferenceOpenHashMap<>();
+    private final ConcurrentLong2ReferenceMap<TridentChunk> chunks = new ConcurrentLong2ReferenceMap<>();
     /**
      * The world holding the chunks in this map
      */
@@ -54,6 +52,13 @@ public class ChunkMap implements Iterable<TridentChunk> {
         this.world = world;
     }
 
+    /**
+     * Obtains the map key for the given chunk coordinates.
+     */
+    private static long key(int x, int z) {
+        return (long) x << 32 | z & 0xFFFFFFFFL;
+    }
+
     /**
      * Obtains the chunk at the given location and
      * determines whether a chunk will be generated if it
@@ -62,32 +67,80 @@ public class ChunkMap implements Iterable<TridentChunk> {
      * @param x the x coordinate
      * @param z the z coordinate
      * @param gen {@code true} to generate if non-existant
-     * @return the chunk, or {@code null}
+     * @return the chunk, or {@code null} if it is not
+     * ready and not generated
      */
     public TridentChunk get(int x, int z, boolean gen) {
-        long key = (long) x << 32 | z & 0xFFFFFFFFL;
-        boolean doGenerate = false;
-        TridentChunk chunk;
+        if (gen) {
+            return this.getAsync(x, z).join();
+        }
 
-        synchronized (this.lock) {
-            chunk = this.chunks.get(key);
-            if ((chunk == null || !chunk.canUse()) && gen) {
-                chunk = new TridentChunk(this.world, x, z);
-                this.chunks.put(key, chunk);
+        return this.getIfReady(x, z);
+    }
 
-                doGenerate = true;
+    /**
+     * Obtains the chunk at the given location, loading or
+     * generating it if it does not exist yet, without
+     * waiting for it to become ready.
+     *
+     * @param x the x coordinate
+     * @param z the z coordinate
+     * @return a future completed with the chunk once it is
+     * ready
+     */
+    public CompletableFuture<TridentChunk> getAsync(int x, int z) {
+        return this.getOrCreate(x, z).generate();
+    }
+
+    /**
+     * Obtains the chunk at the given location, adding an
+     * empty chunk if it does not exist yet, without
+     * starting its generation.
+     *
+     * @param x the x coordinate
+     * @param z the z coordinate
+     * @return the chunk
+     */
+    public TridentChunk getOrCreate(int x, int z) {
+        long key = key(x, z);
+        TridentChunk chunk = this.chunks.get(key);
+
+        if (chunk == null || !chunk.canUse()) {
+            if (chunk != null) {
+                this.chunks.remove(key, chunk);
             }
-        }
 
-        if (doGenerate) {
-            chunk.generate();
+            // Only the first caller to create the chunk
+            // actually does so, the rest share it
+            chunk = this.chunks.computeIfAbsent(key, k -> new TridentChunk(this.world, x, z));
         }
 
-        if (chunk != null) {
-            return chunk.waitReady();
-        } else {
-            return null;
-        }
+        return chunk;
+    }
+
+    /**
+     * Obtains the chunk at the given location if it is in
+     * memory, whether or not it has finished generating.
+     *
+     * @param x the x coordinate
+     * @param z the z coordinate
+     * @return the chunk, or {@code null}
+     */
+    public TridentChunk getLoaded(int x, int z) {
+        return this.chunks.get(key(x, z));
+    }
+
+    /**
+     * Obtains the chunk at the given location if it is
+     * loaded and ready, without waiting or generating.
+     *
+     * @param x the x coordinate
+     * @param z the z coordinate
+     * @return the chunk, or {@code null}
+     */
+    public TridentChunk getIfReady(int x, int z) {
+        TridentChunk chunk = this.chunks.get(key(x, z));
+        return chunk != null && chunk.isReady() ? chunk : null;
     }
 
     /**
@@ -99,22 +152,17 @@ public class ChunkMap implements Iterable<TridentChunk> {
      * if nothing happened
      */
     public TridentChunk remove(int x, int z) {
-        long key = (long) x << 32 | z & 0xFFFFFFFFL;
-
-        synchronized (this.lock) {
-            return this.chunks.remove(key);
-        }
+        return this.chunks.remove(key(x, z));
     }
 
     /**
      * All of the loaded chunks.
      *
-     * @return the values of the chunk map
+     * @return a weakly consistent view of the chunks in
+     * the map
      */
     public Collection<TridentChunk> values() {
-        synchronized (this.lock) {
-            return this.chunks.values();
-        }
+        return this.chunks.values();
     }
 
     @Nonnull
@@ -125,10 +173,6 @@ public class ChunkMap implements Iterable<TridentChunk> {
 
     @Override
     public void forEach(Consumer<? super TridentChunk> action) {
-        synchronized (this.lock) {
-            for (TridentChunk chunk : this) {
-                action.accept(chunk);
-            }
-        }
+        this.chunks.forEach(action);
     }
-}
\ No newline at end of file
+}
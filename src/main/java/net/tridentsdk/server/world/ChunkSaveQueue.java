@@ -0,0 +1,402 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import net.tridentsdk.logger.Logger;
+import net.tridentsdk.meta.nbt.Tag;
+import net.tridentsdk.server.concurrent.PoolSpec;
+import net.tridentsdk.server.concurrent.ServerThreadPool;
+import net.tridentsdk.server.util.Long2ReferenceOpenHashMap;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes chunks of a world to their region files in the
+ * background.
+ *
+ * <p>Chunks are serialized straight from memory when they
+ * are written rather than when they are queued, so saving
+ * the same chunk several times before the queue reaches it
+ * only writes it once. Pending chunks are grouped by region
+ * file, and each region's batch is written together.</p>
+ *
+ * <p>The queue holds at most {@link #MAX_PENDING} chunks.
+ * Beyond that, the thread saving a chunk writes the pending
+ * chunks of its region itself, which slows down whatever
+ * is producing saves faster than the disk can keep up. The
+ * chunks stay in the queue while they are written so that
+ * a chunk loaded again in the meantime is read from the
+ * queue instead of from its region file.</p>
+ *
+ * <p>Chunks are always written to a region file in one
+ * batch per region, whether by the writer task or by a
+ * thread saving into a full queue.</p>
+ *
+ * <p>A region that fails to be written is moved behind the
+ * other regions and retried, up to {@link #MAX_ATTEMPTS}
+ * times before its chunks are dropped, so that one broken
+ * region file does not hold up the rest of the world.</p>
+ */
+@ThreadSafe
+public class ChunkSaveQueue {
+    private static final Logger LOGGER = Logger.get(ChunkSaveQueue.class);
+    /**
+     * The thread pool used to write chunks
+     */
+    private static final ServerThreadPool POOL = ServerThreadPool.forSpec(PoolSpec.CHUNKS);
+    /**
+     * The maximum number of chunks waiting to be written
+     */
+    private static final int MAX_PENDING = 1024;
+    /**
+     * The number of times writing a region is attempted
+     * before its chunks are dropped
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Lock protecting the pending chunks
+     */
+    private final Object lock = new Object();
+    /**
+     * The chunks waiting to be written, grouped by region
+     * in the order the regions were first queued
+     */
+    @GuardedBy("lock")
+    private final Map<Path, Long2ReferenceOpenHashMap<TridentChunk>> pending = new LinkedHashMap<>();
+    /**
+     * The number of chunks waiting to be written
+     */
+    @GuardedBy("lock")
+    private int size;
+    /**
+     * The number of failed attempts to write each region
+     */
+    @GuardedBy("lock")
+    private final Map<Path, Integer> failures = new HashMap<>();
+    /**
+     * Whether a writer task is currently running
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Obtains the key of a chunk within its region.
+     */
+    private static long key(TridentChunk chunk) {
+        return (long) chunk.getX() << 32 | chunk.getZ() & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Queues the given chunk to be written to its region
+     * file.
+     *
+     * @param chunk the chunk to save
+     */
+    public void save(TridentChunk chunk) {
+        Path region = Region.pathOf(chunk);
+        long key = key(chunk);
+
+        boolean full = false;
+        synchronized (this.lock) {
+            Long2ReferenceOpenHashMap<TridentChunk> chunks = this.pending.get(region);
+            if (chunks == null) {
+                chunks = new Long2ReferenceOpenHashMap<>();
+                this.pending.put(region, chunks);
+            }
+
+            if (chunks.put(key, chunk) == null) {
+                full = this.size >= MAX_PENDING;
+                this.size++;
+            }
+        }
+
+        if (full) {
+            this.writeRegion(region);
+        } else {
+            this.schedule();
+        }
+    }
+
+    /**
+     * Obtains the saved data of the chunk at the same
+     * coordinates as the given chunk if it is waiting to be
+     * written, so that a chunk loaded again before its
+     * region file is up to date does not have to wait for
+     * the write.
+     *
+     * @param chunk the chunk about to be loaded
+     * @return the {@code Level} compound of the pending
+     * chunk, or {@code null} if it is not pending
+     */
+    public Tag.Compound pendingData(TridentChunk chunk) {
+        TridentChunk saving;
+        synchronized (this.lock) {
+            Long2ReferenceOpenHashMap<TridentChunk> chunks = this.pending.get(Region.pathOf(chunk));
+            saving = chunks == null ? null : chunks.get(key(chunk));
+        }
+
+        if (saving == null) {
+            return null;
+        }
+
+        // The pending chunk was unloaded and is no longer
+        // changed, and its sections are copied as they are
+        // written, so it can be written alongside the queue
+        Tag.Compound level = new Tag.Compound("Level");
+        saving.write(level);
+        return level;
+    }
+
+    /**
+     * Determines whether the given number of chunks can be
+     * queued without the thread saving them having to write
+     * them itself.
+     *
+     * @param chunks the number of chunks to queue
+     * @return {@code true} if the queue has room for them
+     */
+    public boolean hasRoom(int chunks) {
+        synchronized (this.lock) {
+            return this.size + chunks <= MAX_PENDING;
+        }
+    }
+
+    /**
+     * Writes every pending chunk of the given region on the
+     * calling thread, retrying it later like the writer task
+     * does if it fails.
+     */
+    private void writeRegion(Path region) {
+        List<TridentChunk> batch;
+        synchronized (this.lock) {
+            Long2ReferenceOpenHashMap<TridentChunk> chunks = this.pending.get(region);
+            if (chunks == null) {
+                return;
+            }
+            batch = new ArrayList<>(chunks.values());
+        }
+
+        try {
+            write(region, batch);
+        } catch (RuntimeException e) {
+            this.failed(region, e);
+            this.schedule();
+            return;
+        }
+
+        this.written(region, batch);
+    }
+
+    /**
+     * Writes every pending chunk on the calling thread,
+     * used when the world is saved or the server shuts
+     * down.
+     */
+    public void drain() {
+        while (this.writeBatch()) {
+        }
+    }
+
+    /**
+     * Obtains the number of chunks waiting to be written.
+     *
+     * @return the number of pending chunks
+     */
+    public int getPending() {
+        synchronized (this.lock) {
+            return this.size;
+        }
+    }
+
+    /**
+     * Starts a writer task if none is running.
+     */
+    private void schedule() {
+        if (this.running.compareAndSet(false, true)) {
+            POOL.execute(this::run);
+        }
+    }
+
+    /**
+     * The writer task, which runs until no chunks are left.
+     */
+    private void run() {
+        do {
+            try {
+                while (this.writeBatch()) {
+                }
+            } finally {
+                this.running.set(false);
+            }
+
+            // A chunk may have been queued after the last
+            // batch but before the flag was cleared
+        } while (this.getPending() > 0 && this.running.compareAndSet(false, true));
+    }
+
+    /**
+     * Writes the pending chunks of the oldest queued
+     * region.
+     *
+     * @return {@code true} if a batch was attempted
+     */
+    private boolean writeBatch() {
+        Path region;
+        List<TridentChunk> batch;
+        synchronized (this.lock) {
+            Iterator<Map.Entry<Path, Long2ReferenceOpenHashMap<TridentChunk>>> it = this.pending.entrySet().iterator();
+            if (!it.hasNext()) {
+                return false;
+            }
+
+            Map.Entry<Path, Long2ReferenceOpenHashMap<TridentChunk>> entry = it.next();
+            region = entry.getKey();
+            batch = new ArrayList<>(entry.getValue().values());
+        }
+
+        try {
+            write(region, batch);
+        } catch (RuntimeException e) {
+            this.failed(region, e);
+            return true;
+        }
+
+        this.written(region, batch);
+        return true;
+    }
+
+    /**
+     * Moves a region which could not be written behind the
+     * other pending regions, or drops its chunks once it has
+     * failed too many times.
+     */
+    private void failed(Path region, RuntimeException e) {
+        int dropped = 0;
+        int attempts;
+        synchronized (this.lock) {
+            Long2ReferenceOpenHashMap<TridentChunk> chunks = this.pending.remove(region);
+            if (chunks == null) {
+                return;
+            }
+
+            attempts = this.failures.merge(region, 1, Integer::sum);
+            if (attempts < MAX_ATTEMPTS) {
+                this.pending.put(region, chunks);
+            } else {
+                this.failures.remove(region);
+                dropped = chunks.size();
+                this.size -= dropped;
+            }
+        }
+
+        if (dropped == 0) {
+            LOGGER.error("Failed to write region " + region + " (attempt " + attempts + "), retrying later: " + e);
+        } else {
+            LOGGER.error("Failed to write region " + region + ", " + dropped + " chunks were not saved: " + e);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Removes the given chunks from the queue once they
+     * have been written, unless they were queued again in
+     * the meantime.
+     */
+    private void written(Path region, List<TridentChunk> batch) {
+        synchronized (this.lock) {
+            this.failures.remove(region);
+            Long2ReferenceOpenHashMap<TridentChunk> chunks = this.pending.get(region);
+            if (chunks == null) {
+                return;
+            }
+
+            for (TridentChunk chunk : batch) {
+                long key = key(chunk);
+                if (chunks.get(key) == chunk) {
+                    chunks.remove(key);
+                    this.size--;
+                }
+            }
+
+            if (chunks.size() == 0) {
+                this.pending.remove(region);
+            }
+        }
+    }
+
+    /**
+     * Serializes the given chunks and writes them to the
+     * region file, which is kept open while they are
+     * written.
+     *
+     * <p>The chunks are marked as saved before they are
+     * serialized, and marked as modified again if they
+     * could not be written.</p>
+     */
+    private static void write(Path file, List<TridentChunk> batch) {
+        try {
+            write0(file, batch);
+        } catch (RuntimeException e) {
+            for (TridentChunk chunk : batch) {
+                chunk.markDirty();
+            }
+            throw e;
+        }
+    }
+
+    private static void write0(Path file, List<TridentChunk> batch) {
+        int compression = RegionCodec.level();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        byte[][] data = new byte[batch.size()][];
+        for (int i = 0; i < data.length; i++) {
+            TridentChunk chunk = batch.get(i);
+            Tag.Compound root = new Tag.Compound("");
+            Tag.Compound level = new Tag.Compound("Level");
+            root.putCompound(level);
+            chunk.clearDirty();
+            chunk.write(level);
+
+            bytes.reset();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                root.write(out);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            data[i] = RegionCodec.encode(bytes.toByteArray(), bytes.size(), compression);
+        }
+
+        Region.Batch writes = new Region.Batch();
+        for (int i = 0; i < data.length; i++) {
+            TridentChunk chunk = batch.get(i);
+            writes.add(chunk.getX() & 31, chunk.getZ() & 31, RegionCodec.VERSION_DEFLATE, data[i], data[i].length);
+        }
+
+        Region region = Region.acquire(file, true);
+        try {
+            region.write(writes, Region.Durability.configured());
+        } finally {
+            region.release();
+        }
+    }
+}
@@ -17,19 +17,39 @@
 package net.tridentsdk.server.world;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import net.tridentsdk.meta.nbt.Tag;
 import net.tridentsdk.server.util.NibbleArray;
-import net.tridentsdk.server.util.ShortArrayList;
-import net.tridentsdk.server.util.ShortOpenHashSet;
 
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
 
 import static net.tridentsdk.server.net.NetData.wvint;
 
 /**
  * Represents a 16x16x16 horizontal slab in a chunk column.
+ *
+ * <p>Blocks are stored as indexes into a palette of the
+ * block states used by this section, packed into as few
+ * bits as the palette size allows. When the palette
+ * outgrows the current number of bits per block, the
+ * storage is copied into a wider one. Sections with more
+ * than 256 distinct block states store the raw state
+ * instead, using the global palette.</p>
+ *
+ * <p>Unlike the protocol format, entries never straddle
+ * two longs so that every write is a single CAS.</p>
+ *
+ * <p>Sections which only hold a single block state, such
+ * as those filled with air or the stone layers of a flat
+ * world, use no data array at all until a different block
+ * is set. Generated sections and sections read from region
+ * files are compacted into this form when possible.</p>
  */
 @ThreadSafe
 public class ChunkSection {
@@ -46,23 +66,32 @@ public class ChunkSection {
      */
     private static final int BLOCKS_PER_SECTION = 4096;
     /**
-     * The number of block state values that can be stored
-     * in a single long
+     * The bits per block used by the global palette, in
+     * which block states are stored directly
+     */
+    private static final int GLOBAL_BITS = 13;
+    /**
+     * The number of section writes served from the cached
+     * encoded payload
+     */
+    private static final LongAdder ENCODE_HITS = new LongAdder();
+    /**
+     * The number of section writes that had to re-encode
+     * the section
      */
-    private static final int SHORTS_PER_LONG = 4;
+    private static final LongAdder ENCODE_MISSES = new LongAdder();
 
     /**
-     * The palette that caches the block states used by this
-     * ChunkSection and evicts unused entries when the
-     * chunk is written.
+     * The lock guarding additions to the palette and the
+     * replacement of the storage
      */
-    @GuardedBy("mainPalette")
-    private final ShortOpenHashSet mainPalette = new ShortOpenHashSet();
+    private final Object lock = new Object();
     /**
-     * The data array, which contains palette indexes at
-     * the XYZ index in the array
+     * The current block storage, which is replaced when
+     * the palette needs to grow past the number of bits
+     * per block
      */
-    private final AtomicLongArray data = new AtomicLongArray(BLOCKS_PER_SECTION / SHORTS_PER_LONG);
+    private volatile Storage storage = new Storage(0);
     /**
      * The nibble array of light emitted from blocks
      */
@@ -75,6 +104,17 @@ public class ChunkSection {
      * The flag for writing skylight in other dimensions
      */
     private final boolean doSkylight;
+    /**
+     * Incremented after every change to the block or light
+     * data, used to tell whether the encoded payload is
+     * still current
+     */
+    private final AtomicInteger version = new AtomicInteger();
+    /**
+     * The last payload encoded for the protocol, or
+     * {@code null} if it has never been sent
+     */
+    private volatile Encoded encoded;
 
     /**
      * Creates a new chunk section.
@@ -82,155 +122,544 @@ public class ChunkSection {
      * @param doSkylight whether to write skylight
      */
     public ChunkSection(boolean doSkylight) {
-        this.mainPalette.add((short) 0);
-        for (int i = 0; i < this.data.length(); i++) {
-            this.data.set(i, 0L);
-        }
-
-        this.blockLight.fill((byte) 0xF);
+        this.blockLight.fill((byte) 0);
         this.skyLight.fill((byte) 0xF);
         this.doSkylight = doSkylight;
     }
 
+    /**
+     * Block storage holding palette indexes, or raw block
+     * states if using the global palette, at a fixed
+     * number of bits per block.
+     *
+     * <p>A storage using 0 bits per block has a single
+     * palette entry shared by every block and does not
+     * allocate a data array.</p>
+     */
+    @ThreadSafe
+    private static final class Storage {
+        /**
+         * The number of bits used to store each block
+         */
+        private final int bits;
+        /**
+         * The number of entries packed into each long
+         */
+        private final int perLong;
+        /**
+         * The mask of a single unshifted entry
+         */
+        private final long mask;
+        /**
+         * The packed entries, or {@code null} if every
+         * block is the first palette entry
+         */
+        private final AtomicLongArray data;
+        /**
+         * The block states referenced by the indexes in
+         * the data array, or {@code null} if the global
+         * palette is used
+         */
+        @GuardedBy("ChunkSection.lock")
+        private final short[] palette;
+        /**
+         * The number of palette entries that have been
+         * published to readers
+         */
+        private volatile int paletteSize;
+        /**
+         * Set while this storage is being copied into a
+         * wider one or compacted, in which case writers must
+         * retry
+         */
+        private volatile boolean resizing;
+
+        /**
+         * Creates a new storage with all blocks set to the
+         * first palette entry, air.
+         *
+         * @param bits the bits per block
+         */
+        Storage(int bits) {
+            this.bits = bits;
+            this.mask = (1L << bits) - 1;
+            if (bits == 0) {
+                this.perLong = 0;
+                this.data = null;
+            } else {
+                this.perLong = 64 / bits;
+                this.data = new AtomicLongArray((BLOCKS_PER_SECTION + this.perLong - 1) / this.perLong);
+            }
+
+            if (bits == GLOBAL_BITS) {
+                this.palette = null;
+            } else {
+                this.palette = new short[1 << bits];
+                this.paletteSize = 1;
+            }
+        }
+
+        /**
+         * Creates a new storage with every block set to the
+         * given state and no data array.
+         *
+         * @param state the state of every block
+         * @return the new storage
+         */
+        static Storage single(short state) {
+            Storage storage = new Storage(0);
+            storage.palette[0] = state;
+            return storage;
+        }
+
+        /**
+         * Determines whether every block has the same raw
+         * entry.
+         *
+         * @return {@code true} if the storage holds a single
+         * block state
+         */
+        boolean uniform() {
+            if (this.data == null) {
+                return true;
+            }
+
+            int first = this.raw(0);
+            for (int i = 1; i < BLOCKS_PER_SECTION; i++) {
+                if (this.raw(i) != first) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Obtains the raw entry at the given index.
+         *
+         * @param idx the XYZ index
+         * @return the palette index or global state
+         */
+        int raw(int idx) {
+            if (this.data == null) {
+                return 0;
+            }
+
+            int shift = idx % this.perLong * this.bits;
+            return (int) (this.data.get(idx / this.perLong) >>> shift & this.mask);
+        }
+
+        /**
+         * Sets the raw entry at the given index.
+         *
+         * @param idx the XYZ index
+         * @param value the palette index or global state
+         * @return the entry that was replaced
+         */
+        int setRaw(int idx, int value) {
+            if (this.data == null) {
+                // The only possible value is already set
+                return 0;
+            }
+
+            int spliceIdx = idx / this.perLong;
+            int shift = idx % this.perLong * this.bits;
+
+            long placeMask = ~(this.mask << shift);
+            long shiftedValue = (long) value << shift;
+
+            long oldSplice;
+            long newSplice;
+            do {
+                oldSplice = this.data.get(spliceIdx);
+                newSplice = oldSplice & placeMask | shiftedValue;
+            } while (!this.data.compareAndSet(spliceIdx, oldSplice, newSplice));
+
+            return (int) (oldSplice >>> shift & this.mask);
+        }
+
+        /**
+         * Obtains the block state at the given index.
+         *
+         * @param idx the XYZ index
+         * @return the block state
+         */
+        short get(int idx) {
+            return this.state(this.raw(idx));
+        }
+
+        /**
+         * Obtains the block state referred to by the given
+         * raw entry.
+         *
+         * @param raw the palette index or global state
+         * @return the block state
+         */
+        short state(int raw) {
+            return this.palette == null ? (short) raw : this.palette[raw];
+        }
+
+        /**
+         * Looks up the palette index of the given state.
+         *
+         * @param state the block state
+         * @return the value to store for the state, or
+         * {@code -1} if it is not in the palette
+         */
+        int indexOf(short state) {
+            if (this.palette == null) {
+                return state & (1 << GLOBAL_BITS) - 1;
+            }
+
+            for (int i = 0, size = this.paletteSize; i < size; i++) {
+                if (this.palette[i] == state) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+    }
+
+    /**
+     * A section encoded in the protocol format along with
+     * the version of the section that it was read from.
+     */
+    @ThreadSafe
+    private static final class Encoded {
+        /**
+         * The section version that was read before
+         * encoding
+         */
+        private final int version;
+        /**
+         * The encoded section data
+         */
+        private final byte[] bytes;
+
+        Encoded(int version, byte[] bytes) {
+            this.version = version;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Obtains the number of section writes which have
+     * reused a cached payload since startup.
+     *
+     * @return the number of cache hits
+     */
+    public static long getEncodeHits() {
+        return ENCODE_HITS.sum();
+    }
+
+    /**
+     * Obtains the number of section writes which have had
+     * to encode the section since startup.
+     *
+     * @return the number of cache misses
+     */
+    public static long getEncodeMisses() {
+        return ENCODE_MISSES.sum();
+    }
+
+    /**
+     * Obtains the number of bits per block required to
+     * hold a palette with the given number of entries.
+     *
+     * @param paletteSize the number of palette entries
+     * @return the bits per block
+     */
+    private static int bitsFor(int paletteSize) {
+        if (paletteSize <= 16) {
+            return 4;
+        } else if (paletteSize <= 32) {
+            return 5;
+        } else if (paletteSize <= 64) {
+            return 6;
+        } else if (paletteSize <= 256) {
+            return 8;
+        }
+
+        return GLOBAL_BITS;
+    }
+
     /**
      * Sets the block at the given position in the chunk
      * section to the given block getState.
      *
      * @param idx the XYZ index
      * @param state the block getState to set
+     * @return the block state that was replaced
      */
-    public void set(int idx, short state) {
-        synchronized (this.mainPalette) {
-            this.mainPalette.add(state);
+    public short set(int idx, short state) {
+        short old = 0;
+        boolean written = false;
+        while (true) {
+            Storage storage = this.storage;
+            int value = storage.indexOf(state);
+            if (value == -1) {
+                this.addToPalette(storage, state);
+                continue;
+            }
+
+            int oldRaw = storage.setRaw(idx, value);
+
+            // Only the first write sees the state that was
+            // replaced, a retry may see this write instead
+            if (!written) {
+                old = storage.state(oldRaw);
+                written = true;
+            }
+
+            // If the storage began to be copied, the copy
+            // may or may not have seen this write, so wait
+            // for the copy to finish and write it again
+            if (storage.resizing) {
+                synchronized (this.lock) {
+                }
+                continue;
+            }
+
+            break;
         }
 
-        int spliceIdx = idx >>> 2;
-        long shift = idx % SHORTS_PER_LONG << 4;
+        this.version.incrementAndGet();
+        return old;
+    }
 
-        long placeMask = ~(0xFFFFL << shift);
-        long shiftedState = (long) state << shift;
+    /**
+     * Determines whether any of the block states which may
+     * be present in this section pass the given test.
+     *
+     * <p>Sections using the global palette always pass.
+     * </p>
+     *
+     * @param test the test for a block state
+     * @return {@code true} if a block in this section may
+     * pass the test
+     */
+    public boolean mayContain(IntPredicate test) {
+        Storage storage = this.storage;
+        if (storage.palette == null) {
+            return true;
+        }
+
+        for (int i = 0, size = storage.paletteSize; i < size; i++) {
+            if (test.test(storage.palette[i])) {
+                return true;
+            }
+        }
 
-        long oldSplice;
-        long newSplice;
-        do {
-            oldSplice = this.data.get(spliceIdx);
-            newSplice = oldSplice & placeMask | shiftedState;
-        } while (!this.data.compareAndSet(spliceIdx, oldSplice, newSplice));
-        // TODO relighting
+        return false;
     }
 
     /**
-     * Obtains the data for a block contained in this chunk
-     * section with the given position.
+     * Obtains the block light at the given index.
      *
-     * @param idx The position of the block
-     * @return A tuple consisting of substance and meta
+     * @param idx the XYZ index
+     * @return the block light level
      */
-    public short dataAt(int idx) {
-        int spliceIdx = idx >>> 2;
-        long shift = idx % SHORTS_PER_LONG << 4;
-        return (short) (this.data.get(spliceIdx) >>> shift & 0xFFFF);
+    public byte getBlockLight(int idx) {
+        return this.blockLight.getByte(idx);
     }
 
     /**
-     * Writes the section data to the given byte stream.
+     * Sets the block light at the given index.
      *
-     * @param buf the buffer to write the section data
+     * @param idx the XYZ index
+     * @param light the block light level
      */
-    public void write(ByteBuf buf) {
-        int dataLen = 0;
-        ByteBuf dataBuffer = buf.alloc().buffer();
-
-        ShortArrayList palette = null;
-        int bitsPerBlock;
-        boolean doPalette;
-        synchronized (this.mainPalette) {
-            int paletteSize = this.mainPalette.size();
-            bitsPerBlock = Integer.highestOneBit(paletteSize);
-            if (bitsPerBlock < 4) {
-                bitsPerBlock = 4;
-            }
+    public void setBlockLight(int idx, byte light) {
+        this.blockLight.setByte(idx, light);
+        this.version.incrementAndGet();
+    }
+
+    /**
+     * Obtains the sky light at the given index.
+     *
+     * @param idx the XYZ index
+     * @return the sky light level
+     */
+    public byte getSkyLight(int idx) {
+        return this.skyLight.getByte(idx);
+    }
 
-            doPalette = bitsPerBlock < 9;
+    /**
+     * Sets the sky light at the given index.
+     *
+     * @param idx the XYZ index
+     * @param light the sky light level
+     */
+    public void setSkyLight(int idx, byte light) {
+        this.skyLight.setByte(idx, light);
+        this.version.incrementAndGet();
+    }
 
-            this.mainPalette.clear();
-            this.mainPalette.add((short) 0);
+    /**
+     * Adds the given state to the palette of the given
+     * storage, replacing it with a wider one if the
+     * palette is full.
+     *
+     * @param storage the storage which did not contain
+     * the state
+     * @param state the state to add
+     */
+    private void addToPalette(Storage storage, short state) {
+        synchronized (this.lock) {
+            if (this.storage != storage || storage.indexOf(state) != -1) {
+                return;
+            }
 
-            if (!doPalette) {
-                bitsPerBlock = 13;
-            } else {
-                palette = new ShortArrayList(paletteSize);
-                palette.add((short) 0);
+            int size = storage.paletteSize;
+            if (size < storage.palette.length) {
+                storage.palette[size] = state;
+                storage.paletteSize = size + 1;
+                return;
             }
 
-            int individualValueMask = (1 << bitsPerBlock) - 1;
-            int bitsWritten = 0;
-            long cur = 0;
-            for (int y = 0; y < 16; y++) {
-                for (int z = 0; z < 16; z++) {
-                    for (int x = 0; x < 16; x++) {
-                        int realIdx = y << 8 | z << 4 | x;
-                        int data = this.dataAt(realIdx);
-                        short shortData = (short) data;
-                        boolean added = this.mainPalette.add(shortData);
-
-                        if (doPalette) {
-                            if (added) {
-                                data = palette.add(shortData);
-                            } else {
-                                data = palette.indexOf(shortData);
-                                if (data == -1) {
-                                    throw new IllegalStateException("Failed to lock");
-                                }
-                            }
-                        }
-
-                        int shift = realIdx * bitsPerBlock % 64;
-                        long or = data & individualValueMask;
-                        bitsWritten += bitsPerBlock;
-
-                        if (bitsWritten == 64) {
-                            dataLen++;
-                            dataBuffer.writeLong(cur | or << shift);
-
-                            cur = 0;
-                            bitsWritten = 0;
-                        } else if (bitsWritten > 64) {
-                            bitsWritten -= 64;
-                            int lowerLen = bitsPerBlock - bitsWritten;
-                            int lowerMask = (1 << lowerLen) - 1;
-
-                            dataLen++;
-                            dataBuffer.writeLong(cur | (or & lowerMask) << shift);
-
-                            cur = (or & ~lowerMask) >> lowerLen;
-                        } else {
-                            cur |= or << shift;
-                        }
+            storage.resizing = true;
+            Storage resized = new Storage(bitsFor(size + 1));
+            if (resized.palette != null) {
+                System.arraycopy(storage.palette, 0, resized.palette, 0, size);
+                resized.palette[size] = state;
+                resized.paletteSize = size + 1;
+
+                // A uniform section is all zero indexes, which
+                // the new data array already holds
+                if (storage.data != null) {
+                    for (int i = 0; i < BLOCKS_PER_SECTION; i++) {
+                        resized.setRaw(i, storage.raw(i));
                     }
                 }
+            } else {
+                for (int i = 0; i < BLOCKS_PER_SECTION; i++) {
+                    resized.setRaw(i, storage.get(i));
+                }
             }
+
+            this.storage = resized;
         }
+    }
 
-        // Write Bits per block
-        buf.writeByte(bitsPerBlock);
+    /**
+     * Replaces the block storage with one holding no data
+     * array if every block in this section has the same
+     * state.
+     *
+     * @return {@code true} if the section holds a single
+     * block state
+     */
+    public boolean compact() {
+        synchronized (this.lock) {
+            Storage storage = this.storage;
+            if (storage.data == null) {
+                return true;
+            }
 
-        // Write the palette size
-        wvint(buf, doPalette ? palette.size() : 0);
+            if (!storage.uniform()) {
+                return false;
+            }
 
-        // Write palette
-        for (int i = 0, max = doPalette ? palette.size() : 0; i < max; i++) {
-            wvint(buf, palette.getShort(i));
+            // Make writers retry, as in a resize, then check
+            // again in case a block was set in the meantime
+            storage.resizing = true;
+            if (!storage.uniform()) {
+                storage.resizing = false;
+                return false;
+            }
+
+            this.storage = Storage.single(storage.get(0));
         }
 
-        // Write the section data length
-        wvint(buf, dataLen);
+        this.version.incrementAndGet();
+        return true;
+    }
 
-        // Write the actual data
-        buf.writeBytes(dataBuffer);
+    /**
+     * Determines whether every block in this section is
+     * air.
+     *
+     * @return {@code true} if the section is empty
+     */
+    public boolean isEmpty() {
+        Storage storage = this.storage;
+        return storage.data == null && storage.palette[0] == 0;
+    }
 
-        if (dataBuffer != null) {
-            dataBuffer.release();
+    /**
+     * Obtains the data for a block contained in this chunk
+     * section with the given position.
+     *
+     * @param idx The position of the block
+     * @return A tuple consisting of substance and meta
+     */
+    public short dataAt(int idx) {
+        return this.storage.get(idx);
+    }
+
+    /**
+     * Writes the section data to the given byte stream.
+     *
+     * @param buf the buffer to write the section data
+     */
+    public void write(ByteBuf buf) {
+        buf.writeBytes(this.encoded());
+    }
+
+    /**
+     * Obtains the section data in the protocol format,
+     * encoding it only if the section has changed since it
+     * was last encoded.
+     *
+     * <p>The returned array is shared and must not be
+     * modified.</p>
+     *
+     * @return the encoded section data
+     */
+    public byte[] encoded() {
+        // The version is read before encoding, so a change
+        // made during encoding leaves the cache stale
+        // rather than marking an old payload as current
+        int version = this.version.get();
+        Encoded encoded = this.encoded;
+        if (encoded != null && encoded.version == version) {
+            ENCODE_HITS.increment();
+            return encoded.bytes;
+        }
+
+        ENCODE_MISSES.increment();
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            this.encode(buf);
+
+            byte[] bytes = new byte[buf.readableBytes()];
+            buf.readBytes(bytes);
+            this.encoded = new Encoded(version, bytes);
+            return bytes;
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Encodes the section data into the given buffer.
+     *
+     * @param buf the buffer to write the section data
+     */
+    private void encode(ByteBuf buf) {
+        Storage storage = this.storage;
+        if (storage.data == null) {
+            // The client does not accept fewer than 4 bits
+            // per block, so send a zeroed 4 bit array
+            // indexing the single palette entry
+            int dataLen = BLOCKS_PER_SECTION * 4 / 64;
+            buf.writeByte(4);
+            wvint(buf, 1);
+            wvint(buf, storage.palette[0]);
+            wvint(buf, dataLen);
+            buf.writeZero(dataLen << 3);
+        } else {
+            this.encodeData(storage, buf);
         }
 
         // Write block light
@@ -242,6 +671,60 @@ public class ChunkSection {
         }
     }
 
+    /**
+     * Encodes the bits per block, palette and data array
+     * of the given storage into the given buffer.
+     *
+     * @param storage the storage to encode
+     * @param buf the buffer to write the section data
+     */
+    private void encodeData(Storage storage, ByteBuf buf) {
+        int bitsPerBlock = storage.bits;
+        int dataLen = BLOCKS_PER_SECTION * bitsPerBlock / 64;
+
+        // Pack the data before reading the palette size so
+        // that every index written refers to an entry that
+        // has already been published
+        ByteBuf dataBuffer = buf.alloc().buffer(dataLen << 3);
+        try {
+            long cur = 0;
+            int bitsWritten = 0;
+            for (int i = 0; i < BLOCKS_PER_SECTION; i++) {
+                long value = storage.raw(i);
+                cur |= value << bitsWritten;
+                bitsWritten += bitsPerBlock;
+
+                if (bitsWritten >= 64) {
+                    dataBuffer.writeLong(cur);
+                    bitsWritten -= 64;
+                    cur = bitsWritten == 0 ? 0 : value >>> bitsPerBlock - bitsWritten;
+                }
+            }
+
+            // Write Bits per block
+            buf.writeByte(bitsPerBlock);
+
+            // Write the palette size and the palette
+            if (storage.palette != null) {
+                int paletteSize = storage.paletteSize;
+                wvint(buf, paletteSize);
+                for (int i = 0; i < paletteSize; i++) {
+                    wvint(buf, storage.palette[i]);
+                }
+            } else {
+                wvint(buf, 0);
+            }
+
+            // Write the section data length
+            wvint(buf, dataLen);
+
+            // Write the actual data
+            buf.writeBytes(dataBuffer);
+        } finally {
+            dataBuffer.release();
+        }
+    }
+
     /**
      * Loads block data from the NBT tag read at the chunk's
      * region file into this chunk section.
@@ -258,24 +741,47 @@ public class ChunkSection {
         this.skyLight.read(skyLight);
         this.blockLight.read(blockLight);
 
-        for (int y = 0; y < 16; y++) {
-            for (int z = 0; z < 16; z++) {
-                for (int x = 0; x < 16; x++) {
-                    int realIdx = y << 8 | z << 4 | x;
+        // Sections filled with a single state skip the
+        // palette and data array entirely
+        short first = stateAt(blocks, add, data, 0);
+        boolean uniform = true;
+        for (int i = 1; i < BLOCKS_PER_SECTION; i++) {
+            if (stateAt(blocks, add, data, i) != first) {
+                uniform = false;
+                break;
+            }
+        }
 
-                    int block = blocks[realIdx];
-                    byte blockData = NibbleArray.getNibble(data, realIdx);
-                    if (add != null) {
-                        int blockId = block + ((int) NibbleArray.getNibble(add, realIdx) << 8);
-                        short state = (short) (blockId << 4 | blockData);
-                        this.set(realIdx, state);
-                    } else {
-                        short state = (short) (block << 4 | blockData);
-                        this.set(realIdx, state);
-                    }
-                }
+        if (uniform) {
+            synchronized (this.lock) {
+                this.storage = Storage.single(first);
+            }
+        } else {
+            for (int i = 0; i < BLOCKS_PER_SECTION; i++) {
+                this.set(i, stateAt(blocks, add, data, i));
             }
         }
+
+        this.version.incrementAndGet();
+    }
+
+    /**
+     * Obtains the block state at the given index of the
+     * NBT block arrays.
+     *
+     * @param blocks the low 8 bits of the block IDs
+     * @param add the high 4 bits of the block IDs, or
+     * {@code null} if there are none
+     * @param data the block metadata
+     * @param idx the XYZ index
+     * @return the block state
+     */
+    private static short stateAt(byte[] blocks, byte[] add, byte[] data, int idx) {
+        int blockId = blocks[idx] & 0xFF;
+        if (add != null) {
+            blockId |= NibbleArray.getNibble(add, idx) << 8;
+        }
+        return (short) (blockId << 4 | NibbleArray.getNibble(data, idx));
     }
 
     /**
@@ -287,11 +793,31 @@ public class ChunkSection {
      */
     public void write(Tag.Compound section) {
         section.putByteArray("SkyLight", this.skyLight.write());
-        section.putByteArray("BlockLight", this.skyLight.write());
+        section.putByteArray("BlockLight", this.blockLight.write());
 
         byte[] blocks = new byte[4096];
         byte[] add = new byte[2048];
         byte[] data = new byte[2048];
+
+        Storage storage = this.storage;
+        if (storage.data == null) {
+            short state = storage.palette[0];
+            int blockId = state >> 4;
+            byte meta = (byte) (state & 0xF);
+
+            Arrays.fill(blocks, (byte) (blockId & 0xFF));
+            Arrays.fill(data, (byte) (meta << 4 | meta));
+            if (blockId > 255) {
+                byte addNibble = (byte) (blockId >> 8);
+                Arrays.fill(add, (byte) (addNibble << 4 | addNibble));
+            }
+
+            section.putByteArray("Blocks", blocks);
+            section.putByteArray("Add", add);
+            section.putByteArray("Data", data);
+            return;
+        }
+
         for (int y = 0; y < 16; y++) {
             for (int z = 0; z < 16; z++) {
                 for (int x = 0; x < 16; x++) {
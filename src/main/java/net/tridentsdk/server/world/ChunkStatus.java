@@ -0,0 +1,87 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import lombok.Getter;
+
+import javax.annotation.Nullable;
+
+/**
+ * The stages that a chunk goes through while it is
+ * generated, in order.
+ *
+ * <p>Some stages can only run once the 8 surrounding
+ * chunks have reached an earlier stage, so that they see
+ * the final blocks of their neighbors. Chunks on the edge
+ * of the loaded area may therefore be left at an earlier
+ * stage until a chunk next to them is needed.</p>
+ */
+public enum ChunkStatus {
+    /**
+     * Nothing has been generated
+     */
+    EMPTY(null),
+    /**
+     * The terrain generator has run
+     */
+    TERRAIN(null),
+    /**
+     * The feature generators have run
+     */
+    FEATURES(null),
+    /**
+     * The prop generators have run, once every neighbor has
+     * its features
+     */
+    PROPS(FEATURES),
+    /**
+     * The generated blocks have been copied to the chunk and
+     * lit, once every neighbor has its props
+     */
+    LIT(PROPS),
+    /**
+     * The chunk may be used and sent to players
+     */
+    READY(null);
+
+    /**
+     * Cached copy of the stages in order
+     */
+    private static final ChunkStatus[] VALUES = values();
+
+    /**
+     * The stage which the neighbors must have reached
+     * before this stage runs, or {@code null} if it does
+     * not depend on its neighbors
+     */
+    @Getter
+    @Nullable
+    private final ChunkStatus neighbors;
+
+    ChunkStatus(ChunkStatus neighbors) {
+        this.neighbors = neighbors;
+    }
+
+    /**
+     * Obtains the stage that follows this one.
+     *
+     * @return the next stage
+     */
+    public ChunkStatus next() {
+        return VALUES[this.ordinal() + 1];
+    }
+}
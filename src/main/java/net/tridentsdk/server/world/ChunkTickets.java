@@ -0,0 +1,411 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import lombok.Getter;
+import net.tridentsdk.server.TridentServer;
+import net.tridentsdk.server.config.ServerConfig;
+import net.tridentsdk.server.util.Long2ReferenceOpenHashMap;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Decides which chunks of a world stay loaded.
+ *
+ * <p>A chunk stays loaded while it is within the level of
+ * any ticket, where the level is the radius in chunks
+ * around the ticket's chunk. Once the last ticket covering
+ * a chunk is removed or expires, the chunk is scheduled to
+ * unload after the configured delay, so a player walking
+ * back and forth over a chunk border does not reload it
+ * every time. Scheduled chunks are unloaded in batches,
+ * bounded by a budget every tick.</p>
+ */
+@ThreadSafe
+public class ChunkTickets {
+    /**
+     * The reasons for which a chunk can be kept loaded.
+     */
+    public enum Type {
+        /**
+         * Held by a player who has been sent the chunk
+         */
+        PLAYER(0),
+        /**
+         * The area around the world spawn
+         */
+        SPAWN(0),
+        /**
+         * Requested by a plugin, expires after 5 minutes
+         * unless added again
+         */
+        PLUGIN(6000),
+        /**
+         * Kept loaded until explicitly removed
+         */
+        FORCED(0);
+
+        /**
+         * The ticks after which tickets of this type
+         * expire, or 0 if they do not
+         */
+        @Getter
+        private final int timeout;
+
+        Type(int timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    /**
+     * The world which chunks are retained for
+     */
+    private final TridentWorld world;
+
+    /**
+     * Lock protecting the tickets and unload schedule
+     */
+    private final Object lock = new Object();
+    /**
+     * The tickets, by the chunk which they are placed on
+     */
+    @GuardedBy("lock")
+    private final Long2ReferenceOpenHashMap<List<Ticket>> tickets = new Long2ReferenceOpenHashMap<>();
+    /**
+     * The tickets that have a timeout, earliest first
+     */
+    @GuardedBy("lock")
+    private final PriorityQueue<Ticket> expiring = new PriorityQueue<>((a, b) -> Long.compare(a.expiry, b.expiry));
+    /**
+     * The number of tickets covering each chunk, updated as
+     * tickets are added, changed and removed so that
+     * checking a chunk is a single lookup
+     */
+    @GuardedBy("lock")
+    private final Long2ReferenceOpenHashMap<int[]> coverage = new Long2ReferenceOpenHashMap<>();
+    /**
+     * The chunks waiting to be unloaded, in the order they
+     * were scheduled
+     */
+    @GuardedBy("lock")
+    private final ArrayDeque<Unload> unloads = new ArrayDeque<>();
+    /**
+     * The latest unload scheduled for each chunk, which
+     * supersedes any earlier one still in the queue
+     */
+    @GuardedBy("lock")
+    private final Long2ReferenceOpenHashMap<Unload> scheduled = new Long2ReferenceOpenHashMap<>();
+    /**
+     * The number of ticks run so far
+     */
+    @GuardedBy("lock")
+    private long ticks;
+
+    /**
+     * Creates a new ticket manager for the given world.
+     *
+     * @param world the world to retain chunks for
+     */
+    public ChunkTickets(TridentWorld world) {
+        this.world = world;
+    }
+
+    /**
+     * Obtains the map key for the given chunk coordinates.
+     */
+    private static long key(int x, int z) {
+        return (long) x << 32 | z & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Adds a ticket keeping the chunks within the given
+     * level of a chunk loaded. Adding a ticket with the
+     * same type, chunk and owner as an existing one renews
+     * that ticket instead.
+     *
+     * <p>This does not load the chunks.</p>
+     *
+     * @param type the ticket type
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     * @param level the radius of chunks to keep loaded
+     * @param owner the holder of the ticket, used to remove
+     * it later
+     */
+    public void add(Type type, int x, int z, int level, Object owner) {
+        long key = key(x, z);
+        synchronized (this.lock) {
+            List<Ticket> list = this.tickets.get(key);
+            if (list == null) {
+                list = new ArrayList<>(1);
+                this.tickets.put(key, list);
+            }
+
+            Ticket ticket = null;
+            for (Ticket t : list) {
+                if (t.type == type && t.owner == owner) {
+                    ticket = t;
+                    break;
+                }
+            }
+
+            if (ticket == null) {
+                ticket = new Ticket(type, x, z, level, owner);
+                list.add(ticket);
+                this.cover(ticket, 1);
+            } else {
+                this.expiring.remove(ticket);
+                if (ticket.level != level) {
+                    this.cover(ticket, -1);
+                    if (ticket.level > level) {
+                        this.scheduleArea(ticket);
+                    }
+                    ticket.level = level;
+                    this.cover(ticket, 1);
+                }
+            }
+
+            if (type.timeout > 0) {
+                ticket.expiry = this.ticks + type.timeout;
+                this.expiring.add(ticket);
+            }
+        }
+    }
+
+    /**
+     * Removes the ticket with the given type and owner from
+     * a chunk, scheduling the chunks it covered to unload if
+     * nothing else retains them.
+     *
+     * @param type the ticket type
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     * @param owner the holder of the ticket
+     */
+    public void remove(Type type, int x, int z, Object owner) {
+        long key = key(x, z);
+        synchronized (this.lock) {
+            List<Ticket> list = this.tickets.get(key);
+            if (list == null) {
+                return;
+            }
+
+            for (int i = 0; i < list.size(); i++) {
+                Ticket ticket = list.get(i);
+                if (ticket.type == type && ticket.owner == owner) {
+                    this.removeTicket(ticket, list, key);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines whether any ticket keeps the given chunk
+     * loaded.
+     *
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     * @return {@code true} if the chunk is retained
+     */
+    public boolean isRetained(int x, int z) {
+        synchronized (this.lock) {
+            return this.covered(x, z);
+        }
+    }
+
+    /**
+     * Schedules a chunk that has just loaded to unload if
+     * no ticket is placed on it before the delay runs out.
+     *
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     */
+    public void loaded(int x, int z) {
+        synchronized (this.lock) {
+            this.schedule(x, z);
+        }
+    }
+
+    /**
+     * Expires timed out tickets and unloads the chunks that
+     * are due, up to the configured budget.
+     */
+    public void tick() {
+        ServerConfig cfg = TridentServer.cfg();
+        int budget = cfg == null ? ServerConfig.DEFAULT_CHUNK_UNLOAD_BUDGET : cfg.chunkUnloadBudget();
+
+        List<TridentChunk> unload = new ArrayList<>();
+        synchronized (this.lock) {
+            long now = ++this.ticks;
+
+            Ticket ticket;
+            while ((ticket = this.expiring.peek()) != null && ticket.expiry <= now) {
+                this.expiring.poll();
+                long key = key(ticket.x, ticket.z);
+                List<Ticket> list = this.tickets.get(key);
+                if (list != null) {
+                    this.removeTicket(ticket, list, key);
+                }
+            }
+
+            Unload next;
+            while (unload.size() < budget && (next = this.unloads.peek()) != null && next.time <= now) {
+                this.unloads.poll();
+                long key = key(next.x, next.z);
+                if (this.scheduled.get(key) != next) {
+                    continue;
+                }
+
+                this.scheduled.remove(key);
+                if (!this.covered(next.x, next.z)) {
+                    TridentChunk chunk = this.world.getChunks().getLoaded(next.x, next.z);
+                    if (chunk != null) {
+                        unload.add(chunk);
+                    }
+                }
+            }
+        }
+
+        for (TridentChunk chunk : unload) {
+            if (!chunk.unload()) {
+                // Still in use or generating, try again after
+                // another delay
+                this.loaded(chunk.getX(), chunk.getZ());
+            }
+        }
+    }
+
+    /**
+     * Removes a ticket from the list of its chunk.
+     */
+    @GuardedBy("lock")
+    private void removeTicket(Ticket ticket, List<Ticket> list, long key) {
+        if (!list.remove(ticket)) {
+            return;
+        }
+
+        if (list.isEmpty()) {
+            this.tickets.remove(key);
+        }
+
+        this.expiring.remove(ticket);
+        this.cover(ticket, -1);
+        this.scheduleArea(ticket);
+    }
+
+    /**
+     * Adds the given amount to the coverage count of every
+     * chunk within the level of the given ticket.
+     */
+    @GuardedBy("lock")
+    private void cover(Ticket ticket, int delta) {
+        for (int x = ticket.x - ticket.level; x <= ticket.x + ticket.level; x++) {
+            for (int z = ticket.z - ticket.level; z <= ticket.z + ticket.level; z++) {
+                long key = key(x, z);
+                int[] count = this.coverage.get(key);
+                if (count == null) {
+                    count = new int[1];
+                    this.coverage.put(key, count);
+                }
+
+                count[0] += delta;
+                if (count[0] <= 0) {
+                    this.coverage.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Schedules every chunk that the given ticket covered
+     * to be checked for unloading.
+     */
+    @GuardedBy("lock")
+    private void scheduleArea(Ticket ticket) {
+        for (int x = ticket.x - ticket.level; x <= ticket.x + ticket.level; x++) {
+            for (int z = ticket.z - ticket.level; z <= ticket.z + ticket.level; z++) {
+                this.schedule(x, z);
+            }
+        }
+    }
+
+    /**
+     * Schedules the given chunk to be checked for unloading
+     * once the unload delay has passed.
+     */
+    @GuardedBy("lock")
+    private void schedule(int x, int z) {
+        ServerConfig cfg = TridentServer.cfg();
+        int delay = cfg == null ? ServerConfig.DEFAULT_CHUNK_UNLOAD_DELAY : cfg.chunkUnloadDelay();
+
+        Unload unload = new Unload(x, z, this.ticks + delay);
+        this.scheduled.put(key(x, z), unload);
+        this.unloads.add(unload);
+    }
+
+    /**
+     * Checks whether a ticket covers the given chunk.
+     */
+    @GuardedBy("lock")
+    private boolean covered(int x, int z) {
+        return this.coverage.get(key(x, z)) != null;
+    }
+
+    /**
+     * A reason for keeping the chunks around a chunk
+     * loaded.
+     */
+    private static final class Ticket {
+        private final Type type;
+        private final int x;
+        private final int z;
+        private final Object owner;
+        @GuardedBy("ChunkTickets.lock")
+        private int level;
+        @GuardedBy("ChunkTickets.lock")
+        private long expiry;
+
+        Ticket(Type type, int x, int z, int level, Object owner) {
+            this.type = type;
+            this.x = x;
+            this.z = z;
+            this.level = level;
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * A chunk scheduled to be checked for unloading.
+     */
+    private static final class Unload {
+        private final int x;
+        private final int z;
+        private final long time;
+
+        Unload(int x, int z, long time) {
+            this.x = x;
+            this.z = z;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import lombok.Getter;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A copy of the block states in a cuboid region of a
+ * world, which can be pasted elsewhere using a
+ * {@link BulkEdit}.
+ */
+@NotThreadSafe
+public class Clipboard {
+    /**
+     * The size along the X axis
+     */
+    @Getter
+    private final int width;
+    /**
+     * The size along the Y axis
+     */
+    @Getter
+    private final int height;
+    /**
+     * The size along the Z axis
+     */
+    @Getter
+    private final int length;
+    /**
+     * The block states, indexed by Y, then Z, then X
+     */
+    private final short[] states;
+
+    /**
+     * Creates a new clipboard filled with air.
+     *
+     * @param width the size along the X axis
+     * @param height the size along the Y axis
+     * @param length the size along the Z axis
+     */
+    public Clipboard(int width, int height, int length) {
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.states = new short[width * height * length];
+    }
+
+    /**
+     * Copies the blocks in the cuboid region with its
+     * lowest corner at the given position.
+     *
+     * @param world the world to copy from
+     * @param x the x coordinate of the lowest corner
+     * @param y the y coordinate of the lowest corner
+     * @param z the z coordinate of the lowest corner
+     * @param width the size along the X axis
+     * @param height the size along the Y axis
+     * @param length the size along the Z axis
+     * @return the copied blocks
+     */
+    public static Clipboard copy(TridentWorld world, int x, int y, int z, int width, int height, int length) {
+        Clipboard clipboard = new Clipboard(width, height, length);
+
+        TridentChunk chunk = null;
+        for (int dZ = 0; dZ < length; dZ++) {
+            for (int dX = 0; dX < width; dX++) {
+                int bX = x + dX;
+                int bZ = z + dZ;
+                if (chunk == null || chunk.getX() != bX >> 4 || chunk.getZ() != bZ >> 4) {
+                    chunk = world.getChunkAt(bX >> 4, bZ >> 4);
+                }
+
+                for (int dY = 0; dY < height; dY++) {
+                    int bY = y + dY;
+                    if (bY >= 0 && bY <= 255) {
+                        clipboard.set(dX, dY, dZ, chunk.get(bX & 15, bY, bZ & 15));
+                    }
+                }
+            }
+        }
+
+        return clipboard;
+    }
+
+    /**
+     * Obtains the block state at the given offset.
+     *
+     * @param x the x offset
+     * @param y the y offset
+     * @param z the z offset
+     * @return the block state
+     */
+    public short get(int x, int y, int z) {
+        return this.states[(y * this.length + z) * this.width + x];
+    }
+
+    /**
+     * Sets the block state at the given offset.
+     *
+     * @param x the x offset
+     * @param y the y offset
+     * @param z the z offset
+     * @param state the block state
+     */
+    public void set(int x, int y, int z, short state) {
+        this.states[(y * this.length + z) * this.width + x] = state;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Tracks the highest non-air block of each column in a
+ * chunk.
+ *
+ * <p>Each of the 256 columns has a 256 bit mask of the Y
+ * values holding a block, split across 4 longs. Placing or
+ * breaking a block flips a single bit and the highest
+ * block is found from the leading zeros of at most 4
+ * words, so neither needs to scan down the column.</p>
+ */
+@ThreadSafe
+public class HeightMap {
+    /**
+     * The number of longs used for each column
+     */
+    private static final int WORDS_PER_COLUMN = 4;
+
+    /**
+     * The occupancy masks, indexed by column
+     * ({@code x << 4 | z}) then by Y / 64
+     */
+    private final AtomicLongArray occupancy = new AtomicLongArray(256 * WORDS_PER_COLUMN);
+
+    /**
+     * Obtains the index of the word holding the given
+     * position.
+     */
+    private static int word(int x, int y, int z) {
+        return (x << 4 | z & 0xF) << 2 | y >> 6;
+    }
+
+    /**
+     * Marks whether the block at the given position holds
+     * a block.
+     *
+     * @param x the relative x coordinate
+     * @param y the y coordinate
+     * @param z the relative z coordinate
+     * @param occupied {@code true} if the block is not
+     * air
+     */
+    public void update(int x, int y, int z, boolean occupied) {
+        int word = word(x, y, z);
+        long bit = 1L << (y & 63);
+
+        long old;
+        long mask;
+        do {
+            old = this.occupancy.get(word);
+            mask = occupied ? old | bit : old & ~bit;
+            if (mask == old) {
+                return;
+            }
+        } while (!this.occupancy.compareAndSet(word, old, mask));
+    }
+
+    /**
+     * Obtains the Y value of the highest block in the given
+     * column.
+     *
+     * @param x the relative x coordinate
+     * @param z the relative z coordinate
+     * @return the highest block, or -1 if the column is
+     * empty, so that it is not mistaken for a column with
+     * only a block at Y 0
+     */
+    public int get(int x, int z) {
+        int base = (x << 4 | z & 0xF) << 2;
+        for (int i = WORDS_PER_COLUMN - 1; i >= 0; i--) {
+            long mask = this.occupancy.get(base + i);
+            if (mask != 0) {
+                return i << 6 | 63 - Long.numberOfLeadingZeros(mask);
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Copies the occupancy of every column into the given
+     * height map.
+     *
+     * @param map the height map to copy to
+     */
+    public void copyTo(HeightMap map) {
+        for (int i = 0; i < this.occupancy.length(); i++) {
+            map.occupancy.set(i, this.occupancy.get(i));
+        }
+    }
+
+    /**
+     * Rebuilds every column from the given sections, used
+     * after loading a chunk.
+     *
+     * @param sections the sections of the chunk
+     */
+    public void rebuild(AtomicReferenceArray<ChunkSection> sections) {
+        long[] masks = new long[this.occupancy.length()];
+        for (int i = 0; i < sections.length(); i++) {
+            ChunkSection section = sections.get(i);
+            if (section == null || section.isEmpty()) {
+                continue;
+            }
+
+            int shift = (i & 3) << 4;
+            int wordOffset = i >> 2;
+            for (int idx = 0; idx < 4096; idx++) {
+                if (section.dataAt(idx) >> 4 != 0) {
+                    int x = idx & 15;
+                    int z = idx >> 4 & 15;
+                    int y = idx >> 8;
+                    masks[(x << 4 | z) << 2 | wordOffset] |= 1L << (shift + y);
+                }
+            }
+        }
+
+        for (int i = 0; i < masks.length; i++) {
+            this.occupancy.set(i, masks[i]);
+        }
+    }
+}
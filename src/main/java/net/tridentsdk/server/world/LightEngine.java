@@ -0,0 +1,816 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import net.tridentsdk.server.concurrent.PoolSpec;
+import net.tridentsdk.server.concurrent.ServerThreadPool;
+import net.tridentsdk.world.opt.Dimension;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Propagates block light and sky light through the blocks
+ * of a world.
+ *
+ * <p>Block changes which affect light are queued by the
+ * chunk and relit together once per tick using a
+ * breadth-first flood fill. Light removal runs first,
+ * clearing every block which depended on the changed
+ * position and collecting the brighter blocks on the edge
+ * of the cleared area, which are then spread back in along
+ * with any new light sources.</p>
+ *
+ * <p>Newly generated chunks are lit on their own before
+ * they are ready, spreading sky light sideways under
+ * overhangs and block light from emitters within the
+ * chunk. Once a chunk is ready, light is exchanged across
+ * its borders with the neighbors that are ready, in both
+ * directions, so that chunks which become ready in any
+ * order end up lit as if generated together.</p>
+ *
+ * <p>Only one batch is processed at a time. Changes made
+ * while a batch is being relit are picked up on a later
+ * tick.</p>
+ */
+@ThreadSafe
+public class LightEngine {
+    /**
+     * The thread pool used to relight changed blocks
+     */
+    private static final ServerThreadPool POOL = ServerThreadPool.forSpec(PoolSpec.CHUNKS);
+    /**
+     * The amount of light absorbed by each block ID
+     */
+    private static final byte[] OPACITY = new byte[4096];
+    /**
+     * The amount of light emitted by each block ID
+     */
+    private static final byte[] EMISSION = new byte[4096];
+
+    /**
+     * Offsets to the 6 neighbors of a block
+     */
+    private static final int[] DX = { 1, -1, 0, 0, 0, 0 };
+    private static final int[] DY = { 0, 0, 1, -1, 0, 0 };
+    private static final int[] DZ = { 0, 0, 0, 0, 1, -1 };
+    /**
+     * The index of the neighbor below a block
+     */
+    private static final int DOWN = 3;
+    /**
+     * The indexes of the neighbors beside a block
+     */
+    private static final int[] HORIZONTAL = { 0, 1, 4, 5 };
+
+    static {
+        Arrays.fill(OPACITY, (byte) 15);
+
+        // Blocks which let all light through
+        opacity(0, 0, 6, 20, 26, 27, 28, 30, 31, 32, 37, 38, 39, 40, 50, 51, 55, 59, 63, 64, 65, 66, 68,
+                69, 70, 71, 72, 75, 76, 77, 78, 83, 85, 90, 92, 93, 94, 95, 96, 101, 102, 104, 105, 106,
+                107, 111, 113, 115, 117, 119, 122, 131, 132, 139, 140, 141, 142, 143, 144, 147, 148, 149,
+                150, 154, 157, 160, 166, 167, 171, 175, 176, 177, 183, 184, 185, 186, 187, 188, 189, 190,
+                191, 192, 193, 194, 195, 196, 197, 198, 199, 200, 207, 209);
+        // Blocks which dim light
+        opacity(1, 18, 161);
+        opacity(3, 8, 9, 79, 212);
+
+        emission(15, 10, 11, 51, 89, 91, 119, 124, 138, 169);
+        emission(14, 50, 198);
+        emission(13, 62);
+        emission(11, 90);
+        emission(9, 74, 94, 150);
+        emission(7, 76);
+        emission(3, 213);
+        emission(1, 39, 117, 120, 122);
+    }
+
+    /**
+     * The world whose blocks are relit
+     */
+    private final TridentWorld world;
+    /**
+     * Whether or not sky light is propagated in the world
+     */
+    private final boolean doSkylight;
+
+    /**
+     * The lock guarding the pending changes
+     */
+    private final Object lock = new Object();
+    /**
+     * Positions of blocks changed since the last batch
+     */
+    @GuardedBy("lock")
+    private long[] pending = new long[64];
+    /**
+     * The number of pending positions
+     */
+    @GuardedBy("lock")
+    private int pendingSize;
+    /**
+     * Coordinates of chunks which became ready since the
+     * last batch, packed as {@code x << 32 | z}
+     */
+    @GuardedBy("lock")
+    private long[] ready = new long[16];
+    /**
+     * The number of chunks which became ready
+     */
+    @GuardedBy("lock")
+    private int readySize;
+    /**
+     * Held while a batch is being relit, guards the fields
+     * below
+     */
+    private final Semaphore running = new Semaphore(1);
+
+    /**
+     * Positions to spread light from
+     */
+    private final LongQueue increase = new LongQueue();
+    /**
+     * Positions to remove light from
+     */
+    private final LongQueue decrease = new LongQueue();
+    /**
+     * The last chunk looked up, most neighbors are in the
+     * same chunk
+     */
+    private TridentChunk cachedChunk;
+
+    /**
+     * Creates a new light engine for the given world.
+     *
+     * @param world the world to relight
+     */
+    public LightEngine(TridentWorld world) {
+        this.world = world;
+        this.doSkylight = world.getDimension() == Dimension.OVERWORLD;
+    }
+
+    private static void opacity(int opacity, int... ids) {
+        for (int id : ids) {
+            OPACITY[id] = (byte) opacity;
+        }
+    }
+
+    private static void emission(int emission, int... ids) {
+        for (int id : ids) {
+            EMISSION[id] = (byte) emission;
+        }
+    }
+
+    /**
+     * Obtains the amount of light absorbed by the given
+     * block state.
+     *
+     * @param state the block state
+     * @return the light opacity, 0-15
+     */
+    public static int opacity(short state) {
+        return OPACITY[state >> 4 & 0xFFF];
+    }
+
+    /**
+     * Obtains the amount of light emitted by the given
+     * block state.
+     *
+     * @param state the block state
+     * @return the light emission, 0-15
+     */
+    public static int emission(short state) {
+        return EMISSION[state >> 4 & 0xFFF];
+    }
+
+    /**
+     * Determines whether replacing the given block state
+     * with another requires the block to be relit.
+     *
+     * @param from the old block state
+     * @param to the new block state
+     * @return {@code true} if the light may change
+     */
+    public static boolean affectsLight(short from, short to) {
+        int fromId = from >> 4 & 0xFFF;
+        int toId = to >> 4 & 0xFFF;
+        return OPACITY[fromId] != OPACITY[toId] || EMISSION[fromId] != EMISSION[toId];
+    }
+
+    /**
+     * Packs the given position and light level into a
+     * queue entry.
+     */
+    private static long pack(int x, int y, int z, int level) {
+        return (x & 0x3FFFFFFL) << 38 | (z & 0x3FFFFFFL) << 12 | (y & 0xFF) << 4 | level;
+    }
+
+    private static int unpackX(long entry) {
+        return (int) (entry >> 38);
+    }
+
+    private static int unpackY(long entry) {
+        return (int) (entry >>> 4 & 0xFF);
+    }
+
+    private static int unpackZ(long entry) {
+        return (int) (entry << 26 >> 38);
+    }
+
+    private static int unpackLevel(long entry) {
+        return (int) (entry & 0xF);
+    }
+
+    /**
+     * Queues the block at the given world coordinates to
+     * be relit on the next tick.
+     *
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     */
+    public void enqueue(int x, int y, int z) {
+        long pos = pack(x, y, z, 0);
+        synchronized (this.lock) {
+            if (this.pendingSize == this.pending.length) {
+                this.pending = Arrays.copyOf(this.pending, this.pendingSize << 1);
+            }
+
+            this.pending[this.pendingSize++] = pos;
+        }
+    }
+
+    /**
+     * Queues the blocks in the given change records to be
+     * relit on the next tick.
+     *
+     * @param chunk the chunk containing the changes
+     * @param records the change records, created using
+     * {@link TridentChunk#record(int, int, int, short)}
+     * @param count the number of records
+     */
+    public void enqueue(TridentChunk chunk, int[] records, int count) {
+        int baseX = chunk.getX() << 4;
+        int baseZ = chunk.getZ() << 4;
+        synchronized (this.lock) {
+            int size = this.pendingSize + count;
+            if (size > this.pending.length) {
+                this.pending = Arrays.copyOf(this.pending, Math.max(size, this.pending.length << 1));
+            }
+
+            for (int i = 0; i < count; i++) {
+                int record = records[i];
+                this.pending[this.pendingSize++] = pack(baseX | record >>> 28, record >>> 16 & 0xFF,
+                        baseZ | record >>> 24 & 0xF, 0);
+            }
+        }
+    }
+
+    /**
+     * Queues light to be exchanged between the given chunk
+     * and its neighbors, called once the chunk is ready.
+     *
+     * @param chunk the chunk which became ready
+     */
+    public void chunkReady(TridentChunk chunk) {
+        long key = (long) chunk.getX() << 32 | chunk.getZ() & 0xFFFFFFFFL;
+        synchronized (this.lock) {
+            if (this.readySize == this.ready.length) {
+                this.ready = Arrays.copyOf(this.ready, this.readySize << 1);
+            }
+
+            this.ready[this.readySize++] = key;
+        }
+    }
+
+    /**
+     * Schedules the blocks changed since the last tick to
+     * be relit, if they are not already being processed.
+     */
+    public void tick() {
+        synchronized (this.lock) {
+            if (this.pendingSize == 0 && this.readySize == 0) {
+                return;
+            }
+        }
+
+        if (this.running.tryAcquire()) {
+            POOL.execute(this::drain);
+        }
+    }
+
+    /**
+     * Relights all pending changes on the calling thread,
+     * waiting for any batch already in progress.
+     */
+    public void update() {
+        this.running.acquireUninterruptibly();
+        this.drain();
+    }
+
+    /**
+     * Relights the pending changes, then releases the
+     * running permit.
+     */
+    private void drain() {
+        try {
+            long[] batch;
+            int size;
+            long[] ready;
+            int readySize;
+            synchronized (this.lock) {
+                batch = this.pending;
+                size = this.pendingSize;
+                this.pending = new long[64];
+                this.pendingSize = 0;
+
+                ready = this.ready;
+                readySize = this.readySize;
+                this.ready = new long[16];
+                this.readySize = 0;
+            }
+
+            this.cachedChunk = null;
+            this.relight(batch, size, false);
+            this.joinBorders(ready, readySize, false);
+            if (this.doSkylight) {
+                this.relight(batch, size, true);
+                this.joinBorders(ready, readySize, true);
+            }
+            this.cachedChunk = null;
+        } finally {
+            this.running.release();
+        }
+    }
+
+    /**
+     * Lets light flow both ways across the borders between
+     * the given chunks and their ready neighbors.
+     *
+     * @param ready the coordinates of the chunks which
+     * became ready
+     * @param size the number of chunks
+     * @param sky {@code true} to exchange sky light,
+     * {@code false} for block light
+     */
+    private void joinBorders(long[] ready, int size, boolean sky) {
+        for (int i = 0; i < size; i++) {
+            TridentChunk chunk = this.chunk((int) (ready[i] >> 32), (int) ready[i]);
+            if (chunk == null) {
+                continue;
+            }
+
+            for (int d : HORIZONTAL) {
+                TridentChunk neighbor = this.chunk(chunk.getX() + DX[d], chunk.getZ() + DZ[d]);
+                if (neighbor == null) {
+                    continue;
+                }
+
+                int maxY = (Math.max(topSection(chunk), topSection(neighbor)) << 4) + 15;
+                for (int along = 0; along < 16; along++) {
+                    // The block on this chunk's edge and the one
+                    // facing it across the border
+                    int x = (chunk.getX() << 4) + (DX[d] == 0 ? along : DX[d] > 0 ? 15 : 0);
+                    int z = (chunk.getZ() << 4) + (DZ[d] == 0 ? along : DZ[d] > 0 ? 15 : 0);
+                    int nx = x + DX[d];
+                    int nz = z + DZ[d];
+
+                    for (int y = 0; y <= maxY; y++) {
+                        int level = this.light(sky, chunk, x, y, z);
+                        int nLevel = this.light(sky, neighbor, nx, y, nz);
+                        if (level > nLevel + 1) {
+                            this.increase.add(pack(x, y, z, level));
+                        } else if (nLevel > level + 1) {
+                            this.increase.add(pack(nx, y, nz, nLevel));
+                        }
+                    }
+                }
+            }
+        }
+
+        this.propagateIncrease(this.increase, sky, null);
+    }
+
+    /**
+     * Obtains the index of the highest section of the given
+     * chunk, or {@code -1} if it has none.
+     */
+    private static int topSection(TridentChunk chunk) {
+        int top = 15;
+        while (top >= 0 && chunk.getSection(top) == null) {
+            top--;
+        }
+        return top;
+    }
+
+    /**
+     * Relights the given changed positions for a single
+     * kind of light.
+     *
+     * @param batch the changed positions
+     * @param size the number of positions
+     * @param sky {@code true} to relight sky light,
+     * {@code false} for block light
+     */
+    private void relight(long[] batch, int size, boolean sky) {
+        for (int i = 0; i < size; i++) {
+            long pos = batch[i];
+            int x = unpackX(pos);
+            int y = unpackY(pos);
+            int z = unpackZ(pos);
+
+            TridentChunk chunk = this.chunk(x >> 4, z >> 4);
+            if (chunk == null) {
+                continue;
+            }
+
+            short state = chunk.get(x & 15, y, z & 15);
+            int old = this.light(sky, chunk, x, y, z);
+            if (old > 0) {
+                this.setLight(sky, chunk, x, y, z, 0);
+                this.decrease.add(pack(x, y, z, old));
+            }
+
+            int source = sky ? (y == 255 && opacity(state) == 0 ? 15 : 0) : emission(state);
+            if (source > 0) {
+                this.setLight(sky, chunk, x, y, z, source);
+                this.increase.add(pack(x, y, z, source));
+            }
+
+            // Let light from the neighbors flow in, the
+            // entries of neighbors which end up cleared
+            // are skipped
+            if (opacity(state) < 15) {
+                for (int d = 0; d < 6; d++) {
+                    int ny = y + DY[d];
+                    if (ny < 0 || ny > 255) {
+                        continue;
+                    }
+
+                    int nx = x + DX[d];
+                    int nz = z + DZ[d];
+                    TridentChunk nChunk = this.chunk(nx >> 4, nz >> 4);
+                    if (nChunk == null) {
+                        continue;
+                    }
+
+                    int level = this.light(sky, nChunk, nx, ny, nz);
+                    if (level > 0) {
+                        this.increase.add(pack(nx, ny, nz, level));
+                    }
+                }
+            }
+        }
+
+        this.propagateDecrease(sky);
+        this.propagateIncrease(this.increase, sky, null);
+    }
+
+    /**
+     * Clears light which depended on the positions in the
+     * decrease queue.
+     *
+     * @param sky whether sky light is being propagated
+     */
+    private void propagateDecrease(boolean sky) {
+        LongQueue queue = this.decrease;
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int level = unpackLevel(entry);
+            int x = unpackX(entry);
+            int y = unpackY(entry);
+            int z = unpackZ(entry);
+
+            for (int d = 0; d < 6; d++) {
+                int ny = y + DY[d];
+                if (ny < 0 || ny > 255) {
+                    continue;
+                }
+
+                int nx = x + DX[d];
+                int nz = z + DZ[d];
+                TridentChunk chunk = this.chunk(nx >> 4, nz >> 4);
+                if (chunk == null) {
+                    continue;
+                }
+
+                int nLevel = this.light(sky, chunk, nx, ny, nz);
+                if (nLevel == 0) {
+                    continue;
+                }
+
+                // Full sky light travels straight down
+                // without dimming, so it depends on the
+                // block above even though it is as bright
+                boolean dependent = nLevel < level || sky && d == DOWN && level == 15 && nLevel == 15;
+                if (dependent) {
+                    this.setLight(sky, chunk, nx, ny, nz, 0);
+                    queue.add(pack(nx, ny, nz, nLevel));
+
+                    if (!sky) {
+                        int emission = emission(chunk.get(nx & 15, ny, nz & 15));
+                        if (emission > 0) {
+                            this.setLight(false, chunk, nx, ny, nz, emission);
+                            this.increase.add(pack(nx, ny, nz, emission));
+                        }
+                    }
+                } else {
+                    this.increase.add(pack(nx, ny, nz, nLevel));
+                }
+            }
+        }
+    }
+
+    /**
+     * Spreads light from the positions in the given queue.
+     *
+     * @param queue the positions to spread light from
+     * @param sky whether sky light is being propagated
+     * @param only the chunk to keep the light within, or
+     * {@code null} to spread into every ready chunk
+     */
+    private void propagateIncrease(LongQueue queue, boolean sky, TridentChunk only) {
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int level = unpackLevel(entry);
+            int x = unpackX(entry);
+            int y = unpackY(entry);
+            int z = unpackZ(entry);
+
+            TridentChunk chunk = this.chunk(only, x >> 4, z >> 4);
+            if (chunk == null || this.light(sky, chunk, x, y, z) != level) {
+                // Cleared or overwritten since queued
+                continue;
+            }
+
+            for (int d = 0; d < 6; d++) {
+                int ny = y + DY[d];
+                if (ny < 0 || ny > 255) {
+                    continue;
+                }
+
+                int nx = x + DX[d];
+                int nz = z + DZ[d];
+                TridentChunk nChunk = this.chunk(only, nx >> 4, nz >> 4);
+                if (nChunk == null) {
+                    continue;
+                }
+
+                int opacity = opacity(nChunk.get(nx & 15, ny, nz & 15));
+                int nLevel = sky && d == DOWN && level == 15 && opacity == 0 ? 15 : level - Math.max(1, opacity);
+                if (nLevel > 0 && this.light(sky, nChunk, nx, ny, nz) < nLevel) {
+                    this.setLight(sky, nChunk, nx, ny, nz, nLevel);
+                    queue.add(pack(nx, ny, nz, nLevel));
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets up the light for a newly generated chunk.
+     *
+     * <p>Sky light is filled down each column, then spread
+     * sideways from the lit columns into the shaded blocks
+     * next to them, such as under overhangs and into cave
+     * mouths. Block light is spread from every emitter. Light
+     * is kept within the chunk, and flows across its borders
+     * once it is ready.</p>
+     *
+     * <p>This runs on the thread generating the chunk and
+     * does not use the shared queues of the engine.</p>
+     *
+     * @param chunk the chunk that was generated
+     */
+    public void initChunk(TridentChunk chunk) {
+        int top = topSection(chunk);
+        int baseX = chunk.getX() << 4;
+        int baseZ = chunk.getZ() << 4;
+        LongQueue queue = new LongQueue();
+
+        if (this.doSkylight) {
+            for (int x = 0; x < 16; x++) {
+                for (int z = 0; z < 16; z++) {
+                    int level = 15;
+                    for (int y = (top << 4) + 15; y >= 0; y--) {
+                        ChunkSection section = chunk.getSection(y >> 4);
+                        if (section == null) {
+                            continue;
+                        }
+
+                        int idx = (y & 15) << 8 | z << 4 | x;
+                        int opacity = opacity(section.dataAt(idx));
+                        if (opacity > 0) {
+                            level = Math.max(0, level - opacity);
+                        }
+
+                        section.setSkyLight(idx, (byte) level);
+                    }
+                }
+            }
+
+            // Seed the blocks which are brighter than one of
+            // their horizontal neighbors can be lit from them
+            for (int x = 0; x < 16; x++) {
+                for (int z = 0; z < 16; z++) {
+                    int maxY = Math.min((top << 4) + 15, this.highestAround(chunk, x, z));
+                    for (int y = 0; y <= maxY; y++) {
+                        int level = this.light(true, chunk, baseX | x, y, baseZ | z);
+                        if (level > 1 && this.shadesNeighbor(chunk, baseX | x, y, baseZ | z, level)) {
+                            queue.add(pack(baseX | x, y, baseZ | z, level));
+                        }
+                    }
+                }
+            }
+            this.propagateIncrease(queue, true, chunk);
+        }
+
+        for (int i = 0; i <= top; i++) {
+            ChunkSection section = chunk.getSection(i);
+            if (section == null || !section.mayContain(state -> EMISSION[state >> 4 & 0xFFF] > 0)) {
+                continue;
+            }
+
+            for (int idx = 0; idx < 4096; idx++) {
+                int emission = emission(section.dataAt(idx));
+                if (emission > 0) {
+                    int x = baseX | idx & 15;
+                    int y = i << 4 | idx >> 8;
+                    int z = baseZ | idx >> 4 & 15;
+                    if (this.light(false, chunk, x, y, z) < emission) {
+                        this.setLight(false, chunk, x, y, z, emission);
+                        queue.add(pack(x, y, z, emission));
+                    }
+                }
+            }
+        }
+        this.propagateIncrease(queue, false, chunk);
+    }
+
+    /**
+     * Obtains the highest block of the given column and the
+     * columns next to it within the chunk, above which
+     * every block has full sky light.
+     */
+    private int highestAround(TridentChunk chunk, int x, int z) {
+        int max = chunk.getHighestY(x, z);
+        for (int d : HORIZONTAL) {
+            int nx = x + DX[d];
+            int nz = z + DZ[d];
+            if (nx >= 0 && nx < 16 && nz >= 0 && nz < 16) {
+                max = Math.max(max, chunk.getHighestY(nx, nz));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Determines whether a horizontal neighbor within the
+     * chunk of the given block lets light through and is
+     * darker than the block can light it.
+     */
+    private boolean shadesNeighbor(TridentChunk chunk, int x, int y, int z, int level) {
+        for (int d : HORIZONTAL) {
+            int nx = x + DX[d];
+            int nz = z + DZ[d];
+            if (nx >> 4 != chunk.getX() || nz >> 4 != chunk.getZ()) {
+                continue;
+            }
+
+            if (opacity(chunk.get(nx & 15, y, nz & 15)) < 15 && this.light(true, chunk, nx, y, nz) < level - 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Obtains a loaded chunk, or {@code null} if it is not
+     * loaded or still generating.
+     */
+    private TridentChunk chunk(int cx, int cz) {
+        TridentChunk chunk = this.cachedChunk;
+        if (chunk != null && chunk.getX() == cx && chunk.getZ() == cz) {
+            return chunk;
+        }
+
+        chunk = this.world.getChunks().getIfReady(cx, cz);
+        if (chunk != null) {
+            this.cachedChunk = chunk;
+        }
+
+        return chunk;
+    }
+
+    /**
+     * Obtains the chunk at the given coordinates if it is
+     * the given chunk, or any ready chunk if none is given.
+     */
+    private TridentChunk chunk(TridentChunk only, int cx, int cz) {
+        if (only == null) {
+            return this.chunk(cx, cz);
+        }
+
+        return only.getX() == cx && only.getZ() == cz ? only : null;
+    }
+
+    /**
+     * Obtains the light level at the given position.
+     *
+     * <p>Blocks in missing sections are air, which are lit
+     * by the sky only above the highest block.</p>
+     */
+    private int light(boolean sky, TridentChunk chunk, int x, int y, int z) {
+        int rX = x & 15;
+        int rZ = z & 15;
+        ChunkSection section = chunk.getSection(y >> 4);
+        if (section == null) {
+            return sky && y > chunk.getHighestY(rX, rZ) ? 15 : 0;
+        }
+
+        int idx = (y & 15) << 8 | rZ << 4 | rX;
+        return sky ? section.getSkyLight(idx) : section.getBlockLight(idx);
+    }
+
+    /**
+     * Sets the light level at the given position,
+     * creating the section if necessary, whose sky light
+     * then starts out as it was reported while missing.
+     */
+    private void setLight(boolean sky, TridentChunk chunk, int x, int y, int z, int level) {
+        int rX = x & 15;
+        int rZ = z & 15;
+        ChunkSection section = chunk.getSection(y >> 4);
+        if (section == null) {
+            if (level == (sky && y > chunk.getHighestY(rX, rZ) ? 15 : 0)) {
+                return;
+            }
+
+            section = chunk.getOrCreateSection(y >> 4);
+        }
+
+        int idx = (y & 15) << 8 | rZ << 4 | rX;
+        if (sky) {
+            section.setSkyLight(idx, (byte) level);
+        } else {
+            section.setBlockLight(idx, (byte) level);
+        }
+        chunk.markDirty();
+    }
+
+    /**
+     * A growable FIFO queue of primitive longs.
+     */
+    private static final class LongQueue {
+        private long[] elements = new long[1024];
+        private int head;
+        private int tail;
+
+        boolean isEmpty() {
+            return this.head == this.tail;
+        }
+
+        void add(long element) {
+            if (this.tail == this.elements.length) {
+                int size = this.tail - this.head;
+                if (size < this.elements.length >> 1) {
+                    // Reuse the space of polled elements
+                    System.arraycopy(this.elements, this.head, this.elements, 0, size);
+                } else {
+                    this.elements = Arrays.copyOfRange(this.elements, this.head, this.elements.length << 1);
+                }
+
+                this.head = 0;
+                this.tail = size;
+            }
+
+            this.elements[this.tail++] = element;
+        }
+
+        long poll() {
+            long element = this.elements[this.head++];
+            if (this.head == this.tail) {
+                this.head = 0;
+                this.tail = 0;
+            }
+
+            return element;
+        }
+    }
+}
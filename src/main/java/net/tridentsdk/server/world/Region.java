@@ -17,37 +17,92 @@
 package net.tridentsdk.server.world;
 
 import lombok.Getter;
+import net.tridentsdk.server.TridentServer;
+import net.tridentsdk.server.config.ServerConfig;
 
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.InflaterInputStream;
 
 /**
  * Represents a region file stored on file which maps out
  * the data in a chunk to be saved.
  *
+ * <p>Chunk data is read and written with positional I/O on
+ * a {@link FileChannel}, so chunks of the same region can be
+ * read and written at the same time. Each chunk slot is
+ * guarded by one of {@link #STRIPES} read/write locks, which
+ * keeps a chunk from being overwritten while it is read.
+ * The header and the sector map are only locked while
+ * sectors are allocated and offsets are updated.</p>
+ *
+ * <p>A chunk's new sectors are written before its offset is
+ * updated, and its old sectors are only freed afterwards,
+ * so another chunk can never be allocated sectors that are
+ * still being read.</p>
+ *
+ * <p>Chunks are written in batches. The data of every
+ * chunk in a batch is written first, then the offset and
+ * timestamp tables are updated in one pass, and the file
+ * is forced to disk according to the {@link Durability}
+ * policy. A chunk which still fits in the same number of
+ * sectors is overwritten in place, unless the policy is
+ * {@link Durability#BATCH}, in which case every chunk is
+ * written to fresh sectors and the data is forced before
+ * the header points to it, so a crash leaves either the
+ * old or the new chunk on disk.</p>
+ *
+ * <p>Chunk data is compressed and decompressed by
+ * {@link RegionCodec} outside of the locks.</p>
+ *
+ * <p>Open region files are cached, up to the configured
+ * number. Users pin a region file with {@link #acquire} and
+ * unpin it with {@link #release()}, and only unpinned files
+ * are evicted, least recently used first. Region files
+ * are opened outside of the cache lock, so threads using
+ * other region files are not held up by the disk.</p>
+ *
  * We didn't write this file.
  * A few fields were removed to reduce memory footprint of
  * having this class.
  */
+@ThreadSafe
 public class Region {
-    private static final Map<Path, Region> CACHE = new ConcurrentHashMap<>();
-
-    private static final int VERSION_GZIP = 1;
-    private static final int VERSION_DEFLATE = 2;
+    /**
+     * The open region files, least recently used first
+     */
+    @GuardedBy("CACHE")
+    private static final LinkedHashMap<Path, Region> CACHE = new LinkedHashMap<>(16, 0.75F, true);
+    /**
+     * Region cache statistics
+     */
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
 
     private static final int SECTOR_BYTES = 4096;
     private static final int SECTOR_INTS = SECTOR_BYTES / 4;
 
     private static final int CHUNK_HEADER_SIZE = 5;
-    private static final byte[] emptySector = new byte[4096];
+
+    /**
+     * The number of locks guarding the chunk slots
+     */
+    private static final int STRIPES = 16;
 
     @Getter
     private final int regionX;
@@ -55,100 +110,505 @@ public class Region {
     private final int regionZ;
 
     private final Path path;
-    private final RandomAccessFile file;
+    /**
+     * The open file, only replaced while every stripe is
+     * locked
+     */
+    @GuardedBy("stripes")
+    private FileChannel channel;
+    /**
+     * The locks guarding the data of the chunks, by the
+     * chunk index modulo the number of stripes
+     */
+    private final ReadWriteLock[] stripes = new ReadWriteLock[STRIPES];
+    /**
+     * Lock protecting the header and the sector map
+     */
+    private final Object lock = new Object();
+    @GuardedBy("lock")
     private final int[] offsets;
-    private final ArrayList<Boolean> sectorFree;
-
-    private Region(Path path) {
-        this.path = path;
-        this.offsets = new int[SECTOR_INTS];
+    @GuardedBy("lock")
+    private final int[] timestamps;
+    @GuardedBy("lock")
+    private SectorMap sectors;
+    /**
+     * The number of users of this region file, which may not
+     * be closed while it is above 0
+     */
+    @GuardedBy("CACHE")
+    private int pins;
+    /**
+     * Completed once the file has been opened and its header
+     * read, by the thread which added it to the cache
+     */
+    private final CompletableFuture<Region> opened = new CompletableFuture<>();
 
-        try {
-            if (!Files.exists(path)) {
-                Files.createFile(path);
+    /**
+     * When the data written to region files is forced to
+     * disk.
+     */
+    public enum Durability {
+        /**
+         * Never, the operating system writes the data back
+         * on its own, as region files always were before
+         * this policy existed
+         */
+        NONE,
+        /**
+         * After the data of every batch of chunks is written
+         * and again after its header is updated
+         */
+        BATCH,
+        /**
+         * When the region file is closed, either because it
+         * is evicted from the cache or because the server
+         * shuts down, which is the only time a file is
+         * forced under this policy
+         */
+        SHUTDOWN;
+
+        /**
+         * Obtains the policy set in the server config.
+         *
+         * @return the configured durability
+         */
+        public static Durability configured() {
+            ServerConfig cfg = TridentServer.cfg();
+            String name = cfg == null ? ServerConfig.DEFAULT_REGION_DURABILITY : cfg.regionDurability();
+            try {
+                return valueOf(name.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return SHUTDOWN;
             }
+        }
+    }
 
-            this.file = new RandomAccessFile(path.toFile(), "rw");
+    /**
+     * A set of chunks to be written to a region file at
+     * once.
+     *
+     * <p>Chunks are framed into whole sectors as they are
+     * added, so no work is left to do while the region is
+     * locked other than writing them. Adding a chunk which
+     * is already in the batch replaces it.</p>
+     */
+    @NotThreadSafe
+    public static final class Batch {
+        /**
+         * The framed chunks, by chunk index
+         */
+        private final ByteBuffer[] frames = new ByteBuffer[SECTOR_INTS];
+        /**
+         * The indexes of the chunks in the batch, in the
+         * order they were added
+         */
+        private int[] indexes = new int[16];
+        private int size;
+
+        /**
+         * Adds the data of a chunk, encoded with the given
+         * version, to the batch.
+         *
+         * @param x the chunk x coordinate within the region
+         * @param z the chunk z coordinate within the region
+         * @param version the {@link RegionCodec} version of
+         * the data
+         * @param data the encoded chunk data
+         * @param length the number of bytes to write
+         */
+        public void add(int x, int z, byte version, byte[] data, int length) {
+            int sectorsNeeded = (length + CHUNK_HEADER_SIZE) / SECTOR_BYTES + 1;
 
-            if (this.file.length() < SECTOR_BYTES) {
-                /* we need to write the chunk offset table */
-                for (int i = 0; i < SECTOR_INTS; i++) {
-                    this.file.writeInt(0);
-                }
-                // write another sector for the timestamp info
-                for (int i = 0; i < SECTOR_INTS; i++) {
-                    this.file.writeInt(0);
-                }
+            // maximum chunk size is 1MB
+            if (sectorsNeeded >= 256 || x < 0 || x >= 32 || z < 0 || z >= 32) {
+                return;
             }
 
-            if ((this.file.length() & 0xfff) != 0) {
-                /* the file size is not a multiple of 4KB, grow it */
-                for (int i = 0; i < (this.file.length() & 0xfff); ++i) {
-                    this.file.write((byte) 0);
+            ByteBuffer buf = ByteBuffer.allocate(sectorsNeeded * SECTOR_BYTES);
+            buf.putInt(length + 1); // chunk length
+            buf.put(version); // chunk version number
+            buf.put(data, 0, length); // chunk data
+            buf.clear();
+
+            int index = x + (z << 5);
+            if (this.frames[index] == null) {
+                if (this.size == this.indexes.length) {
+                    this.indexes = Arrays.copyOf(this.indexes, this.size << 1);
                 }
+                this.indexes[this.size++] = index;
             }
+            this.frames[index] = buf;
+        }
+
+        /**
+         * Obtains the number of chunks in the batch.
+         *
+         * @return the batch size
+         */
+        public int size() {
+            return this.size;
+        }
+    }
 
-            /* set up the available sector map */
-            int nSectors = (int) this.file.length() / SECTOR_BYTES;
-            this.sectorFree = new ArrayList<>(nSectors);
+    private Region(Path path) {
+        this.path = path;
+        this.offsets = new int[SECTOR_INTS];
+        this.timestamps = new int[SECTOR_INTS];
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new ReentrantReadWriteLock();
+        }
 
-            for (int i = 0; i < nSectors; i++) {
-                this.sectorFree.add(true);
+        String[] split = path.getFileName().toString().split(Pattern.quote("."));
+        this.regionX = Integer.parseInt(split[1]);
+        this.regionZ = Integer.parseInt(split[2]);
+    }
+
+    /**
+     * Opens the file and reads its header, before this
+     * region is handed to anyone.
+     */
+    private void open() {
+        try {
+            this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            if (this.channel.size() < 2 * SECTOR_BYTES) {
+                /* we need to write the chunk offset table and
+                 * another sector for the timestamp info */
+                writeFully(this.channel, ByteBuffer.allocate(2 * SECTOR_BYTES), 0);
             }
 
-            this.sectorFree.set(0, false); // chunk offset table
-            this.sectorFree.set(1, false); // for the last modified info
+            long size = this.channel.size();
+            if ((size & 0xfff) != 0) {
+                /* the file size is not a multiple of 4KB, grow it */
+                int pad = SECTOR_BYTES - (int) (size & 0xfff);
+                writeFully(this.channel, ByteBuffer.allocate(pad), size);
+                size += pad;
+            }
 
-            this.file.seek(0);
-            for (int i = 0; i < SECTOR_INTS; i++) {
-                int offset = this.file.readInt();
-                this.offsets[i] = offset;
-                if (offset != 0 && (offset >> 8) + (offset & 0xFF) <= this.sectorFree.size()) {
-                    for (int sectorNum = 0; sectorNum < (offset & 0xFF); ++sectorNum) {
-                        this.sectorFree.set((offset >> 8) + sectorNum, false);
-                    }
+            ByteBuffer table = ByteBuffer.allocate(2 * SECTOR_BYTES);
+            readFully(this.channel, table, 0);
+            table.flip();
+            IntBuffer ints = table.asIntBuffer();
+            ints.get(this.offsets);
+            ints.get(this.timestamps);
+            this.sectors = mapSectors(this.offsets, (int) (size / SECTOR_BYTES));
+        } catch (IOException e) {
+            if (this.channel != null) {
+                try {
+                    this.channel.close();
+                } catch (IOException ignored) {
                 }
             }
-        } catch (IOException e) {
             throw new RuntimeException(e);
         }
+    }
 
-        String[] split = path.getFileName().toString().split(Pattern.quote("."));
-        this.regionX = Integer.parseInt(split[1]);
-        this.regionZ = Integer.parseInt(split[2]);
+    /**
+     * Obtains the path of the region file holding the given
+     * chunk.
+     *
+     * @param chunk the chunk
+     * @return the path of its region file
+     */
+    public static Path pathOf(TridentChunk chunk) {
+        return chunk.getWorld().getDirectory().resolve("region").
+                resolve("r." + (chunk.getX() >> 5) + '.' + (chunk.getZ() >> 5) + ".mca");
     }
 
     /**
      * Obtains the chunk file for the given chunk, creating
      * if it doesn't exist and if specified.
      *
+     * <p>The region file is kept open until it is passed to
+     * {@link #release()}.</p>
+     *
      * @param chunk the chunk to obtain the region file
      * @param create {@code true} to create if it doesn't
      * exist
      * @return the region file, or {@code null} if it
      * doesn't exist and don't create it
      */
-    public static Region getFile(TridentChunk chunk, boolean create) {
-        Path path = chunk.getWorld().getDirectory().resolve("region").
-                resolve("r." + (chunk.getX() >> 5) + '.' + (chunk.getZ() >> 5) + ".mca");
-        if (!Files.exists(path) && !create) {
+    public static Region acquire(TridentChunk chunk, boolean create) {
+        return acquire(pathOf(chunk), create);
+    }
+
+    /**
+     * Obtains the region file at the given path, opening it
+     * if it is not open already.
+     *
+     * <p>The region file is kept open until it is passed to
+     * {@link #release()}. Opening a region file evicts the
+     * least recently used ones which are not in use once
+     * more than the configured number are open.</p>
+     *
+     * <p>A missing region is added to the cache before it is
+     * opened, and the file is opened without holding the
+     * cache lock. Other threads acquiring the same region
+     * in the meantime wait for it to be opened.</p>
+     *
+     * @param path the path of the region file
+     * @param create {@code true} to create if it doesn't
+     * exist
+     * @return the region file, or {@code null} if it
+     * doesn't exist and don't create it
+     */
+    public static Region acquire(Path path, boolean create) {
+        Region region;
+        synchronized (CACHE) {
+            region = CACHE.get(path);
+            if (region != null) {
+                region.pins++;
+                HITS.increment();
+            }
+        }
+
+        if (region != null) {
+            return region.awaitOpen();
+        }
+
+        if (!create && !Files.exists(path)) {
             return null;
         }
 
-        return CACHE.computeIfAbsent(path, Region::new);
+        boolean opener = false;
+        List<Region> evicted = new ArrayList<>();
+        synchronized (CACHE) {
+            region = CACHE.get(path);
+            if (region == null) {
+                MISSES.increment();
+                region = new Region(path);
+                CACHE.put(path, region);
+                evict(evicted);
+                opener = true;
+            } else {
+                HITS.increment();
+            }
+            region.pins++;
+        }
+
+        for (Region r : evicted) {
+            r.close();
+        }
+
+        if (!opener) {
+            return region.awaitOpen();
+        }
+
+        try {
+            region.open();
+        } catch (RuntimeException e) {
+            synchronized (CACHE) {
+                CACHE.remove(path, region);
+            }
+            region.release();
+            region.opened.completeExceptionally(e);
+            throw e;
+        }
+        region.opened.complete(region);
+        return region;
+    }
+
+    /**
+     * Waits for a region acquired from the cache to be
+     * opened by the thread which added it, releasing it if
+     * that failed.
+     */
+    private Region awaitOpen() {
+        try {
+            return this.opened.join();
+        } catch (CompletionException e) {
+            this.release();
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Removes the least recently used region files which are
+     * not in use from the cache until it is within its size.
+     */
+    @GuardedBy("CACHE")
+    private static void evict(List<Region> evicted) {
+        ServerConfig cfg = TridentServer.cfg();
+        int max = cfg == null ? ServerConfig.DEFAULT_REGION_CACHE_SIZE : cfg.regionCacheSize();
+        int excess = CACHE.size() - max;
+        for (Iterator<Region> it = CACHE.values().iterator(); excess > 0 && it.hasNext(); ) {
+            Region region = it.next();
+            if (region.pins == 0) {
+                it.remove();
+                evicted.add(region);
+                EVICTIONS.increment();
+                excess--;
+            }
+        }
+    }
+
+    /**
+     * Indicates that the caller has finished using this
+     * region file, allowing it to be closed.
+     */
+    public void release() {
+        synchronized (CACHE) {
+            if (--this.pins == 0) {
+                CACHE.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Closes every open region file, used when the server
+     * shuts down.
+     *
+     * <p>Region files which are still in use, such as by a
+     * chunk save in progress, are closed once they have been
+     * released.</p>
+     */
+    public static void closeAll() {
+        List<Region> regions;
+        synchronized (CACHE) {
+            try {
+                while (pinned()) {
+                    CACHE.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            regions = new ArrayList<>(CACHE.values());
+            CACHE.clear();
+        }
+
+        for (Region region : regions) {
+            region.close();
+        }
+    }
+
+    /**
+     * Checks whether any cached region file is in use.
+     */
+    @GuardedBy("CACHE")
+    private static boolean pinned() {
+        for (Region region : CACHE.values()) {
+            if (region.pins > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Obtains the number of region files that were already
+     * open when requested.
+     *
+     * @return the number of cache hits
+     */
+    public static long getCacheHits() {
+        return HITS.sum();
+    }
+
+    /**
+     * Obtains the number of region files that had to be
+     * opened when requested.
+     *
+     * @return the number of cache misses
+     */
+    public static long getCacheMisses() {
+        return MISSES.sum();
+    }
+
+    /**
+     * Obtains the number of region files that were closed
+     * to keep the cache within its size.
+     *
+     * @return the number of evictions
+     */
+    public static long getCacheEvictions() {
+        return EVICTIONS.sum();
+    }
+
+    /**
+     * Obtains the number of region files currently open.
+     *
+     * @return the number of open region files
+     */
+    public static int getOpenCount() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    /**
+     * Builds the map of used sectors from the chunk offsets.
+     *
+     * @param offsets the chunk offsets
+     * @param nSectors the file size in sectors
+     * @return the sector map
+     */
+    private static SectorMap mapSectors(int[] offsets, int nSectors) {
+        SectorMap sectors = new SectorMap(nSectors);
+        sectors.set(0, 1); // chunk offset table
+        sectors.set(1, 1); // for the last modified info
+        for (int offset : offsets) {
+            if (offset != 0 && (offset >> 8) + (offset & 0xFF) <= nSectors) {
+                sectors.set(offset >> 8, offset & 0xFF);
+            }
+        }
+        return sectors;
+    }
+
+    /**
+     * Reads from the channel at the given position until
+     * the buffer is full.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int read = channel.read(buf, position);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Writes the whole buffer to the channel at the given
+     * position.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+    }
+
+    /**
+     * Obtains the lock guarding the data of the given chunk.
+     */
+    private ReadWriteLock stripe(int x, int z) {
+        return this.stripes[(x + (z << 5)) % STRIPES];
     }
 
     /*
      * gets an (uncompressed) stream representing the chunk data returns null if
      * the chunk is not found or an error occurs
      */
-    public synchronized DataInputStream getChunkDataInputStream(int x, int z) {
+    public DataInputStream getChunkDataInputStream(int x, int z) {
         if (this.outOfBounds(x, z)) {
             return null;
         }
 
+        byte version;
+        byte[] data;
+        ReadWriteLock stripe = this.stripe(x, z);
+        stripe.readLock().lock();
         try {
-            int offset = this.getOffset(x, z);
+            int offset;
+            int nSectors;
+            synchronized (this.lock) {
+                offset = this.getOffset(x, z);
+                nSectors = this.sectors.size();
+            }
+
             if (offset == 0) {
                 return null;
             }
@@ -156,32 +616,31 @@ public class Region {
             int sectorNumber = offset >> 8;
             int numSectors = offset & 0xFF;
 
-            if (sectorNumber + numSectors > this.sectorFree.size()) {
+            if (sectorNumber + numSectors > nSectors) {
                 return null;
             }
 
-            this.file.seek(sectorNumber * SECTOR_BYTES);
-            int length = this.file.readInt();
+            long position = (long) sectorNumber * SECTOR_BYTES;
+            ByteBuffer header = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+            readFully(this.channel, header, position);
+            header.flip();
+            int length = header.getInt();
 
-            if (length > SECTOR_BYTES * numSectors) {
+            if (length > SECTOR_BYTES * numSectors || length < 1) {
                 return null;
             }
 
-            byte version = this.file.readByte();
-            if (version == VERSION_GZIP) {
-                byte[] data = new byte[length - 1];
-                this.file.read(data);
-                return new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(data)));
-            } else if (version == VERSION_DEFLATE) {
-                byte[] data = new byte[length - 1];
-                this.file.read(data);
-                return new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)));
-            }
-
-            return null;
+            version = header.get();
+            data = new byte[length - 1];
+            readFully(this.channel, ByteBuffer.wrap(data), position + CHUNK_HEADER_SIZE);
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            stripe.readLock().unlock();
         }
+
+        byte[] chunk = RegionCodec.decode(version, data);
+        return chunk == null ? null : new DataInputStream(new ByteArrayInputStream(chunk));
     }
 
     public DataOutputStream getChunkDataOutputStream(int x, int z) {
@@ -189,7 +648,7 @@ public class Region {
             return null;
         }
 
-        return new DataOutputStream(new DeflaterOutputStream(new ChunkBuffer(x, z)));
+        return new DataOutputStream(new ChunkBuffer(x, z));
     }
 
     /*
@@ -208,88 +667,206 @@ public class Region {
 
         @Override
         public void close() {
-            Region.this.write(this.x, this.z, this.buf, this.count);
+            int level = RegionCodec.level();
+            byte[] data = RegionCodec.encode(this.buf, this.count, level);
+            Region.this.write(this.x, this.z, data, data.length);
         }
     }
 
-    /* write a chunk at (x,z) with length bytes of data to disk */
-    public synchronized void write(int x, int z, byte[] data, int length) {
+    /* write a chunk at (x,z) with length bytes of deflated data to disk */
+    public void write(int x, int z, byte[] data, int length) {
+        this.write(x, z, RegionCodec.VERSION_DEFLATE, data, length);
+    }
+
+    /**
+     * Writes the data of a chunk, encoded with the given
+     * version, to disk.
+     *
+     * @param x the chunk x coordinate within the region
+     * @param z the chunk z coordinate within the region
+     * @param version the {@link RegionCodec} version of the
+     * data
+     * @param data the encoded chunk data
+     * @param length the number of bytes to write
+     */
+    public void write(int x, int z, byte version, byte[] data, int length) {
+        Batch batch = new Batch();
+        batch.add(x, z, version, data, length);
+        this.write(batch, Durability.configured());
+    }
+
+    /**
+     * Writes a batch of chunks to disk.
+     *
+     * <p>Reads and writes of the chunks sharing a lock with
+     * the chunks in the batch wait until the whole batch has
+     * been written.</p>
+     *
+     * @param batch the chunks to write
+     * @param durability when to force the chunks to disk
+     */
+    public void write(Batch batch, Durability durability) {
+        int size = batch.size;
+        if (size == 0) {
+            return;
+        }
+
+        boolean[] locked = new boolean[STRIPES];
+        for (int i = 0; i < size; i++) {
+            locked[batch.indexes[i] % STRIPES] = true;
+        }
+
+        /* always lock in the same order so batches can't deadlock */
+        for (int i = 0; i < STRIPES; i++) {
+            if (locked[i]) {
+                this.stripes[i].writeLock().lock();
+            }
+        }
+
+        int[] old = new int[size];
+        int[] offsets = new int[size];
+        int allocated = 0;
+        boolean committed = false;
         try {
-            int offset = this.getOffset(x, z);
-            int sectorNumber = offset >> 8;
-            int sectorsAllocated = offset & 0xFF;
-            int sectorsNeeded = (length + CHUNK_HEADER_SIZE) / SECTOR_BYTES + 1;
+            synchronized (this.lock) {
+                for (int i = 0; i < size; i++) {
+                    int index = batch.indexes[i];
+                    int sectorsNeeded = batch.frames[index].capacity() / SECTOR_BYTES;
+                    int offset = this.offsets[index];
+                    old[i] = offset;
+                    if (offset != 0 && (offset & 0xFF) == sectorsNeeded && durability != Durability.BATCH) {
+                        /* we can simply overwrite the old sectors */
+                        offsets[i] = offset;
+                    } else {
+                        offsets[i] = this.allocate(sectorsNeeded) << 8 | sectorsNeeded;
+                    }
+                    allocated++;
+                }
+            }
 
-            // maximum chunk size is 1MB
-            if (sectorsNeeded >= 256) {
-                return;
+            for (int i = 0; i < size; i++) {
+                writeFully(this.channel, batch.frames[batch.indexes[i]].duplicate(), (long) (offsets[i] >> 8) * SECTOR_BYTES);
             }
 
-            if (sectorNumber != 0 && sectorsAllocated == sectorsNeeded) {
-                /* we can simply overwrite the old sectors */
-                this.write(sectorNumber, data, length);
-            } else {
-                /* we need to allocate new sectors */
+            /* the header may only point to data which is on disk */
+            if (durability == Durability.BATCH) {
+                this.channel.force(false);
+            }
 
-                /* mark the sectors previously used for this chunk as free */
-                for (int i = 0; i < sectorsAllocated; ++i) {
-                    this.sectorFree.set(sectorNumber + i, true);
+            synchronized (this.lock) {
+                int timestamp = (int) (System.currentTimeMillis() / 1000L);
+                int min = SECTOR_INTS;
+                int max = -1;
+                for (int i = 0; i < size; i++) {
+                    int index = batch.indexes[i];
+                    this.offsets[index] = offsets[i];
+                    this.timestamps[index] = timestamp;
+                    min = Math.min(min, index);
+                    max = Math.max(max, index);
                 }
+                committed = true;
 
-                /* scan for a free space large enough to store this chunk */
-                int runStart = this.sectorFree.indexOf(true);
-                int runLength = 0;
-                if (runStart != -1) {
-                    for (int i = runStart; i < this.sectorFree.size(); ++i) {
-                        if (runLength != 0) {
-                            if (this.sectorFree.get(i)) runLength++;
-                            else runLength = 0;
-                        } else if (this.sectorFree.get(i)) {
-                            runStart = i;
-                            runLength = 1;
-                        }
-                        if (runLength >= sectorsNeeded) {
-                            break;
+                this.writeHeader(this.offsets, 0, min, max);
+                this.writeHeader(this.timestamps, SECTOR_BYTES, min, max);
+            }
+
+            /* the old sectors stay reserved until the header is on disk */
+            if (durability == Durability.BATCH) {
+                this.channel.force(false);
+            }
+
+            synchronized (this.lock) {
+                /* the old sectors can no longer be read */
+                for (int i = 0; i < size; i++) {
+                    if (old[i] != offsets[i]) {
+                        this.sectors.clear(old[i] >> 8, old[i] & 0xFF);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            /* nothing points to the new sectors yet, free them again */
+            if (!committed) {
+                synchronized (this.lock) {
+                    for (int i = 0; i < allocated; i++) {
+                        if (old[i] != offsets[i]) {
+                            this.sectors.clear(offsets[i] >> 8, offsets[i] & 0xFF);
                         }
                     }
                 }
+            }
 
-                if (runLength >= sectorsNeeded) {
-                    /* we found a free space large enough */
-                    sectorNumber = runStart;
-                    this.setOffset(x, z, sectorNumber << 8 | sectorsNeeded);
-                    for (int i = 0; i < sectorsNeeded; ++i) {
-                        this.sectorFree.set(sectorNumber + i, false);
-                    }
-                    this.write(sectorNumber, data, length);
-                } else {
-                    /*
-                     * no free space large enough found -- we need to grow the
-                     * file
-                     */
-                    this.file.seek(this.file.length());
-                    sectorNumber = this.sectorFree.size();
-                    for (int i = 0; i < sectorsNeeded; ++i) {
-                        this.file.write(emptySector);
-                        this.sectorFree.add(false);
-                    }
+            for (int i = 0; i < STRIPES; i++) {
+                if (locked[i]) {
+                    this.stripes[i].writeLock().unlock();
+                }
+            }
+        }
+    }
 
-                    this.write(sectorNumber, data, length);
-                    this.setOffset(x, z, sectorNumber << 8 | sectorsNeeded);
+    /**
+     * Finds and reserves the smallest free run of sectors
+     * that fits, growing the file if none is large enough.
+     *
+     * @param sectorsNeeded the number of sectors to reserve
+     * @return the first reserved sector
+     */
+    @GuardedBy("lock")
+    private int allocate(int sectorsNeeded) {
+        /* the file grows once the sectors are written */
+        return this.sectors.allocate(sectorsNeeded);
+    }
+
+    /**
+     * Rewrites this region file without the free sectors
+     * between its chunks.
+     *
+     * <p>Reads and writes of every chunk in this region wait
+     * until compaction has finished.</p>
+     *
+     * @return the space reclaimed and the time taken
+     */
+    public RegionCompactor.Result compact() {
+        for (ReadWriteLock stripe : this.stripes) {
+            stripe.writeLock().lock();
+        }
+
+        try {
+            synchronized (this.lock) {
+                Path tmp = RegionCompactor.tempFile(this.path);
+                RegionCompactor.Result result = RegionCompactor.rewrite(this.path, this.channel, this.offsets, tmp);
+
+                this.channel.close();
+                try {
+                    RegionCompactor.replace(tmp, this.path);
+                } finally {
+                    this.channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
                 }
+
+                System.arraycopy(result.offsets, 0, this.offsets, 0, this.offsets.length);
+                this.sectors = mapSectors(this.offsets, (int) (this.channel.size() / SECTOR_BYTES));
+                return result;
             }
-            this.setTimestamp(x, z, (int) (System.currentTimeMillis() / 1000L));
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            for (ReadWriteLock stripe : this.stripes) {
+                stripe.writeLock().unlock();
+            }
         }
     }
 
-    /* write a chunk data to the region file at specified sector number */
-    private void write(int sectorNumber, byte[] data, int length) throws IOException {
-        this.file.seek(sectorNumber << 12);
-        this.file.writeInt(length + 1); // chunk length
-        this.file.writeByte(VERSION_DEFLATE); // chunk version number
-        this.file.write(data, 0, length); // chunk data
+    /**
+     * Obtains the number of sectors in this region file
+     * that hold no chunk.
+     *
+     * @return the free sectors
+     */
+    public int getFreeSectors() {
+        synchronized (this.lock) {
+            return this.sectors.free();
+        }
     }
 
     /* is this an invalid chunk coordinate? */
@@ -297,27 +874,55 @@ public class Region {
         return x < 0 || x >= 32 || z < 0 || z >= 32;
     }
 
+    @GuardedBy("lock")
     private int getOffset(int x, int z) {
         return this.offsets[x + (z << 5)];
     }
 
     public boolean hasChunk(int x, int z) {
-        return this.getOffset(x, z) != 0;
+        synchronized (this.lock) {
+            return this.getOffset(x, z) != 0;
+        }
     }
 
-    private void setOffset(int x, int z, int offset) throws IOException {
-        this.offsets[x + (z << 5)] = offset;
-        this.file.seek(x + (z << 5) << 2);
-        this.file.writeInt(offset);
+    /**
+     * Writes the given range of a header table in one
+     * write.
+     *
+     * @param table the offsets or the timestamps
+     * @param position the position of the table in the file
+     * @param min the first index to write
+     * @param max the last index to write
+     */
+    @GuardedBy("lock")
+    private void writeHeader(int[] table, long position, int min, int max) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(max - min + 1 << 2);
+        buf.asIntBuffer().put(table, min, max - min + 1);
+        writeFully(this.channel, buf, position + (min << 2));
     }
 
-    private void setTimestamp(int x, int z, int value) throws IOException {
-        this.file.seek(SECTOR_BYTES + (x + (z << 5) << 2));
-        this.file.writeInt(value);
-    }
+    /**
+     * Flushes the header and chunk data to disk unless the
+     * durability policy is {@link Durability#NONE} and
+     * closes the file, once it has been removed from the
+     * cache.
+     */
+    private void close() {
+        for (ReadWriteLock stripe : this.stripes) {
+            stripe.writeLock().lock();
+        }
 
-    public void close() throws IOException {
-        CACHE.remove(this.path);
-        this.file.close();
+        try {
+            if (Durability.configured() != Durability.NONE) {
+                this.channel.force(true);
+            }
+            this.channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            for (ReadWriteLock stripe : this.stripes) {
+                stripe.writeLock().unlock();
+            }
+        }
     }
-}
\ No newline at end of file
+}
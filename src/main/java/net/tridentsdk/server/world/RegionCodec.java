@@ -0,0 +1,180 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import net.tridentsdk.server.TridentServer;
+import net.tridentsdk.server.config.ServerConfig;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses and decompresses the chunk data stored in
+ * region files.
+ *
+ * <p>Each thread keeps its own {@link Deflater},
+ * {@link Inflater} and output buffer, which are reset and
+ * reused for every chunk instead of allocating new native
+ * zlib state each time.</p>
+ *
+ * <p>Chunks are always written as deflate data with the
+ * configured compression level, where level 0 stores them
+ * in uncompressed deflate blocks, so region files can still
+ * be opened by the vanilla server. Chunks stored with any
+ * version, including the uncompressed version written by
+ * older builds, can be read regardless of the current
+ * level.</p>
+ */
+@ThreadSafe
+public final class RegionCodec {
+    /**
+     * The chunk data versions, stored in front of the data
+     * of each chunk
+     */
+    public static final byte VERSION_GZIP = 1;
+    public static final byte VERSION_DEFLATE = 2;
+    public static final byte VERSION_NONE = 3;
+
+    /**
+     * The initial size of the per thread output buffers
+     */
+    private static final int BUFFER_SIZE = 16384;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(Deflater::new);
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+    private static final ThreadLocal<byte[][]> BUFFER = ThreadLocal.withInitial(() -> new byte[][] { new byte[BUFFER_SIZE] });
+
+    private RegionCodec() {
+    }
+
+    /**
+     * Obtains the configured compression level.
+     *
+     * @return the level, from 0 (uncompressed) to 9
+     */
+    public static int level() {
+        ServerConfig cfg = TridentServer.cfg();
+        int level = cfg == null ? ServerConfig.DEFAULT_REGION_COMPRESSION_LEVEL : cfg.regionCompressionLevel();
+        return Math.max(0, Math.min(Deflater.BEST_COMPRESSION, level));
+    }
+
+    /**
+     * Encodes the given chunk data at the given compression
+     * level.
+     *
+     * @param data the serialized chunk
+     * @param length the number of bytes to encode
+     * @param level the compression level, 0 to store the
+     * data in uncompressed deflate blocks
+     * @return the data to store with
+     * {@link #VERSION_DEFLATE}
+     */
+    public static byte[] encode(byte[] data, int length, int level) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setLevel(level);
+        deflater.setInput(data, 0, length);
+        deflater.finish();
+
+        byte[][] holder = BUFFER.get();
+        byte[] out = holder[0];
+        int count = 0;
+        while (!deflater.finished()) {
+            if (count == out.length) {
+                out = holder[0] = Arrays.copyOf(out, out.length << 1);
+            }
+            count += deflater.deflate(out, count, out.length - count);
+        }
+
+        return Arrays.copyOf(out, count);
+    }
+
+    /**
+     * Decodes chunk data stored with the given version.
+     *
+     * @param version the chunk data version
+     * @param data the stored data
+     * @return the serialized chunk, or {@code null} if the
+     * version is unknown
+     */
+    public static byte[] decode(byte version, byte[] data) {
+        switch (version) {
+            case VERSION_NONE:
+                return data;
+            case VERSION_DEFLATE:
+                return inflate(data);
+            case VERSION_GZIP:
+                return gunzip(data);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Inflates zlib data with the pooled inflater.
+     */
+    private static byte[] inflate(byte[] data) {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(data);
+
+        byte[][] holder = BUFFER.get();
+        byte[] out = holder[0];
+        int count = 0;
+        try {
+            while (!inflater.finished()) {
+                if (count == out.length) {
+                    out = holder[0] = Arrays.copyOf(out, out.length << 1);
+                }
+
+                int n = inflater.inflate(out, count, out.length - count);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated chunk data");
+                }
+                count += n;
+            }
+        } catch (DataFormatException e) {
+            throw new RuntimeException(e);
+        }
+
+        return Arrays.copyOf(out, count);
+    }
+
+    /**
+     * Decompresses gzip data, which is only written by old
+     * versions of the game.
+     */
+    private static byte[] gunzip(byte[] data) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buf = new byte[4096];
+            for (int n; (n = in.read(buf)) > 0; ) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import lombok.Getter;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Rewrites region files with their chunks packed together,
+ * dropping the holes left behind by chunks that grew or
+ * moved.
+ *
+ * <p>The compacted file is written next to the original and
+ * then moved over it, so an interrupted compaction leaves
+ * the original untouched. Region files can be compacted
+ * while the server runs through {@link Region#compact()},
+ * or with the server stopped by running this class with the
+ * region files or directories to compact as arguments.</p>
+ */
+@Immutable
+public final class RegionCompactor {
+    private static final int SECTOR_BYTES = 4096;
+    private static final int SECTOR_INTS = SECTOR_BYTES / 4;
+    private static final int CHUNK_HEADER_SIZE = 5;
+
+    private RegionCompactor() {
+    }
+
+    /**
+     * The outcome of compacting a region file.
+     */
+    @Immutable
+    public static final class Result {
+        /**
+         * The compacted file
+         */
+        @Getter
+        private final Path path;
+        /**
+         * The file size before and after compacting
+         */
+        @Getter
+        private final long bytesBefore;
+        @Getter
+        private final long bytesAfter;
+        /**
+         * The number of chunks kept, and dropped because
+         * their data was invalid
+         */
+        @Getter
+        private final int chunks;
+        @Getter
+        private final int dropped;
+        /**
+         * The time taken
+         */
+        @Getter
+        private final long nanos;
+        /**
+         * The new chunk offsets
+         */
+        final int[] offsets;
+
+        Result(Path path, long bytesBefore, long bytesAfter, int chunks, int dropped, long nanos, int[] offsets) {
+            this.path = path;
+            this.bytesBefore = bytesBefore;
+            this.bytesAfter = bytesAfter;
+            this.chunks = chunks;
+            this.dropped = dropped;
+            this.nanos = nanos;
+            this.offsets = offsets;
+        }
+
+        /**
+         * Obtains the number of bytes freed by compacting.
+         *
+         * @return the space reclaimed
+         */
+        public long getReclaimed() {
+            return this.bytesBefore - this.bytesAfter;
+        }
+
+        /**
+         * Describes the space reclaimed and the time taken.
+         *
+         * @return the compaction report
+         */
+        public String describe() {
+            return String.format("%s: %d chunks, %d KB -> %d KB (%d KB reclaimed%s) in %d ms",
+                    this.path.getFileName(), this.chunks, this.bytesBefore >> 10, this.bytesAfter >> 10,
+                    this.getReclaimed() >> 10, this.dropped == 0 ? "" : ", " + this.dropped + " invalid chunks dropped",
+                    TimeUnit.NANOSECONDS.toMillis(this.nanos));
+        }
+    }
+
+    /**
+     * Compacts the region files given as arguments, or every
+     * region file in the directories given as arguments.
+     *
+     * <p>The server must not be running on the files.</p>
+     *
+     * @param args the files or directories to compact
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: RegionCompactor <region file or directory>...");
+            return;
+        }
+
+        long reclaimed = 0;
+        long start = System.nanoTime();
+        for (String arg : args) {
+            Path path = Paths.get(arg);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.list(path)) {
+                    for (Path file : (Iterable<Path>) files.filter(RegionCompactor::isRegion)::iterator) {
+                        Result result = compact(file);
+                        reclaimed += result.getReclaimed();
+                        System.out.println(result.describe());
+                    }
+                }
+            } else {
+                Result result = compact(path);
+                reclaimed += result.getReclaimed();
+                System.out.println(result.describe());
+            }
+        }
+
+        System.out.println(String.format("Reclaimed %d KB in %d ms", reclaimed >> 10,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    /**
+     * Determines whether the given file is a region file.
+     *
+     * @param path the file
+     * @return {@code true} if it is a region file
+     */
+    public static boolean isRegion(Path path) {
+        return path.getFileName().toString().endsWith(".mca") && Files.isRegularFile(path);
+    }
+
+    /**
+     * Compacts a region file which is not in use.
+     *
+     * @param path the region file
+     * @return the outcome
+     * @throws IOException if the file could not be rewritten
+     */
+    public static Result compact(Path path) throws IOException {
+        Path tmp = tempFile(path);
+        Result result;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer table = ByteBuffer.allocate(SECTOR_BYTES);
+            readFully(channel, table, 0);
+            table.flip();
+
+            int[] offsets = new int[SECTOR_INTS];
+            table.asIntBuffer().get(offsets);
+            result = rewrite(path, channel, offsets, tmp);
+        }
+
+        replace(tmp, path);
+        return result;
+    }
+
+    /**
+     * Obtains the file that a region file is compacted into.
+     */
+    static Path tempFile(Path path) {
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    /**
+     * Moves the compacted file over the original.
+     */
+    static void replace(Path tmp, Path path) throws IOException {
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes the chunks of a region file to the given file,
+     * one after another in the order of their index.
+     *
+     * @param path the region file
+     * @param channel the open region file
+     * @param offsets the chunk offsets of the region file
+     * @param tmp the file to write the compacted region to
+     * @return the outcome, including the new offsets
+     */
+    static Result rewrite(Path path, FileChannel channel, int[] offsets, Path tmp) throws IOException {
+        long start = System.nanoTime();
+        long size = channel.size();
+        int fileSectors = (int) (size / SECTOR_BYTES);
+
+        ByteBuffer timestamps = ByteBuffer.allocate(SECTOR_BYTES);
+        if (size >= 2 * SECTOR_BYTES) {
+            readFully(channel, timestamps, SECTOR_BYTES);
+        }
+        timestamps.clear();
+
+        int[] compacted = new int[SECTOR_INTS];
+        int chunks = 0;
+        int dropped = 0;
+        int cursor = 2;
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+            for (int i = 0; i < SECTOR_INTS; i++) {
+                int offset = offsets[i];
+                if (offset == 0) {
+                    continue;
+                }
+
+                int sector = offset >> 8;
+                int count = offset & 0xFF;
+                if (sector < 2 || sector + count > fileSectors) {
+                    dropped++;
+                    continue;
+                }
+
+                header.clear();
+                readFully(channel, header, (long) sector * SECTOR_BYTES);
+                int length = header.getInt(0);
+                int needed = (length + CHUNK_HEADER_SIZE - 1) / SECTOR_BYTES + 1;
+                if (length < 1 || needed > count) {
+                    dropped++;
+                    continue;
+                }
+
+                ByteBuffer data = ByteBuffer.allocate(needed * SECTOR_BYTES);
+                data.limit(length + CHUNK_HEADER_SIZE - 1);
+                readFully(channel, data, (long) sector * SECTOR_BYTES);
+                data.clear();
+                writeFully(out, data, (long) cursor * SECTOR_BYTES);
+
+                compacted[i] = cursor << 8 | needed;
+                cursor += needed;
+                chunks++;
+            }
+
+            ByteBuffer table = ByteBuffer.allocate(SECTOR_BYTES);
+            table.asIntBuffer().put(compacted);
+            writeFully(out, table, 0);
+            writeFully(out, timestamps, SECTOR_BYTES);
+            out.force(true);
+        }
+
+        return new Result(path, size, (long) cursor * SECTOR_BYTES, chunks, dropped, System.nanoTime() - start, compacted);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int read = channel.read(buf, position);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+    }
+}
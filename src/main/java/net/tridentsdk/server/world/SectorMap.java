@@ -0,0 +1,203 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * The used sectors of a region file, as a bitmap with one
+ * bit per sector packed into longs.
+ *
+ * <p>Free runs are found a word at a time, and sectors are
+ * allocated from the smallest free run that fits so that
+ * large holes are kept for large chunks. A request that fits
+ * nowhere extends a free run at the end of the file, if any,
+ * before growing the file.</p>
+ */
+@NotThreadSafe
+final class SectorMap {
+    /**
+     * The bits of the used sectors
+     */
+    private long[] words;
+    /**
+     * The number of sectors in the file
+     */
+    private int size;
+
+    /**
+     * Creates a new map of a file with the given number of
+     * sectors, all of them free.
+     *
+     * @param size the number of sectors
+     */
+    SectorMap(int size) {
+        this.words = new long[Math.max(1, (size + 63) >>> 6)];
+        this.size = size;
+    }
+
+    /**
+     * Obtains the number of sectors in the file.
+     *
+     * @return the file size in sectors
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Obtains the number of sectors in the file which are
+     * not used by anything.
+     *
+     * @return the number of free sectors
+     */
+    int free() {
+        int used = 0;
+        for (long word : this.words) {
+            used += Long.bitCount(word);
+        }
+        return this.size - used;
+    }
+
+    /**
+     * Marks the given sectors as used, growing the file if
+     * they are past its end.
+     *
+     * @param start the first sector
+     * @param length the number of sectors
+     */
+    void set(int start, int length) {
+        this.ensure(start + length);
+        for (int i = start, end = start + length; i < end; i++) {
+            this.words[i >>> 6] |= 1L << i;
+        }
+    }
+
+    /**
+     * Marks the given sectors as free.
+     *
+     * @param start the first sector
+     * @param length the number of sectors
+     */
+    void clear(int start, int length) {
+        for (int i = start, end = Math.min(start + length, this.size); i < end; i++) {
+            this.words[i >>> 6] &= ~(1L << i);
+        }
+    }
+
+    /**
+     * Finds the smallest free run of at least the given
+     * length and marks it as used.
+     *
+     * @param length the number of sectors needed
+     * @return the first sector of the allocated run
+     */
+    int allocate(int length) {
+        int best = -1;
+        int bestLength = Integer.MAX_VALUE;
+        int tail = this.size;
+
+        int start = this.nextFree(0);
+        while (start < this.size) {
+            int end = this.nextUsed(start);
+            int run = end - start;
+            if (end == this.size) {
+                tail = start;
+            }
+
+            if (run >= length && run < bestLength) {
+                best = start;
+                bestLength = run;
+                if (run == length) {
+                    break;
+                }
+            }
+
+            start = this.nextFree(end);
+        }
+
+        if (best < 0) {
+            best = tail;
+        }
+
+        this.set(best, length);
+        return best;
+    }
+
+    /**
+     * Finds the first free sector at or after the given
+     * one, or the file size if there is none.
+     */
+    private int nextFree(int from) {
+        int w = from >>> 6;
+        if (w >= this.words.length) {
+            return this.size;
+        }
+
+        long word = ~this.words[w] & -1L << from;
+        while (true) {
+            if (word != 0) {
+                return Math.min(this.size, (w << 6) + Long.numberOfTrailingZeros(word));
+            }
+
+            if (++w == this.words.length) {
+                return this.size;
+            }
+            word = ~this.words[w];
+        }
+    }
+
+    /**
+     * Finds the first used sector at or after the given
+     * one, or the file size if there is none.
+     */
+    private int nextUsed(int from) {
+        int w = from >>> 6;
+        if (w >= this.words.length) {
+            return this.size;
+        }
+
+        long word = this.words[w] & -1L << from;
+        while (true) {
+            if (word != 0) {
+                return Math.min(this.size, (w << 6) + Long.numberOfTrailingZeros(word));
+            }
+
+            if (++w == this.words.length) {
+                return this.size;
+            }
+            word = this.words[w];
+        }
+    }
+
+    /**
+     * Grows the file to at least the given number of
+     * sectors.
+     */
+    private void ensure(int size) {
+        if (size <= this.size) {
+            return;
+        }
+
+        int words = (size + 63) >>> 6;
+        if (words > this.words.length) {
+            this.words = Arrays.copyOf(this.words, Math.max(words, this.words.length * 2));
+        }
+        this.size = size;
+    }
+}
@@ -20,8 +20,6 @@ import lombok.Getter;
 import net.tridentsdk.base.Block;
 import net.tridentsdk.base.Position;
 import net.tridentsdk.base.Substance;
-import net.tridentsdk.server.packet.play.PlayOutBlockChange;
-import net.tridentsdk.server.player.RecipientSelector;
 
 import javax.annotation.concurrent.Immutable;
 
@@ -91,8 +89,6 @@ public final class TridentBlock implements Block {
         // e.g. switching from colored wool to grass
         short state = (short) (substance.getId() << 4);
         chunk.set(this.relX, this.relY, this.relZ, state);
-
-        RecipientSelector.whoCanSee(chunk, null, new PlayOutBlockChange(this.position, state));
     }
 
     @Override
@@ -107,8 +103,6 @@ public final class TridentBlock implements Block {
         int substanceId = chunk.get(this.relX, this.relY, this.relZ) >> 4;
         short state = (short) (substanceId << 4 | data & 0xF);
         chunk.set(this.relX, this.relY, this.relZ, state);
-
-        RecipientSelector.whoCanSee(chunk, null, new PlayOutBlockChange(this.position, state));
     }
 
     @Override
@@ -117,8 +111,6 @@ public final class TridentBlock implements Block {
         // rshift needed to reset the lower bits
         short state = (short) (substance.getId() << 4 | data & 0xF);
         chunk.set(this.relX, this.relY, this.relZ, state);
-
-        RecipientSelector.whoCanSee(chunk, null, new PlayOutBlockChange(this.position, state));
     }
 
     /**
@@ -26,8 +26,13 @@ import net.tridentsdk.meta.nbt.Tag;
 import net.tridentsdk.server.concurrent.PoolSpec;
 import net.tridentsdk.server.concurrent.ServerThreadPool;
 import net.tridentsdk.server.entity.TridentEntity;
+import net.tridentsdk.server.packet.PacketOut;
+import net.tridentsdk.server.packet.play.PlayOutBlockChange;
+import net.tridentsdk.server.packet.play.PlayOutChunk;
+import net.tridentsdk.server.packet.play.PlayOutMultiBlockChange;
+import net.tridentsdk.server.player.RecipientSelector;
 import net.tridentsdk.server.player.TridentPlayer;
-import net.tridentsdk.server.util.UncheckedCdl;
+import net.tridentsdk.server.util.ShortOpenHashSet;
 import net.tridentsdk.server.world.gen.GeneratorContextImpl;
 import net.tridentsdk.world.Chunk;
 import net.tridentsdk.world.gen.*;
@@ -35,9 +40,9 @@ import net.tridentsdk.world.opt.Dimension;
 import net.tridentsdk.world.opt.GenOpts;
 
 import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.Set;
@@ -63,6 +68,30 @@ public class TridentChunk implements Chunk {
      */
     private static final ServerThreadPool DEFAULT_POOL = ServerThreadPool.forSpec(PoolSpec.PLUGINS);
 
+    /**
+     * The approximate size of one record in a multi block
+     * change packet: a byte for the horizontal position, a
+     * byte for the height and the block state as a VarInt,
+     * which takes 1 or 2 bytes for most blocks
+     */
+    private static final int RECORD_BYTES = 3;
+    /**
+     * The smallest size of a non-empty section in a chunk
+     * packet: block data at the narrowest 4 bits per block,
+     * plus the block light and sky light arrays
+     */
+    private static final int SECTION_BYTES = 4096 / 2 + 2048 + 2048;
+    /**
+     * The size of the biome array sent with a whole chunk
+     */
+    private static final int BIOME_BYTES = 256;
+    /**
+     * The number of changes at which an empty chunk is sent
+     * again rather than sending the changed blocks, the
+     * lowest threshold that any chunk can have
+     */
+    private static final int MIN_RESEND_THRESHOLD = BIOME_BYTES / RECORD_BYTES;
+
     private static final int USABLE = -1;
     private static final int TRANSITION = 0;
     private static final int UNUSABLE = 1;
@@ -72,14 +101,44 @@ public class TridentChunk implements Chunk {
      */
     private final AtomicInteger useState = new AtomicInteger(USABLE);
     /**
-     * Whether or not this chunk is being generated
+     * Lock protecting the generation stage of this chunk
      */
-    private final AtomicBoolean generationInProgress = new AtomicBoolean();
+    private final Object genLock = new Object();
     /**
-     * The ready getState for this chunk, whether it has fully
-     * generated yet.
+     * The stage that this chunk has reached
      */
-    private final UncheckedCdl ready = new UncheckedCdl(1);
+    @GuardedBy("genLock")
+    private ChunkStatus status = ChunkStatus.EMPTY;
+    /**
+     * The furthest stage that has been requested
+     */
+    @GuardedBy("genLock")
+    private ChunkStatus target = ChunkStatus.EMPTY;
+    /**
+     * Whether a stage is being run
+     */
+    @GuardedBy("genLock")
+    private boolean advancing;
+    /**
+     * The context holding the blocks generated so far,
+     * until they are copied into the chunk
+     */
+    private volatile GeneratorContextImpl context;
+    /**
+     * Whether this chunk was modified since it was last
+     * saved
+     */
+    private volatile boolean dirty;
+    /**
+     * The ready getState for this chunk, completed once it
+     * has fully loaded or generated.
+     */
+    private final CompletableFuture<TridentChunk> ready = new CompletableFuture<>();
+    /**
+     * The futures completed once this chunk reaches each
+     * stage, the last being {@link #ready}
+     */
+    private final CompletableFuture<TridentChunk>[] stages = this.newStages();
     /**
      * The world in which this chunk is located
      */
@@ -108,10 +167,9 @@ public class TridentChunk implements Chunk {
      */
     private final AtomicReferenceArray<ChunkSection> sections = new AtomicReferenceArray<>(16);
     /**
-     * The height map for this chunk, 16x16 indexed by x
-     * across then adding z (x << 4 | z & 0xF)
+     * The height map for this chunk
      */
-    private final AtomicIntegerArray heights = new AtomicIntegerArray(256);
+    private final HeightMap heights = new HeightMap();
     /**
      * The number of ticks that all players have spent in
      * this chunk
@@ -134,6 +192,30 @@ public class TridentChunk implements Chunk {
     @Getter
     private final Set<TridentEntity> entitySet = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
+    /**
+     * The lock guarding the changed blocks
+     */
+    private final Object changeLock = new Object();
+    /**
+     * The blocks changed since changes were last sent,
+     * indexed by {@code y << 8 | z << 4 | x}, or
+     * {@code null} if no block has changed yet
+     */
+    @GuardedBy("changeLock")
+    private ShortOpenHashSet changes;
+    /**
+     * Whether enough blocks have changed that the chunk
+     * will be sent again instead
+     */
+    @GuardedBy("changeLock")
+    private boolean resendAll;
+    /**
+     * The resend threshold computed for the changes since
+     * the last flush, or 0 if it has not been needed yet
+     */
+    @GuardedBy("changeLock")
+    private int threshold;
+
     /**
      * Creates a new chunk at the specified coordinates.
      *
@@ -151,6 +233,10 @@ public class TridentChunk implements Chunk {
         } else {
             this.emptyPlaceholder = ChunkSection.EMPTY_WITHOUT_SKYLIGHT;
         }
+
+        // Light flows in from and out to the neighbors once
+        // the chunk can be relit
+        this.ready.thenRun(() -> world.getLightEngine().chunkReady(this));
     }
 
     /**
@@ -158,54 +244,156 @@ public class TridentChunk implements Chunk {
      * entities, stateful blocks, and entities.
      */
     public void tick() {
-        ARBITRARY_POOL.execute(() -> {
-            this.inhabited.add(this.occupants.size());
+        ARBITRARY_POOL.execute(() -> this.inhabited.add(this.occupants.size()));
+    }
 
-            if (this.world.getTime() == 0) {
-                this.checkValidForGc();
+    /**
+     * Creates the futures for each generation stage.
+     */
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<TridentChunk>[] newStages() {
+        int len = ChunkStatus.values().length;
+        CompletableFuture<TridentChunk>[] stages = new CompletableFuture[len];
+        for (int i = 0; i < len - 1; i++) {
+            stages[i] = new CompletableFuture<>();
+        }
+        stages[len - 1] = this.ready;
+        stages[0].complete(this);
+        return stages;
+    }
+
+    /**
+     * Generates the chunk, loading it from the region file
+     * if it has been saved before.
+     *
+     * @return a future completed with this chunk once it
+     * is ready
+     * @see #generate(ChunkStatus)
+     */
+    public CompletableFuture<TridentChunk> generate() {
+        return this.generate(ChunkStatus.READY);
+    }
+
+    /**
+     * Generates the chunk up to the given stage, loading it
+     * from the region file if it has been saved before.
+     *
+     * <p>Each stage runs on the chunk pools once the
+     * neighbors it depends on have reached their required
+     * stage; this method returns immediately and never
+     * waits for the chunk to finish.</p>
+     *
+     * @param target the stage to reach
+     * @return a future completed with this chunk once it
+     * reaches the stage
+     */
+    public CompletableFuture<TridentChunk> generate(ChunkStatus target) {
+        boolean start = false;
+        synchronized (this.genLock) {
+            if (target.compareTo(this.target) > 0) {
+                this.target = target;
+                if (!this.advancing) {
+                    this.advancing = true;
+                    start = true;
+                }
             }
-        });
+        }
+
+        if (start) {
+            ARBITRARY_POOL.execute(this::advance);
+        }
+        return this.stages[target.ordinal()];
+    }
+
+    /**
+     * Obtains the stage that this chunk has reached.
+     *
+     * @return the generation stage
+     */
+    public ChunkStatus getStatus() {
+        synchronized (this.genLock) {
+            return this.status;
+        }
     }
 
     /**
-     * Generates the chunk.
+     * Runs the next stage once its neighbors are far enough
+     * along, repeating until the target stage is reached.
      */
-    public void generate() {
-        if (!this.generationInProgress.compareAndSet(false, true)) {
+    private void advance() {
+        ChunkStatus next;
+        synchronized (this.genLock) {
+            if (this.status.compareTo(this.target) >= 0) {
+                this.advancing = false;
+                next = null;
+            } else {
+                next = this.status.next();
+            }
+        }
+
+        if (next == null) {
+            // Chunks no longer being generated may be
+            // unloaded if no ticket is placed on them
+            this.world.getTickets().loaded(this.x, this.z);
             return;
         }
 
-        Region region = Region.getFile(this, false);
-        if (region == null) {
-            this.runGenerator();
-        } else {
-            int rX = this.x & 31;
-            int rZ = this.z & 31;
-            if (region.hasChunk(rX, rZ)) {
-                try (DataInputStream in = region.getChunkDataInputStream(rX, rZ)) {
-                    Tag.Compound compound = Tag.decode(in).getCompound("Level");
-                    CompletableFuture.runAsync(() -> this.read(compound), ARBITRARY_POOL).
-                            whenCompleteAsync((v, t) -> {
-                                if (this.ready.getCount() == 1) {
-                                    this.runGenerator();
-                                }
-                            }, ARBITRARY_POOL);
-                    this.waitReady();
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
+        this.neighbors(next.getNeighbors()).
+                thenComposeAsync(v -> this.runStage(next), ARBITRARY_POOL).
+                whenComplete((v, t) -> {
+                    if (t != null) {
+                        this.fail(next, t);
+                        return;
+                    }
+
+                    synchronized (this.genLock) {
+                        if (next.compareTo(this.status) > 0) {
+                            this.status = next;
+                        }
+                    }
+                    this.stages[next.ordinal()].complete(this);
+                    this.advance();
+                });
+    }
+
+    /**
+     * Requests the 8 surrounding chunks to reach the given
+     * stage.
+     *
+     * @param required the stage the neighbors must reach,
+     * or {@code null} if there is no requirement
+     * @return a future completed once every neighbor has
+     * reached the stage
+     */
+    private CompletableFuture<?> neighbors(ChunkStatus required) {
+        if (required == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<?>[] futures = new CompletableFuture[8];
+        int i = 0;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                if (dx != 0 || dz != 0) {
+                    futures[i++] = this.world.getChunks().getOrCreate(this.x + dx, this.z + dz).generate(required);
                 }
-            } else {
-                this.runGenerator();
             }
         }
+
+        return CompletableFuture.allOf(futures);
     }
 
     /**
-     * Runs the custom generator function when the data is
-     * not loaded into memory, or if the chunk has no data
-     * to load.
+     * Runs a single generation stage.
+     *
+     * <p>The tasks scheduled by the generators are chained
+     * on rather than awaited, so no generator thread is
+     * parked.</p>
+     *
+     * @param stage the stage to run
+     * @return a future completed once the stage is done
      */
-    private void runGenerator() {
+    private CompletableFuture<Void> runStage(ChunkStatus stage) {
         GenOpts opts = this.world.getGeneratorOptions();
         GeneratorProvider provider = opts.getProvider();
 
@@ -216,53 +404,141 @@ public class TridentChunk implements Chunk {
             container = ARBITRARY_POOL;
         }
 
-        TerrainGenerator terrain = provider.getTerrainGenerator(this.world);
-        Set<PropGenerator> props = provider.getPropGenerators(this.world);
-        Set<FeatureGenerator> features = provider.getFeatureGenerators(this.world);
-        GeneratorContextImpl context = new GeneratorContextImpl(container, opts.getSeed(),
-                this.world.getDimension() == Dimension.OVERWORLD);
+        GeneratorContextImpl context = this.context;
+        switch (stage) {
+            case TERRAIN:
+                if (this.load()) {
+                    return CompletableFuture.completedFuture(null);
+                }
 
-        CompletableFuture.supplyAsync(() -> {
-            terrain.generate(this.x, this.z, context);
-            for (FeatureGenerator generator : features) {
-                generator.generate(this.x, this.z, context);
-            }
+                GeneratorContextImpl created = new GeneratorContextImpl(container, opts.getSeed(),
+                        this.world.getDimension() == Dimension.OVERWORLD);
+                this.context = created;
 
-            UncheckedCdl latch = context.getCount();
-            context.doRun(latch);
-            return latch;
-        }, container).thenApplyAsync(l -> {
-            l.await();
-            context.reset();
+                TerrainGenerator terrain = provider.getTerrainGenerator(this.world);
+                return CompletableFuture.runAsync(() -> terrain.generate(this.x, this.z, created), container).
+                        thenCompose(v -> created.doRun());
+            case FEATURES:
+                Set<FeatureGenerator> features = provider.getFeatureGenerators(this.world);
+                return CompletableFuture.runAsync(() -> {
+                    for (FeatureGenerator generator : features) {
+                        generator.generate(this.x, this.z, context);
+                    }
+                }, container).thenCompose(v -> context.doRun());
+            case PROPS:
+                Set<PropGenerator> props = provider.getPropGenerators(this.world);
+                return CompletableFuture.runAsync(() -> {
+                    for (PropGenerator generator : props) {
+                        generator.generate(this.x, this.z, context);
+                    }
+                }, container).thenCompose(v -> context.doRun());
+            case LIT:
+                context.copySections(this.sections);
+                context.copyHeights(this.heights);
+                this.world.getLightEngine().initChunk(this);
+                this.markDirty();
+                return CompletableFuture.completedFuture(null);
+            default:
+                this.context = null;
+                return CompletableFuture.completedFuture(null);
+        }
+    }
 
-            for (PropGenerator generator : props) {
-                generator.generate(this.x, this.z, context);
+    /**
+     * Loads this chunk from its region file, if it has
+     * been saved before.
+     *
+     * @return {@code true} if the chunk was loaded and is
+     * ready
+     */
+    private boolean load() {
+        // The chunk may have been unloaded recently and not
+        // yet written, in which case its region file is out
+        // of date. It stays modified in case the pending
+        // write fails.
+        Tag.Compound pending = this.world.getSaveQueue().pendingData(this);
+        if (pending != null) {
+            this.read(pending);
+            this.markDirty();
+            return this.isReady();
+        }
+
+        Region region = Region.acquire(this, false);
+        if (region != null) {
+            int rX = this.x & 31;
+            int rZ = this.z & 31;
+            try {
+                if (region.hasChunk(rX, rZ)) {
+                    try (DataInputStream in = region.getChunkDataInputStream(rX, rZ)) {
+                        this.read(Tag.decode(in).getCompound("Level"));
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            } finally {
+                region.release();
             }
+        }
 
-            UncheckedCdl latch = context.getCount();
-            context.doRun(latch);
+        return this.isReady();
+    }
 
-            return latch;
-        }, container).thenAcceptAsync(l -> {
-            l.await();
-            context.copySections(this.sections);
-            context.copyHeights(this.heights);
+    /**
+     * Fails every stage from the given one onwards.
+     */
+    private void fail(ChunkStatus stage, Throwable t) {
+        synchronized (this.genLock) {
+            this.advancing = false;
+        }
 
-            this.ready.countDown();
-        }, container);
+        for (int i = stage.ordinal(); i < this.stages.length; i++) {
+            this.stages[i].completeExceptionally(t);
+        }
+    }
 
-        this.waitReady();
+    /**
+     * Determines whether a generation stage is currently
+     * being run for this chunk.
+     *
+     * @return {@code true} if the chunk is being generated
+     */
+    public boolean isGenerating() {
+        synchronized (this.genLock) {
+            return this.advancing;
+        }
+    }
+
+    /**
+     * Obtains the future which is completed once this chunk
+     * has finished loading or generating.
+     *
+     * @return the ready future
+     */
+    public CompletableFuture<TridentChunk> whenReady() {
+        return this.ready;
     }
 
     /**
      * Awaits for the chunk ready getState to finish,
      * indicating that the chunk has finished generation.
      *
+     * <p>This blocks the caller, prefer
+     * {@link #whenReady()} from pool threads.</p>
+     *
      * @return the chunk, when ready
      */
     public TridentChunk waitReady() {
-        this.ready.await();
-        return this;
+        return this.ready.join();
+    }
+
+    /**
+     * Determines whether this chunk has finished loading
+     * or generating.
+     *
+     * @return {@code true} if the chunk is ready
+     */
+    public boolean isReady() {
+        return this.ready.isDone() && !this.ready.isCompletedExceptionally();
     }
 
     /**
@@ -278,13 +554,16 @@ public class TridentChunk implements Chunk {
 
         // Copy chunk sections to local array in order to
         // prevent updates from breaking the packet
+        //
+        // Empty sections are left out of the mask, the
+        // client fills them in with air
         short mask = 0;
         ChunkSection[] sections = new ChunkSection[16];
         for (int i = 0; i < 16; i++) {
             ChunkSection sec = this.sections.get(i);
             sections[i] = sec;
 
-            if (sec != null) {
+            if (sec != null && !sec.isEmpty()) {
                 mask |= 1 << i;
             }
         }
@@ -292,23 +571,25 @@ public class TridentChunk implements Chunk {
         // Write the continuous mask
         wvint(buf, mask);
 
+        // Collect the cached section payloads so that the
+        // length is known without a temporary buffer
+        byte[][] payloads = new byte[len][];
+        int dataLen = continuous ? 256 : 0;
+        for (int i = 0; i < len; i++) {
+            if ((mask & 1 << i) == 1 << i) {
+                ChunkSection sec = sections[i];
+                byte[] payload = sec != null ? sec.encoded() : this.emptyPlaceholder.encoded();
+                payloads[i] = payload;
+                dataLen += payload.length;
+            }
+        }
+
         // Write section data
-        ByteBuf chunkData = buf.alloc().buffer();
-        try {
-            for (int i = 0; i < len; i++) {
-                if ((mask & 1 << i) == 1 << i) {
-                    ChunkSection sec = sections[i];
-                    if (sec != null) {
-                        sec.write(chunkData);
-                    } else {
-                        this.emptyPlaceholder.write(chunkData);
-                    }
-                }
+        wvint(buf, dataLen);
+        for (byte[] payload : payloads) {
+            if (payload != null) {
+                buf.writeBytes(payload);
             }
-            wvint(buf, chunkData.readableBytes() + (continuous ? 256 : 0));
-            buf.writeBytes(chunkData);
-        } finally {
-            chunkData.release();
         }
 
         // If continuous, write the biome data
@@ -355,53 +636,62 @@ public class TridentChunk implements Chunk {
     }
 
     /**
-     * Updates the usability state field in order to check
-     * if this chunk may still be used or is reclaimable.
+     * Marks this chunk as modified so that it is written by
+     * the next save.
+     */
+    public void markDirty() {
+        if (!this.dirty) {
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * Determines whether this chunk was modified since it
+     * was last saved.
+     *
+     * @return {@code true} if the chunk needs saving
      */
-    public void checkValidForGc() {
+    public boolean isDirty() {
+        return this.dirty;
+    }
+
+    /**
+     * Marks this chunk as saved, called right before it is
+     * serialized so that changes made while it is being
+     * written mark it again.
+     */
+    void clearDirty() {
+        this.dirty = false;
+    }
+
+    /**
+     * Unloads this chunk and saves it to the region file
+     * if it was modified, unless a player still holds it or
+     * it is being generated.
+     *
+     * <p>This is called by the world's
+     * {@link ChunkTickets} once no ticket has retained the
+     * chunk for the unload delay.</p>
+     *
+     * @return {@code true} if the chunk was unloaded
+     */
+    public boolean unload() {
         this.useState.set(TRANSITION);
 
-        int centerX = this.world.getWorldOptions().getSpawn().getIntX() >> 4;
-        int centerZ = this.world.getWorldOptions().getSpawn().getIntZ() >> 4;
-        if (this.holders.isEmpty() && (Math.abs(centerX - this.x) > 3 || Math.abs(centerZ - this.z) > 3)) {
+        if (this.holders.isEmpty() && !this.isGenerating()) {
             this.useState.set(UNUSABLE);
 
-            if (this.world.removeChunkAt(this.x, this.z) != null) {
-                Region region = Region.getFile(this, true);
-                int rX = this.x & 31;
-                int rZ = this.z & 31;
-                if (region.hasChunk(rX, rZ)) {
-                    try (DataInputStream in = region.getChunkDataInputStream(rX, rZ)) {
-                        Tag.Compound root = Tag.decode(in);
-                        Tag.Compound compound = root.getCompound("Level");
-                        CompletableFuture.runAsync(() -> this.write(compound), ARBITRARY_POOL).
-                                whenCompleteAsync((v, t) -> {
-                                    try (DataOutputStream out = region.getChunkDataOutputStream(rX, rZ)) {
-                                        root.write(out);
-                                    } catch (IOException e) {
-                                        throw new RuntimeException(e);
-                                    }
-                                }, ARBITRARY_POOL);
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                } else {
-                    ARBITRARY_POOL.execute(() -> {
-                        Tag.Compound root = new Tag.Compound("");
-                        Tag.Compound level = new Tag.Compound("Level");
-                        root.putCompound(level);
-                        this.write(level);
-
-                        try (DataOutputStream out = region.getChunkDataOutputStream(rX, rZ)) {
-                            root.write(out);
-                        } catch (IOException e) {
-                            throw new RuntimeException(e);
-                        }
-                    });
-                }
+            // Queue the save before the chunk leaves the map so
+            // that loading it again in between waits for it
+            if (this.dirty) {
+                this.world.getSaveQueue().save(this);
             }
+            this.world.removeChunkAt(this.x, this.z);
+
+            return true;
         } else {
             this.useState.set(USABLE);
+            return false;
         }
     }
 
@@ -411,10 +701,11 @@ public class TridentChunk implements Chunk {
      *
      * @param x the relative X
      * @param z the relative Z
-     * @return the highest Y value
+     * @return the highest Y value, or -1 if the column has
+     * no blocks
      */
     public int getHighestY(int x, int z) {
-        return this.heights.get(x << 4 | z & 0xF);
+        return this.heights.get(x, z);
     }
 
     /**
@@ -445,38 +736,346 @@ public class TridentChunk implements Chunk {
      * @param state The state of the block
      */
     public void set(int x, int y, int z, short state) {
-        int sectionIdx = y >> 4;
+        ChunkSection section = this.getOrCreateSection(y >> 4);
+        int idx = (y & 15) << 8 | z << 4 | x;
 
-        ChunkSection section = this.sections.get(sectionIdx);
-        if (section == null) {
-            ChunkSection newSec = new ChunkSection(this.world.getDimension() == Dimension.OVERWORLD);
-            if (this.sections.compareAndSet(sectionIdx, null, newSec)) {
-                section = newSec;
+        short old = section.set(idx, state);
+        updateHeight(this.heights, section, x, y, z);
+        this.markDirty();
+
+        if (LightEngine.affectsLight(old, state)) {
+            this.world.getLightEngine().enqueue(this.x << 4 | x, y, this.z << 4 | z);
+        }
+
+        boolean queue;
+        synchronized (this.changeLock) {
+            queue = this.markChanged(y << 8 | z << 4 | x);
+        }
+
+        if (queue) {
+            this.world.queueChanges(this);
+        }
+    }
+
+    /**
+     * Packs a block change at the given relative position
+     * into a change record.
+     *
+     * <p>The record holds the X coordinate in the top 4
+     * bits, then Z, then 8 bits of Y, then the 16 bit block
+     * state, matching the layout of the Multi Block Change
+     * packet.</p>
+     *
+     * @param x the relative x coordinate
+     * @param y the y coordinate
+     * @param z the relative z coordinate
+     * @param state the new block state
+     * @return the change record
+     */
+    public static int record(int x, int y, int z, short state) {
+        return x << 28 | (z & 0xF) << 24 | (y & 0xFF) << 16 | state & 0xFFFF;
+    }
+
+    /**
+     * Sets every block in the given change records, which
+     * are sent to the players holding this chunk on the
+     * next tick.
+     *
+     * <p>Records should be grouped by section, later
+     * records for the same block override earlier ones.
+     * </p>
+     *
+     * @param records the change records, created using
+     * {@link #record(int, int, int, short)}
+     * @param count the number of records to set
+     */
+    public void setAll(int[] records, int count) {
+        int[] relight = null;
+        int relightCount = 0;
+
+        ChunkSection section = null;
+        int sectionIdx = -1;
+        for (int i = 0; i < count; i++) {
+            int record = records[i];
+            int x = record >>> 28;
+            int z = record >>> 24 & 0xF;
+            int y = record >>> 16 & 0xFF;
+            short state = (short) record;
+
+            if (y >> 4 != sectionIdx) {
+                sectionIdx = y >> 4;
+                section = this.getOrCreateSection(sectionIdx);
+            }
+
+            short old = section.set((y & 15) << 8 | z << 4 | x, state);
+            updateHeight(this.heights, section, x, y, z);
+
+            if (LightEngine.affectsLight(old, state)) {
+                if (relight == null) {
+                    relight = new int[count - i];
+                }
+                relight[relightCount++] = record;
+            }
+        }
+
+        if (count > 0) {
+            this.markDirty();
+        }
+
+        if (relightCount > 0) {
+            this.world.getLightEngine().enqueue(this, relight, relightCount);
+        }
+
+        boolean queue;
+        synchronized (this.changeLock) {
+            if (count >= MIN_RESEND_THRESHOLD && count >= this.flushThreshold()) {
+                queue = this.markChanged(-1);
             } else {
-                section = this.sections.get(sectionIdx);
+                queue = false;
+                for (int i = 0; i < count; i++) {
+                    int record = records[i];
+                    int x = record >>> 28;
+                    int z = record >>> 24 & 0xF;
+                    int y = record >>> 16 & 0xFF;
+                    queue |= this.markChanged(y << 8 | z << 4 | x);
+                }
+            }
+        }
+
+        if (queue) {
+            this.world.queueChanges(this);
+        }
+    }
+
+    /**
+     * Obtains the number of changed blocks at which sending
+     * this chunk again is smaller than sending the changes.
+     *
+     * <p>Each change costs about {@link #RECORD_BYTES} in a
+     * multi block change packet, while the chunk packet
+     * costs at least {@link #SECTION_BYTES} for each section
+     * that is not empty. A chunk of terrain with a handful of
+     * sections is therefore only resent after several
+     * thousand changes, while a mostly empty chunk is resent
+     * much sooner.</p>
+     *
+     * @return the number of changes to resend the chunk at
+     */
+    private int resendThreshold() {
+        int sections = 0;
+        for (int i = 0; i < this.sections.length(); i++) {
+            ChunkSection section = this.sections.get(i);
+            if (section != null && !section.isEmpty()) {
+                sections++;
             }
         }
 
-        int heightIdx = x << 4 | z & 0xF;
-        int height;
-        int newHeight;
+        return (sections * SECTION_BYTES + BIOME_BYTES) / RECORD_BYTES;
+    }
+
+    /**
+     * Obtains the resend threshold for the changes since
+     * the last flush, scanning the sections only the first
+     * time it is needed rather than for every change.
+     *
+     * @return the number of changes to resend the chunk at
+     */
+    @GuardedBy("changeLock")
+    private int flushThreshold() {
+        int threshold = this.threshold;
+        if (threshold == 0) {
+            threshold = this.threshold = this.resendThreshold();
+        }
+        return threshold;
+    }
+
+    /**
+     * Records that the block at the given index has
+     * changed.
+     *
+     * @param index the block index, {@code y << 8 | z << 4
+     * | x}, or {@code -1} to send the whole chunk
+     * @return {@code true} if this is the first change
+     * since the last flush, and the chunk must be queued
+     */
+    @GuardedBy("changeLock")
+    private boolean markChanged(int index) {
+        if (this.resendAll) {
+            return false;
+        }
+
+        boolean first = this.changes == null || this.changes.isEmpty();
+        if (index == -1) {
+            this.resendAll = true;
+        } else {
+            if (this.changes == null) {
+                this.changes = new ShortOpenHashSet();
+            }
+
+            this.changes.add((short) index);
+            int size = this.changes.size();
+            if (size >= MIN_RESEND_THRESHOLD && size >= this.flushThreshold()) {
+                this.resendAll = true;
+            }
+        }
+
+        if (this.resendAll && this.changes != null) {
+            this.changes.clear();
+        }
+
+        return first;
+    }
+
+    /**
+     * Sends the blocks that have changed since the last
+     * flush to the players holding this chunk.
+     *
+     * <p>Blocks that were changed multiple times are only
+     * sent once, with the state they hold now.</p>
+     */
+    public void flushChanges() {
+        int[] records = null;
+        int count = 0;
+        boolean resend;
+        synchronized (this.changeLock) {
+            resend = this.resendAll;
+            this.resendAll = false;
+            this.threshold = 0;
+
+            if (this.changes != null) {
+                if (!resend) {
+                    records = new int[this.changes.size()];
+                    ShortOpenHashSet.SetIterator it = this.changes.iterator();
+                    while (it.hasNext()) {
+                        records[count++] = it.nextShort() & 0xFFFF;
+                    }
+                }
+
+                this.changes.clear();
+            }
+        }
+
+        if (this.holders.isEmpty()) {
+            return;
+        }
+
+        if (resend) {
+            RecipientSelector.whoCanSee(this, null, new PlayOutChunk(this));
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            int index = records[i];
+            int x = index & 15;
+            int z = index >> 4 & 15;
+            int y = index >> 8;
+            records[i] = record(x, y, z, this.get(x, y, z));
+        }
+
+        this.sendChanges(records, count);
+    }
+
+    /**
+     * Sends the given block changes to the players
+     * holding this chunk, using a single block change, a
+     * multi block change, or the entire chunk depending on
+     * the number of changes.
+     *
+     * @param records the change records
+     * @param count the number of records to send
+     */
+    public void sendChanges(int[] records, int count) {
+        if (count == 0 || this.holders.isEmpty()) {
+            return;
+        }
+
+        PacketOut packet;
+        if (count == 1) {
+            int record = records[0];
+            Position position = new Position(this.world, this.x << 4 | record >>> 28, record >>> 16 & 0xFF,
+                    this.z << 4 | record >>> 24 & 0xF);
+            packet = new PlayOutBlockChange(position, record & 0xFFFF);
+        } else if (count >= MIN_RESEND_THRESHOLD && count >= this.resendThreshold()) {
+            packet = new PlayOutChunk(this);
+        } else {
+            packet = new PlayOutMultiBlockChange(this.x, this.z, records, count);
+        }
+
+        RecipientSelector.whoCanSee(this, null, packet);
+    }
+
+    /**
+     * Updates the height map after the block at the given
+     * position was set.
+     *
+     * <p>The block is checked again after updating in case
+     * a concurrent set finished in between, so that the
+     * height map always ends up matching the last block
+     * set.</p>
+     *
+     * @param heights the height map to update
+     * @param section the section containing the block
+     * @param x the relative x coordinate
+     * @param y the y coordinate
+     * @param z the relative z coordinate
+     */
+    public static void updateHeight(HeightMap heights, ChunkSection section, int x, int y, int z) {
+        int idx = (y & 15) << 8 | z << 4 | x;
+        boolean occupied;
         do {
-            height = this.heights.get(heightIdx);
-            newHeight = height;
+            occupied = section.dataAt(idx) >> 4 != 0;
+            heights.update(x, y, z, occupied);
+        } while (section.dataAt(idx) >> 4 != 0 != occupied);
+    }
 
-            if (y > height) {
-                newHeight = height;
-            } else {
-                for (int i = height; i >= 0; i--) {
-                    if (this.get(x, i, z) >> 4 != 0) {
-                        newHeight = i;
-                        break;
+    /**
+     * Obtains the section at the given section index.
+     *
+     * @param idx the section index, 0-15
+     * @return the section, or {@code null} if it has not
+     * been created
+     */
+    public ChunkSection getSection(int idx) {
+        return this.sections.get(idx);
+    }
+
+    /**
+     * Obtains the section at the given section index,
+     * creating an empty section if one does not exist.
+     *
+     * <p>A new section has sky light only above the highest
+     * block of each column, as a missing section is lit.</p>
+     *
+     * @param idx the section index, 0-15
+     * @return the section
+     */
+    public ChunkSection getOrCreateSection(int idx) {
+        ChunkSection section = this.sections.get(idx);
+        if (section == null) {
+            boolean overworld = this.world.getDimension() == Dimension.OVERWORLD;
+            ChunkSection newSec = new ChunkSection(overworld);
+            if (overworld) {
+                int base = idx << 4;
+                for (int x = 0; x < 16; x++) {
+                    for (int z = 0; z < 16; z++) {
+                        // Empty columns are -1, so none of their
+                        // blocks are shaded
+                        int shaded = Math.min(15, this.heights.get(x, z) - base);
+                        for (int y = 0; y <= shaded; y++) {
+                            newSec.setSkyLight(y << 8 | z << 4 | x, (byte) 0);
+                        }
                     }
                 }
             }
-        } while (!this.heights.compareAndSet(heightIdx, height, newHeight));
 
-        section.set((y & 15) << 8 | z << 4 | x, state);
+            if (this.sections.compareAndSet(idx, null, newSec)) {
+                section = newSec;
+            } else {
+                section = this.sections.get(idx);
+            }
+        }
+
+        return section;
     }
 
     /**
@@ -496,14 +1095,16 @@ public class TridentChunk implements Chunk {
             this.sections.set(y, section);
         }
 
-        int[] heightMap = compound.getIntArray("HeightMap");
-        for (int i = 0; i < heightMap.length; i++) {
-            this.heights.set(i, heightMap[i]);
-        }
+        this.heights.rebuild(this.sections);
 
         if (compound.getByte("TerrainPopulated") == 1) {
-            this.generationInProgress.set(true);
-            this.ready.countDown();
+            synchronized (this.genLock) {
+                this.status = ChunkStatus.READY;
+            }
+
+            for (CompletableFuture<TridentChunk> stage : this.stages) {
+                stage.complete(this);
+            }
         }
     }
 
@@ -521,7 +1122,7 @@ public class TridentChunk implements Chunk {
         compound.putInt("xPos", this.x);
         compound.putInt("zPos", this.z);
 
-        byte hasGenerated = (byte) (this.ready.getCount() == 0 ? 1 : 0);
+        byte hasGenerated = (byte) (this.isReady() ? 1 : 0);
         compound.putByte("TerrainPopulated", hasGenerated);
         compound.putByte("LightPopulated", hasGenerated);
         compound.putLong("InhabitedTime", this.inhabited.longValue());
@@ -539,9 +1140,11 @@ public class TridentChunk implements Chunk {
         }
         compound.putList("Sections", sectionList);
 
-        int[] heightMap = new int[this.heights.length()];
+        // Stored as the lowest Y with full sky light, as the
+        // game does, which is 0 for an empty column
+        int[] heightMap = new int[256];
         for (int i = 0; i < heightMap.length; i++) {
-            heightMap[i] = this.heights.get(i);
+            heightMap[i] = this.heights.get(i >> 4, i & 15) + 1;
         }
         compound.putIntArray("HeightMap", heightMap);
     }
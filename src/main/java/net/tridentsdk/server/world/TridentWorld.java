@@ -17,13 +17,16 @@
 package net.tridentsdk.server.world;
 
 import lombok.Getter;
+import lombok.Setter;
 import net.tridentsdk.base.Block;
 import net.tridentsdk.base.Position;
 import net.tridentsdk.entity.Entity;
 import net.tridentsdk.entity.living.Player;
 import net.tridentsdk.meta.nbt.Tag;
+import net.tridentsdk.server.TridentServer;
 import net.tridentsdk.server.concurrent.PoolSpec;
 import net.tridentsdk.server.concurrent.ServerThreadPool;
+import net.tridentsdk.server.config.ServerConfig;
 import net.tridentsdk.server.entity.TridentEntity;
 import net.tridentsdk.server.packet.play.PlayOutTime;
 import net.tridentsdk.server.player.RecipientSelector;
@@ -45,8 +48,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Stream;
@@ -68,6 +75,11 @@ public class TridentWorld implements World {
      * call to the ticking handler
      */
     private final Runnable tickingTask = this::doTick;
+    /**
+     * Whether a tick is running, so that a tick which
+     * overruns is not overlapped by the next one
+     */
+    private final AtomicBoolean ticking = new AtomicBoolean();
 
     /**
      * The chunk collection
@@ -113,6 +125,43 @@ public class TridentWorld implements World {
      */
     @Getter
     private final WeatherImpl weather = new WeatherImpl(this);
+    /**
+     * The engine used to relight blocks in this world
+     */
+    @Getter
+    private final LightEngine lightEngine;
+    /**
+     * The scheduler for chunks requested by players
+     */
+    @Getter
+    private final ChunkLoadQueue loadQueue = new ChunkLoadQueue(this);
+    /**
+     * The tickets deciding which chunks stay loaded
+     */
+    @Getter
+    private final ChunkTickets tickets = new ChunkTickets(this);
+    /**
+     * The queue writing chunks to the region files
+     */
+    @Getter
+    private final ChunkSaveQueue saveQueue = new ChunkSaveQueue();
+    /**
+     * The periodic save of modified chunks
+     */
+    @Getter
+    private final ChunkAutosave autosave = new ChunkAutosave(this);
+    /**
+     * The background generation of chunks around spawn, or
+     * {@code null} if none is running
+     */
+    @Getter
+    @Setter
+    private volatile WorldPregenerator pregenerator;
+    /**
+     * The time taken by the last tick, in nanoseconds
+     */
+    @Getter
+    private volatile long lastTickNanos;
 
     /**
      * The current world time, in ticks.
@@ -137,6 +186,11 @@ public class TridentWorld implements World {
      */
     @Getter
     private final Set<TridentEntity> entitySet = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    /**
+     * The chunks which have blocks changes that have not
+     * yet been sent
+     */
+    private final Queue<TridentChunk> changedChunks = new ConcurrentLinkedQueue<>();
 
     /**
      * Creates a new world with the given name, folder, and
@@ -150,6 +204,7 @@ public class TridentWorld implements World {
         this.name = name;
         this.directory = enclosing;
         this.dimension = spec.getDimension();
+        this.lightEngine = new LightEngine(this);
 
         // this is only ok because we aren't passing the
         // instance to another thread viewable object
@@ -168,6 +223,7 @@ public class TridentWorld implements World {
         this.name = name;
         this.directory = enclosing;
         this.dimension = dimension;
+        this.lightEngine = new LightEngine(this);
 
         try (GZIPInputStream stream = new GZIPInputStream(new FileInputStream(this.directory.resolve("level.dat").toFile()))) {
             Tag.Compound root = Tag.decode(new DataInputStream(stream));
@@ -188,9 +244,12 @@ public class TridentWorld implements World {
     public void loadSpawnChunks() {
         int centerX = this.worldOptions.getSpawn().getIntX() >> 4;
         int centerZ = this.worldOptions.getSpawn().getIntZ() >> 4;
-        int radius = 3;
-        for (int x = centerX - radius; x < centerX + radius; x++) {
-            for (int z = centerZ - radius; z < centerZ + radius; z++) {
+        ServerConfig cfg = TridentServer.cfg();
+        int radius = cfg == null ? ServerConfig.DEFAULT_SPAWN_CHUNK_RADIUS : cfg.spawnChunkRadius();
+
+        this.tickets.add(ChunkTickets.Type.SPAWN, centerX, centerZ, radius, this);
+        for (int x = centerX - radius; x <= centerX + radius; x++) {
+            for (int z = centerZ - radius; z <= centerZ + radius; z++) {
                 this.getChunkAt(x, z);
             }
         }
@@ -200,12 +259,24 @@ public class TridentWorld implements World {
      * The world ticking method.
      */
     public final void tick() {
-        // performs #doTick
-        TP.execute(this.tickingTask);
+        // performs #doTick, skipping this tick if the last
+        // one has not finished yet
+        if (this.ticking.compareAndSet(false, true)) {
+            TP.execute(this.tickingTask);
+        }
     }
 
     // Ticking implementation
     private void doTick() {
+        try {
+            this.tick0();
+        } finally {
+            this.ticking.set(false);
+        }
+    }
+
+    private void tick0() {
+        long start = System.nanoTime();
         this.age.increment();
 
         int curTime;
@@ -228,6 +299,32 @@ public class TridentWorld implements World {
         this.border.tick();
 
         this.chunks.forEach(TridentChunk::tick);
+        this.lightEngine.tick();
+        this.loadQueue.tick();
+        this.tickets.tick();
+        this.autosave.tick();
+
+        TridentChunk changed;
+        while ((changed = this.changedChunks.poll()) != null) {
+            changed.flushChanges();
+        }
+
+        this.lastTickNanos = System.nanoTime() - start;
+
+        WorldPregenerator pregenerator = this.pregenerator;
+        if (pregenerator != null && !pregenerator.tick(this.lastTickNanos)) {
+            this.pregenerator = null;
+        }
+    }
+
+    /**
+     * Queues the given chunk to send its block changes on
+     * the next tick.
+     *
+     * @param chunk the chunk with changed blocks
+     */
+    void queueChanges(TridentChunk chunk) {
+        this.changedChunks.offer(chunk);
     }
 
     @Override
@@ -257,6 +354,25 @@ public class TridentWorld implements World {
         return this.chunks.get(x, z, gen);
     }
 
+    /**
+     * Obtains the chunk at the given chunk coordinates,
+     * loading or generating it on the chunk pools if it
+     * does not exist yet.
+     *
+     * <p>Unlike {@link #getChunkAt(int, int)}, the caller
+     * is never blocked. Dependent work should be chained on
+     * the returned future, which runs immediately if the
+     * chunk is already loaded.</p>
+     *
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     * @return a future completed with the chunk once it is
+     * ready
+     */
+    public CompletableFuture<TridentChunk> getChunkAtAsync(int x, int z) {
+        return this.chunks.getAsync(x, z);
+    }
+
     @Override
     public Collection<? extends Chunk> getLoadedChunks() {
         return Collections.unmodifiableCollection(this.chunks.values());
@@ -272,6 +388,26 @@ public class TridentWorld implements World {
         return new TridentBlock(new Position(this, x, y, z));
     }
 
+    /**
+     * Creates a new cursor for reading and writing blocks
+     * in this world without allocating per block.
+     *
+     * @return the new block cursor
+     */
+    public BlockAccess newBlockAccess() {
+        return new BlockAccess(this);
+    }
+
+    /**
+     * Creates a new bulk edit which applies a batch of
+     * block changes to this world.
+     *
+     * @return the new bulk edit
+     */
+    public BulkEdit newBulkEdit() {
+        return new BulkEdit(this);
+    }
+
     /**
      * Removes the chunk from memory, without doing any save
      * or file write operations that are necessary to
@@ -324,17 +460,11 @@ public class TridentWorld implements World {
             }
 
             this.chunks.forEach(c -> {
-                Region region = Region.getFile(c, true);
-                try (DataOutputStream out = region.getChunkDataOutputStream(c.getX() & 31, c.getZ() & 31)) {
-                    Tag.Compound rootChunk = new Tag.Compound("");
-                    Tag.Compound chunkData = new Tag.Compound("Level");
-                    c.write(chunkData);
-                    rootChunk.putCompound(chunkData);
-                    rootChunk.write(out);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
+                if (c.isDirty()) {
+                    this.saveQueue.save(c);
                 }
             });
+            this.saveQueue.drain();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,323 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import lombok.Getter;
+import net.tridentsdk.logger.Logger;
+import net.tridentsdk.server.TridentServer;
+import net.tridentsdk.server.concurrent.PoolSpec;
+import net.tridentsdk.server.config.ServerConfig;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates and saves the chunks in a square around a
+ * center chunk in the background, ahead of players
+ * exploring them.
+ *
+ * <p>Chunks are requested in a spiral outwards from the
+ * center, a few at a time, and only on ticks where the
+ * world itself finished within the configured tick budget,
+ * so pre-generation yields to the server under load. Each
+ * chunk is saved and unloaded once it is done unless
+ * something else retains it, including the chunks which
+ * finish after pre-generation was cancelled.</p>
+ */
+@ThreadSafe
+public class WorldPregenerator {
+    private static final Logger LOGGER = Logger.get(WorldPregenerator.class);
+
+    /**
+     * The maximum number of chunks requested at once
+     */
+    private static final int MAX_IN_FLIGHT = PoolSpec.CHUNKS.getMaxThreads() * 2;
+    /**
+     * The ticks between progress reports
+     */
+    private static final int REPORT_TICKS = 200;
+
+    /**
+     * The world being generated
+     */
+    @Getter
+    private final TridentWorld world;
+    /**
+     * The center chunk coordinates
+     */
+    private final int centerX;
+    private final int centerZ;
+    /**
+     * The number of chunks to generate
+     */
+    @Getter
+    private final int total;
+
+    /**
+     * The position in the spiral, relative to the center,
+     * and the direction and length of the current leg
+     */
+    @GuardedBy("this")
+    private int x;
+    @GuardedBy("this")
+    private int z;
+    @GuardedBy("this")
+    private int dx = 1;
+    @GuardedBy("this")
+    private int dz;
+    @GuardedBy("this")
+    private int leg = 1;
+    @GuardedBy("this")
+    private int legPassed;
+    @GuardedBy("this")
+    private int turns;
+    /**
+     * The number of chunks requested so far
+     */
+    @GuardedBy("this")
+    private int requested;
+    /**
+     * The ticks run so far
+     */
+    @GuardedBy("this")
+    private int ticks;
+
+    /**
+     * The number of requested chunks not yet generated
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /**
+     * The number of chunks generated so far
+     */
+    private final LongAdder generated = new LongAdder();
+    /**
+     * Whether the final report has been logged
+     */
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    /**
+     * The time pre-generation started, and the time spent
+     * paused
+     */
+    private final long start = System.nanoTime();
+    @GuardedBy("this")
+    private long pausedNanos;
+    @GuardedBy("this")
+    private long pausedAt;
+    @Getter
+    private volatile boolean paused;
+    @Getter
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a new pre-generation of the chunks within the
+     * given radius of a center chunk.
+     *
+     * @param world the world to generate
+     * @param centerX the center chunk x coordinate
+     * @param centerZ the center chunk z coordinate
+     * @param radius the radius, in chunks
+     */
+    public WorldPregenerator(TridentWorld world, int centerX, int centerZ, int radius) {
+        this.world = world;
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.total = (2 * radius + 1) * (2 * radius + 1);
+    }
+
+    /**
+     * Requests the next chunks, if the last world tick was
+     * within budget, and reports progress periodically.
+     *
+     * @param lastTickNanos the duration of the last world
+     * tick
+     * @return {@code false} once pre-generation has
+     * finished or was cancelled
+     */
+    public synchronized boolean tick(long lastTickNanos) {
+        if (this.cancelled || this.isDone()) {
+            return false;
+        }
+
+        if (this.paused) {
+            return true;
+        }
+
+        if (++this.ticks % REPORT_TICKS == 0) {
+            LOGGER.log(this.status());
+        }
+
+        ServerConfig cfg = TridentServer.cfg();
+        int budget = cfg == null ? ServerConfig.DEFAULT_PREGEN_TICK_BUDGET : cfg.pregenTickBudget();
+        if (lastTickNanos > TimeUnit.MILLISECONDS.toNanos(budget)) {
+            return true;
+        }
+
+        while (this.requested < this.total && this.inFlight.get() < MAX_IN_FLIGHT) {
+            int cx = this.centerX + this.x;
+            int cz = this.centerZ + this.z;
+            this.step();
+
+            this.inFlight.incrementAndGet();
+            this.world.getChunkAtAsync(cx, cz).whenComplete((chunk, t) -> this.generated(chunk, t));
+        }
+
+        return true;
+    }
+
+    /**
+     * Moves to the next position in the spiral.
+     */
+    @GuardedBy("this")
+    private void step() {
+        this.requested++;
+        this.x += this.dx;
+        this.z += this.dz;
+        if (++this.legPassed == this.leg) {
+            this.legPassed = 0;
+
+            int dx = this.dx;
+            this.dx = -this.dz;
+            this.dz = dx;
+
+            // The leg grows by one every second turn
+            if ((++this.turns & 1) == 0) {
+                this.leg++;
+            }
+        }
+    }
+
+    /**
+     * Saves a generated chunk and unloads it if nothing
+     * else needs it.
+     */
+    private void generated(TridentChunk chunk, Throwable t) {
+        if (t == null) {
+            boolean unloaded = !this.world.getTickets().isRetained(chunk.getX(), chunk.getZ()) && chunk.unload();
+            if (!unloaded && chunk.isDirty()) {
+                this.world.getSaveQueue().save(chunk);
+            }
+        }
+
+        this.generated.increment();
+        int left = this.inFlight.decrementAndGet();
+
+        if (this.isDone() || this.cancelled && left == 0) {
+            this.report();
+        }
+    }
+
+    /**
+     * Logs the final report once every chunk has been
+     * generated, or once the chunks requested before
+     * pre-generation was cancelled have finished.
+     */
+    private void report() {
+        if (!this.finished.compareAndSet(false, true)) {
+            return;
+        }
+
+        long done = this.generated.sum();
+        long elapsed = this.elapsedNanos();
+        double rate = done / Math.max(elapsed / 1e9, 1e-3);
+        if (done >= this.total) {
+            LOGGER.success(String.format("Finished pre-generating %d chunks in world \"%s\" in %d s (%.1f chunks/s)",
+                    this.total, this.world.getName(), TimeUnit.NANOSECONDS.toSeconds(elapsed), rate));
+        } else {
+            LOGGER.warn(String.format("Cancelled pre-generating world \"%s\" after %d/%d chunks in %d s (%.1f chunks/s)",
+                    this.world.getName(), done, this.total, TimeUnit.NANOSECONDS.toSeconds(elapsed), rate));
+        }
+    }
+
+    /**
+     * Determines whether every chunk has been generated.
+     *
+     * @return {@code true} if pre-generation is done
+     */
+    public boolean isDone() {
+        return this.generated.sum() >= this.total;
+    }
+
+    /**
+     * Stops requesting chunks until resumed.
+     */
+    public synchronized void pause() {
+        if (!this.paused) {
+            this.paused = true;
+            this.pausedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Continues requesting chunks after a pause.
+     */
+    public synchronized void resume() {
+        if (this.paused) {
+            this.paused = false;
+            this.pausedNanos += System.nanoTime() - this.pausedAt;
+        }
+    }
+
+    /**
+     * Stops pre-generation, chunks already requested are
+     * still generated, saved and unloaded but no more are
+     * requested.
+     */
+    public synchronized void cancel() {
+        this.cancelled = true;
+        if (this.inFlight.get() == 0) {
+            this.report();
+        }
+    }
+
+    /**
+     * Obtains the time spent generating, not counting the
+     * time spent paused.
+     */
+    private synchronized long elapsedNanos() {
+        long now = System.nanoTime();
+        long paused = this.pausedNanos + (this.paused ? now - this.pausedAt : 0);
+        return now - this.start - paused;
+    }
+
+    /**
+     * Describes the progress of pre-generation, including
+     * the throughput, the estimated time left and the
+     * memory in use.
+     *
+     * @return the progress report
+     */
+    public String status() {
+        long done = this.generated.sum();
+        double seconds = Math.max(this.elapsedNanos() / 1e9, 1e-3);
+        double rate = done / seconds;
+        long eta = rate == 0 ? -1 : (long) ((this.total - done) / rate);
+
+        Runtime runtime = Runtime.getRuntime();
+        long used = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+        long max = runtime.maxMemory() >> 20;
+
+        return String.format("Pre-generating world \"%s\": %d/%d chunks (%.1f%%), %.1f chunks/s, ETA %s, memory %d/%d MB%s",
+                this.world.getName(), done, this.total, done * 100D / this.total, rate,
+                eta < 0 ? "unknown" : String.format("%d:%02d", eta / 60, eta % 60), used, max,
+                this.paused ? " (paused)" : "");
+    }
+}
@@ -17,19 +17,20 @@
 package net.tridentsdk.server.world.gen;
 
 import net.tridentsdk.base.Substance;
-import net.tridentsdk.server.util.UncheckedCdl;
 import net.tridentsdk.server.world.ChunkSection;
+import net.tridentsdk.server.world.HeightMap;
+import net.tridentsdk.server.world.TridentChunk;
 import net.tridentsdk.world.gen.GeneratorContext;
 
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
-import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReferenceArray;
-import java.util.concurrent.atomic.LongAdder;
-import java.util.function.Consumer;
 
 /**
  * Implementation of a generator context.
@@ -41,15 +42,10 @@ public class GeneratorContextImpl implements GeneratorContext {
      * context
      */
     private final Executor container;
-    /**
-     * The count of threads active for termination used
-     * for termination signalling
-     */
-    private final LongAdder count = new LongAdder();
     /**
      * Queue of generation tasks to be handle upon command
      */
-    private final Queue<Consumer<UncheckedCdl>> tasks = new ConcurrentLinkedQueue<>();
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
 
     /**
      * The seed to be used for generation
@@ -73,7 +69,7 @@ public class GeneratorContextImpl implements GeneratorContext {
     /**
      * Mapping of highest Y
      */
-    private final AtomicIntegerArray maxY = new AtomicIntegerArray(256);
+    private final HeightMap maxY = new HeightMap();
 
     /**
      * Creates a new generator context with the given seed
@@ -129,7 +125,7 @@ public class GeneratorContextImpl implements GeneratorContext {
 
     @Override
     public int maxHeight(int x, int z) {
-        return this.maxY.get(x << 4 | z & 0xF);
+        return this.maxY.get(x, z);
     }
 
     @Override
@@ -149,47 +145,25 @@ public class GeneratorContextImpl implements GeneratorContext {
 
     @Override
     public void run(Runnable r) {
-        this.count.increment();
-        this.tasks.offer((cdl) -> {
-            r.run();
-            cdl.countDown();
-        });
+        this.tasks.offer(r);
     }
 
     /**
      * Sends the command for the container to handle the tasks
-     * that were scheduled by the terrain generator.
+     * that were scheduled by the terrain generator and
+     * clears the queue so that the context can be reused
+     * for prop generators.
      *
-     * @param latch the count down latch used to await for
-     * the generation to finish before
-     * proceeding
+     * @return a future completed once every scheduled task
+     * has finished, without blocking the caller
      */
-    public void doRun(UncheckedCdl latch) {
-        for (Consumer<UncheckedCdl> consumer : this.tasks) {
-            this.container.execute(() -> consumer.accept(latch));
+    public CompletableFuture<Void> doRun() {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(this.tasks.size());
+        for (Runnable task = this.tasks.poll(); task != null; task = this.tasks.poll()) {
+            futures.add(CompletableFuture.runAsync(task, this.container));
         }
-    }
-
-    /**
-     * Obtains the latch in order to determine the amount
-     * of
-     * runs necessary to complete all of the scheduled
-     * generation tasks.
-     *
-     * @return the count down latch argument
-     */
-    public UncheckedCdl getCount() {
-        return new UncheckedCdl(this.count.intValue());
-    }
 
-    /**
-     * Resets the task runner and the available tasks left
-     * counter in order to reuse the same context for prop
-     * generators.
-     */
-    public void reset() {
-        this.count.reset();
-        this.tasks.clear();
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]));
     }
 
     /**
@@ -201,24 +175,28 @@ public class GeneratorContextImpl implements GeneratorContext {
      */
     public void copySections(AtomicReferenceArray<ChunkSection> sections) {
         for (int i = 0; i < this.sections.length(); i++) {
-            sections.set(i, this.sections.get(i));
+            ChunkSection section = this.sections.get(i);
+            if (section != null) {
+                // Drops the data array of uniform layers such
+                // as the stone of a flat world
+                section.compact();
+            }
+            sections.set(i, section);
         }
     }
 
     /**
-     * Copies the height map to the given array.
+     * Copies the height map to the given height map.
      *
      * <p>I've decided to copy here in order to remove an
      * extra volatile that would have been necessary if we
      * had actually set the array for generation to the
      * chunk array.</p>
      *
-     * @param array the array to copy to
+     * @param heights the height map to copy to
      */
-    public void copyHeights(AtomicIntegerArray array) {
-        for (int i = 0; i < array.length(); i++) {
-            array.set(i, this.maxY.get(i));
-        }
+    public void copyHeights(HeightMap heights) {
+        this.maxY.copyTo(heights);
     }
 
     /**
@@ -233,7 +211,6 @@ public class GeneratorContextImpl implements GeneratorContext {
     private void set(int x, int y, int z, short state) {
         int sectionIdx = section(y);
         int idx = idx(x, y & 15, z);
-        int xz = x << 4 | z & 0xF;
 
         ChunkSection section = this.sections.get(sectionIdx);
         if (section == null) {
@@ -249,15 +226,8 @@ public class GeneratorContextImpl implements GeneratorContext {
             }
         }
 
-        int lastMax;
-        do {
-            lastMax = this.maxY.get(xz);
-            if (y <= lastMax) {
-                break;
-            }
-        } while (!this.maxY.compareAndSet(xz, lastMax, y));
-
         section.set(idx, state);
+        TridentChunk.updateHeight(this.maxY, section, x, y, z);
     }
 
     /**
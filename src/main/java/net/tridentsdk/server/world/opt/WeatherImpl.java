@@ -164,7 +164,7 @@ public class WeatherImpl implements Weather {
                 if (cur.nextInt(100_000) == 69) {
                     int randX = cur.nextInt(16);
                     int randZ = cur.nextInt(16);
-                    PlayOutLightning lightning = new PlayOutLightning(c.getBlockAt(randX, c.getHighestY(randX, randZ), randZ).getPosition());
+                    PlayOutLightning lightning = new PlayOutLightning(c.getBlockAt(randX, Math.max(0, c.getHighestY(randX, randZ)), randZ).getPosition());
                     RecipientSelector.whoCanSee(c, null, lightning);
                 }
             }));
@@ -0,0 +1,144 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server;
+
+import net.tridentsdk.server.util.ConcurrentLong2ReferenceMap;
+import net.tridentsdk.server.util.Long2ReferenceOpenHashMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the striped concurrent chunk map with the
+ * previous synchronized open hash map under contention.
+ *
+ * <p>Keys are the chunks within a 32 chunk radius, which
+ * is about what a populated server keeps loaded. Lookups
+ * far outnumber insertions and removals, as on a live
+ * server.</p>
+ */
+@State(Scope.Benchmark)
+public class ChunkMapBenchmark {
+    private static final int RADIUS = 32;
+
+    private final Object lock = new Object();
+    private final Long2ReferenceOpenHashMap<Object> synced = new Long2ReferenceOpenHashMap<>();
+    private final ConcurrentLong2ReferenceMap<Object> concurrent = new ConcurrentLong2ReferenceMap<>();
+
+    @Setup
+    public void setup() {
+        for (int x = -RADIUS; x < RADIUS; x++) {
+            for (int z = -RADIUS; z < RADIUS; z++) {
+                Object value = new Object();
+                this.synced.put(key(x, z), value);
+                this.concurrent.put(key(x, z), value);
+            }
+        }
+    }
+
+    private static long key(int x, int z) {
+        return (long) x << 32 | z & 0xFFFFFFFFL;
+    }
+
+    private static long randomKey() {
+        ThreadLocalRandom current = ThreadLocalRandom.current();
+        return key(current.nextInt(-RADIUS, RADIUS), current.nextInt(-RADIUS, RADIUS));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(".*" + ChunkMapBenchmark.class.getSimpleName() + ".*")
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .mode(Mode.AverageTime)
+                .warmupIterations(20)
+                .measurementIterations(5)
+                .forks(1)
+                .threads(8)
+                .build();
+
+        new Runner(options).run();
+    }
+
+    @Fork
+    @Benchmark
+    public Object syncGet() {
+        long key = randomKey();
+        synchronized (this.lock) {
+            return this.synced.get(key);
+        }
+    }
+
+    @Fork
+    @Benchmark
+    public Object concurrentGet() {
+        return this.concurrent.get(randomKey());
+    }
+
+    @Fork
+    @Benchmark
+    public Object syncMixed() {
+        long key = randomKey();
+        synchronized (this.lock) {
+            if (ThreadLocalRandom.current().nextInt(16) == 0) {
+                Object value = this.synced.remove(key);
+                this.synced.put(key, value == null ? new Object() : value);
+                return value;
+            }
+
+            return this.synced.get(key);
+        }
+    }
+
+    @Fork
+    @Benchmark
+    public Object concurrentMixed() {
+        long key = randomKey();
+        if (ThreadLocalRandom.current().nextInt(16) == 0) {
+            Object value = this.concurrent.remove(key);
+            return this.concurrent.computeIfAbsent(key, k -> value == null ? new Object() : value);
+        }
+
+        return this.concurrent.get(key);
+    }
+
+    @Fork
+    @Benchmark
+    public int syncIterate() {
+        int count = 0;
+        synchronized (this.lock) {
+            for (Object o : this.synced.values()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Fork
+    @Benchmark
+    public int concurrentIterate() {
+        int count = 0;
+        for (Object o : this.concurrent.values()) {
+            count++;
+        }
+        return count;
+    }
+}
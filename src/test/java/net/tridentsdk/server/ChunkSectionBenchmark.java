@@ -0,0 +1,169 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server;
+
+import net.tridentsdk.server.world.ChunkSection;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compares the palette indexed chunk section storage with
+ * the previous layout, which stored every block as a raw
+ * 16 bit state.
+ *
+ * <p>Run {@link #main0(String[])} for the heap retained
+ * per loaded chunk and {@link #main(String[])} for the
+ * {@code set}/{@code dataAt} latency.</p>
+ */
+@State(Scope.Benchmark)
+public class ChunkSectionBenchmark {
+    private static final int SECTIONS_PER_CHUNK = 16;
+    private static final int CHUNKS = 1024;
+
+    private final ChunkSection section = new ChunkSection(true);
+    private final LegacySection legacy = new LegacySection();
+
+    @Setup
+    public void setup() {
+        ThreadLocalRandom current = ThreadLocalRandom.current();
+        for (int i = 0; i < 4096; i++) {
+            short state = state(current);
+            this.section.set(i, state);
+            this.legacy.set(i, state);
+        }
+    }
+
+    /**
+     * Obtains a block state from a distribution resembling
+     * generated terrain, which uses only a handful of
+     * blocks per section.
+     */
+    private static short state(ThreadLocalRandom random) {
+        return (short) (random.nextInt(8) << 4);
+    }
+
+    public static void main0(String[] args) {
+        ThreadLocalRandom current = ThreadLocalRandom.current();
+
+        Object[] retain = new Object[CHUNKS * SECTIONS_PER_CHUNK];
+        long before = usedHeap();
+        for (int i = 0; i < retain.length; i++) {
+            ChunkSection section = new ChunkSection(true);
+            for (int j = 0; j < 4096; j++) {
+                section.set(j, state(current));
+            }
+            retain[i] = section;
+        }
+        long palette = usedHeap() - before;
+
+        retain = new Object[CHUNKS * SECTIONS_PER_CHUNK];
+        before = usedHeap();
+        for (int i = 0; i < retain.length; i++) {
+            LegacySection section = new LegacySection();
+            for (int j = 0; j < 4096; j++) {
+                section.set(j, state(current));
+            }
+            retain[i] = section;
+        }
+        long legacy = usedHeap() - before;
+
+        System.out.printf("PALETTE: %d bytes/chunk, LEGACY: %d bytes/chunk (%d retained)%n",
+                palette / CHUNKS, legacy / CHUNKS, retain.length);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(".*" + ChunkSectionBenchmark.class.getSimpleName() + ".*")
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .mode(Mode.AverageTime)
+                .warmupIterations(20)
+                .measurementIterations(5)
+                .forks(1)
+                .threads(4)
+                .build();
+
+        new Runner(options).run();
+    }
+
+    @Fork
+    @Benchmark
+    public void paletteSet() {
+        ThreadLocalRandom current = ThreadLocalRandom.current();
+        this.section.set(current.nextInt(4096), state(current));
+    }
+
+    @Fork
+    @Benchmark
+    public short paletteDataAt() {
+        return this.section.dataAt(ThreadLocalRandom.current().nextInt(4096));
+    }
+
+    @Fork
+    @Benchmark
+    public void legacySet() {
+        ThreadLocalRandom current = ThreadLocalRandom.current();
+        this.legacy.set(current.nextInt(4096), state(current));
+    }
+
+    @Fork
+    @Benchmark
+    public short legacyDataAt() {
+        return this.legacy.dataAt(ThreadLocalRandom.current().nextInt(4096));
+    }
+
+    /**
+     * The previous section storage, 4 raw states per long.
+     */
+    private static final class LegacySection {
+        private final AtomicLongArray data = new AtomicLongArray(1024);
+
+        void set(int idx, short state) {
+            int spliceIdx = idx >>> 2;
+            int shift = (idx & 3) << 4;
+            long placeMask = ~(0xFFFFL << shift);
+            long shiftedState = (long) state << shift;
+
+            long oldSplice;
+            long newSplice;
+            do {
+                oldSplice = this.data.get(spliceIdx);
+                newSplice = oldSplice & placeMask | shiftedState;
+            } while (!this.data.compareAndSet(spliceIdx, oldSplice, newSplice));
+        }
+
+        short dataAt(int idx) {
+            int spliceIdx = idx >>> 2;
+            int shift = (idx & 3) << 4;
+            return (short) (this.data.get(spliceIdx) >>> shift & 0xFFFF);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server;
+
+import net.tridentsdk.server.world.LightEngine;
+import net.tridentsdk.server.world.TridentChunk;
+import net.tridentsdk.server.world.TridentWorld;
+import net.tridentsdk.util.Misc;
+import net.tridentsdk.world.opt.Dimension;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of relighting after a single block
+ * change and after a bulk edit of 46^3 (~97k) blocks.
+ */
+@State(Scope.Benchmark)
+public class LightBenchmark {
+    private static final TridentWorld world = new TridentWorld("world", Misc.HOME_PATH.resolve("server/world"), Dimension.OVERWORLD);
+    private static final LightEngine engine = world.getLightEngine();
+
+    private static final short GLOWSTONE = 89 << 4;
+    private static final short STONE = 1 << 4;
+    private static final short AIR = 0;
+    private static final int BULK_SIZE = 46;
+
+    private boolean lit;
+    private boolean filled;
+
+    static {
+        world.loadSpawnChunks();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(".*" + LightBenchmark.class.getSimpleName() + ".*")
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .mode(Mode.AverageTime)
+                .warmupIterations(20)
+                .measurementIterations(5)
+                .forks(1)
+                .threads(1)
+                .build();
+
+        new Runner(options).run();
+    }
+
+    private static void set(int x, int y, int z, short state) {
+        TridentChunk chunk = world.getChunkAt(x >> 4, z >> 4);
+        chunk.set(x & 15, y, z & 15, state);
+    }
+
+    @Fork
+    @Benchmark
+    public void singleChange() {
+        this.lit = !this.lit;
+        set(8, 100, 8, this.lit ? GLOWSTONE : AIR);
+        engine.update();
+    }
+
+    @Fork
+    @Benchmark
+    public void bulkChange() {
+        this.filled = !this.filled;
+        short state = this.filled ? STONE : AIR;
+
+        int base = -BULK_SIZE / 2;
+        for (int x = base; x < base + BULK_SIZE; x++) {
+            for (int z = base; z < base + BULK_SIZE; z++) {
+                for (int y = 80; y < 80 + BULK_SIZE; y++) {
+                    set(x, y, z, state);
+                }
+            }
+        }
+
+        // A light source inside the volume so that the
+        // block light is also relit
+        set(0, 80 + BULK_SIZE / 2, 0, GLOWSTONE);
+        engine.update();
+    }
+}
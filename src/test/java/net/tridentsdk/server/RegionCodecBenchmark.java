@@ -0,0 +1,137 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server;
+
+import net.tridentsdk.server.world.RegionCodec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Measures the throughput of encoding and decoding chunk
+ * data at each region compression level.
+ *
+ * <p>The chunk resembles generated terrain: 16 sections of
+ * stone with scattered ores up to a surface, then air, with
+ * their metadata and light arrays. {@code save} and
+ * {@code load} go through {@link RegionCodec} at the level
+ * given by the parameter, where 0 stores the data
+ * uncompressed. {@code streamSave} and {@code streamLoad}
+ * use a new deflater stream for every chunk, as region
+ * files used to.</p>
+ */
+@State(Scope.Benchmark)
+public class RegionCodecBenchmark {
+    private static final int SECTIONS = 16;
+    private static final int SURFACE = 64;
+
+    @Param({ "0", "1", "6", "9" })
+    private int level;
+
+    private byte[] chunk;
+    private byte[] encoded;
+    private byte[] deflated;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(SECTIONS * 10240);
+        for (int s = 0; s < SECTIONS; s++) {
+            byte[] blocks = new byte[4096];
+            byte[] skyLight = new byte[2048];
+            for (int i = 0; i < blocks.length; i++) {
+                int y = (s << 4) + (i >> 8);
+                if (y < SURFACE) {
+                    blocks[i] = (byte) (random.nextInt(50) == 0 ? 14 + random.nextInt(3) : 1);
+                } else {
+                    skyLight[i >> 1] = (byte) 0xFF;
+                }
+            }
+
+            out.write(blocks);
+            out.write(new byte[2048]);
+            out.write(new byte[2048]);
+            out.write(skyLight);
+        }
+        this.chunk = out.toByteArray();
+
+        this.encoded = RegionCodec.encode(this.chunk, this.chunk.length, this.level);
+        this.deflated = this.streamSave();
+        System.out.println(String.format("level %d: %d bytes -> %d bytes",
+                this.level, this.chunk.length, this.encoded.length));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(".*" + RegionCodecBenchmark.class.getSimpleName() + ".*")
+                .timeUnit(TimeUnit.SECONDS)
+                .mode(Mode.Throughput)
+                .warmupIterations(20)
+                .measurementIterations(5)
+                .forks(1)
+                .threads(8)
+                .build();
+
+        new Runner(options).run();
+    }
+
+    @Fork
+    @Benchmark
+    public byte[] save() {
+        return RegionCodec.encode(this.chunk, this.chunk.length, this.level);
+    }
+
+    @Fork
+    @Benchmark
+    public byte[] load() {
+        return RegionCodec.decode(RegionCodec.VERSION_DEFLATE, this.encoded);
+    }
+
+    @Fork
+    @Benchmark
+    public byte[] streamSave() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+            out.write(this.chunk);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Fork
+    @Benchmark
+    public byte[] streamLoad() throws IOException {
+        byte[] bytes = new byte[this.chunk.length];
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(this.deflated))) {
+            int off = 0;
+            int n;
+            while (off < bytes.length && (n = in.read(bytes, off, bytes.length - off)) > 0) {
+                off += n;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server;
+
+import net.tridentsdk.server.world.Region;
+import net.tridentsdk.server.world.RegionCodec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ways of reading and writing chunks in a region
+ * file from several threads at once.
+ *
+ * <p>The file is laid out like a full region, with 1024
+ * chunks of 2 sectors each after the 2 header sectors.
+ * {@code raf} seeks and reads a shared
+ * {@link RandomAccessFile} under a lock, as region files
+ * used to. {@code bufferedFileChannel} uses positional reads
+ * and writes on a shared {@link FileChannel} without
+ * locking. {@code memMappedChannel} copies from a mapping
+ * of the whole file.</p>
+ *
+ * <p>{@code regionRead} and {@code regionWrite} go through
+ * {@link Region} itself, including its chunk locks and
+ * header updates, on a region file holding the same 1024
+ * chunks stored uncompressed. The {@code regionMixed} group
+ * reads and writes that region file at the same time.</p>
+ */
+@State(Scope.Benchmark)
+public class RegionIoBenchmark {
+    private static final int SECTOR_BYTES = 4096;
+    private static final int CHUNKS = 1024;
+    private static final int CHUNK_SECTORS = 2;
+    private static final int CHUNK_BYTES = 6000;
+
+    private Path path;
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private RandomAccessFile raf;
+    private byte[] data;
+    private Path regionDir;
+    private Region region;
+
+    @Setup
+    public void setup() throws IOException {
+        this.path = Files.createTempFile("region", ".mca");
+        this.data = new byte[CHUNK_BYTES];
+        ThreadLocalRandom.current().nextBytes(this.data);
+
+        byte[] file = new byte[(2 + CHUNKS * CHUNK_SECTORS) * SECTOR_BYTES];
+        ThreadLocalRandom.current().nextBytes(file);
+        Files.write(this.path, file);
+
+        this.channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.map = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, file.length);
+        this.raf = new RandomAccessFile(this.path.toFile(), "rw");
+
+        this.regionDir = Files.createTempDirectory("region");
+        this.region = Region.acquire(this.regionDir.resolve("r.0.0.mca"), true);
+        Region.Batch batch = new Region.Batch();
+        for (int i = 0; i < CHUNKS; i++) {
+            batch.add(i & 31, i >> 5, RegionCodec.VERSION_NONE, this.data, CHUNK_BYTES);
+        }
+        this.region.write(batch, Region.Durability.NONE);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.raf.close();
+        this.channel.close();
+        Files.deleteIfExists(this.path);
+
+        this.region.release();
+        Region.closeAll();
+        Files.deleteIfExists(this.regionDir.resolve("r.0.0.mca"));
+        Files.deleteIfExists(this.regionDir);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(".*" + RegionIoBenchmark.class.getSimpleName() + ".*")
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .mode(Mode.AverageTime)
+                .warmupIterations(20)
+                .measurementIterations(5)
+                .forks(1)
+                .threads(8)
+                .build();
+
+        new Runner(options).run();
+    }
+
+    private static long randomChunk() {
+        int chunk = ThreadLocalRandom.current().nextInt(CHUNKS);
+        return (long) (2 + chunk * CHUNK_SECTORS) * SECTOR_BYTES;
+    }
+
+    @Fork
+    @Benchmark
+    public byte[] rafRead() throws IOException {
+        byte[] bytes = new byte[CHUNK_BYTES];
+        long position = randomChunk();
+        synchronized (this.raf) {
+            this.raf.seek(position);
+            this.raf.readFully(bytes);
+        }
+        return bytes;
+    }
+
+    @Fork
+    @Benchmark
+    public byte[] bufferedFileChannelRead() throws IOException {
+        byte[] bytes = new byte[CHUNK_BYTES];
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        long position = randomChunk();
+        while (buf.hasRemaining()) {
+            position += this.channel.read(buf, position);
+        }
+        return bytes;
+    }
+
+    @Fork
+    @Benchmark
+    public byte[] memMappedChannelRead() {
+        byte[] bytes = new byte[CHUNK_BYTES];
+        ByteBuffer map = this.map.duplicate();
+        map.position((int) randomChunk());
+        map.get(bytes);
+        return bytes;
+    }
+
+    @Fork
+    @Benchmark
+    public void rafWrite() throws IOException {
+        long position = randomChunk();
+        synchronized (this.raf) {
+            this.raf.seek(position);
+            this.raf.write(this.data);
+        }
+    }
+
+    @Fork
+    @Benchmark
+    public void bufferedFileChannelWrite() throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(this.data);
+        long position = randomChunk();
+        while (buf.hasRemaining()) {
+            position += this.channel.write(buf, position);
+        }
+    }
+
+    @Fork
+    @Benchmark
+    public void memMappedChannelWrite() {
+        ByteBuffer map = this.map.duplicate();
+        map.position((int) randomChunk());
+        map.put(this.data);
+    }
+
+    @Fork
+    @Benchmark
+    public byte[] regionRead() throws IOException {
+        int chunk = ThreadLocalRandom.current().nextInt(CHUNKS);
+        byte[] bytes = new byte[CHUNK_BYTES];
+        try (DataInputStream in = this.region.getChunkDataInputStream(chunk & 31, chunk >> 5)) {
+            in.readFully(bytes);
+        }
+        return bytes;
+    }
+
+    @Fork
+    @Benchmark
+    public void regionWrite() {
+        int chunk = ThreadLocalRandom.current().nextInt(CHUNKS);
+        this.region.write(chunk & 31, chunk >> 5, RegionCodec.VERSION_NONE, this.data, CHUNK_BYTES);
+    }
+
+    @Fork
+    @Benchmark
+    @Group("regionMixed")
+    @GroupThreads(6)
+    public byte[] regionMixedRead() throws IOException {
+        return this.regionRead();
+    }
+
+    @Fork
+    @Benchmark
+    @Group("regionMixed")
+    @GroupThreads(2)
+    public void regionMixedWrite() {
+        this.regionWrite();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server;
+
+import net.tridentsdk.server.world.Region;
+import net.tridentsdk.server.world.RegionCodec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many chunks per second can be saved to a
+ * region file from several threads at once.
+ *
+ * <p>Each operation writes a batch of random chunks of
+ * varying size to the same region file, so chunks keep
+ * moving to new sectors as they do when a world is edited.
+ * A batch of 1 writes chunks one at a time. Throughput is
+ * reported in batches, so it has to be multiplied by the
+ * batch size to compare chunks saved.</p>
+ */
+@State(Scope.Benchmark)
+public class RegionWriteBenchmark {
+    private static final int CHUNKS = 1024;
+    private static final int MIN_CHUNK_BYTES = 2000;
+    private static final int MAX_CHUNK_BYTES = 12000;
+
+    @Param({ "NONE", "BATCH", "SHUTDOWN" })
+    private Region.Durability durability;
+    @Param({ "1", "32" })
+    private int batchSize;
+
+    private Path dir;
+    private Region region;
+    private byte[] data;
+
+    @Setup
+    public void setup() throws IOException {
+        this.dir = Files.createTempDirectory("region");
+        this.region = Region.acquire(this.dir.resolve("r.0.0.mca"), true);
+        this.data = new byte[MAX_CHUNK_BYTES];
+        ThreadLocalRandom.current().nextBytes(this.data);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.region.release();
+        Region.closeAll();
+        Files.deleteIfExists(this.dir.resolve("r.0.0.mca"));
+        Files.deleteIfExists(this.dir);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(".*" + RegionWriteBenchmark.class.getSimpleName() + ".*")
+                .timeUnit(TimeUnit.SECONDS)
+                .mode(Mode.Throughput)
+                .warmupIterations(20)
+                .measurementIterations(5)
+                .forks(1)
+                .threads(8)
+                .build();
+
+        new Runner(options).run();
+    }
+
+    @Fork
+    @Benchmark
+    public void save() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Region.Batch batch = new Region.Batch();
+        for (int i = 0; i < this.batchSize; i++) {
+            int chunk = random.nextInt(CHUNKS);
+            int length = random.nextInt(MIN_CHUNK_BYTES, MAX_CHUNK_BYTES);
+            batch.add(chunk & 31, chunk >> 5, RegionCodec.VERSION_NONE, this.data, length);
+        }
+
+        this.region.write(batch, this.durability);
+    }
+}
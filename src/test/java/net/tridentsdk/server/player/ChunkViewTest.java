@@ -0,0 +1,147 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.player;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ChunkViewTest {
+    /**
+     * Collects the visited chunks, failing if one is
+     * visited twice.
+     */
+    private static final class Collector implements ChunkView.Visitor {
+        private final Set<Long> visited = new HashSet<>();
+        private final List<long[]> order = new ArrayList<>();
+
+        @Override
+        public void visit(int x, int z) {
+            assertTrue("visited twice: " + x + ", " + z, this.visited.add(key(x, z)));
+            this.order.add(new long[] { x, z });
+        }
+    }
+
+    private static long key(int x, int z) {
+        return (long) x << 32 | z & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Lists the chunks of the first square which are not in
+     * the second, one at a time.
+     */
+    private static Set<Long> naiveDifference(int ax, int az, int ar, int bx, int bz, int br) {
+        Set<Long> chunks = new HashSet<>();
+        for (int x = ax - ar; x <= ax + ar; x++) {
+            for (int z = az - ar; z <= az + ar; z++) {
+                if (Math.abs(x - bx) > br || Math.abs(z - bz) > br) {
+                    chunks.add(key(x, z));
+                }
+            }
+        }
+        return chunks;
+    }
+
+    private static Set<Long> naiveSquare(int cx, int cz, int radius) {
+        return naiveDifference(cx, cz, radius, cx, cz, -1);
+    }
+
+    private static Set<Long> difference(int ax, int az, int ar, int bx, int bz, int br) {
+        Collector collector = new Collector();
+        ChunkView.difference(ax, az, ar, bx, bz, br, collector);
+        return collector.visited;
+    }
+
+    @Test
+    public void squareVisitsEveryChunkOnce() {
+        Collector collector = new Collector();
+        ChunkView.square(-3, 7, 4, collector);
+        assertEquals(naiveSquare(-3, 7, 4), collector.visited);
+        assertEquals(81, collector.visited.size());
+    }
+
+    @Test
+    public void spiralVisitsSquareClosestFirst() {
+        for (int radius = 0; radius <= ChunkView.MAX_RADIUS; radius++) {
+            Collector collector = new Collector();
+            ChunkView.spiral(10, -20, radius, collector);
+            assertEquals(naiveSquare(10, -20, radius), collector.visited);
+
+            long last = 0;
+            for (long[] chunk : collector.order) {
+                long dx = chunk[0] - 10;
+                long dz = chunk[1] + 20;
+                long distance = dx * dx + dz * dz;
+                assertTrue("out of order at radius " + radius, distance >= last);
+                last = distance;
+            }
+        }
+    }
+
+    @Test
+    public void moveByOneVisitsOneStrip() {
+        int radius = 10;
+        Set<Long> entering = difference(1, 0, radius, 0, 0, radius);
+        Set<Long> leaving = difference(0, 0, radius, 1, 0, radius);
+        assertEquals(2 * radius + 1, entering.size());
+        assertEquals(2 * radius + 1, leaving.size());
+        for (int z = -radius; z <= radius; z++) {
+            assertTrue(entering.contains(key(1 + radius, z)));
+            assertTrue(leaving.contains(key(-radius, z)));
+        }
+
+        entering = difference(0, -1, radius, 0, 0, radius);
+        assertEquals(2 * radius + 1, entering.size());
+        for (int x = -radius; x <= radius; x++) {
+            assertTrue(entering.contains(key(x, -1 - radius)));
+        }
+    }
+
+    @Test
+    public void diagonalMoveVisitsTwoStrips() {
+        int radius = 10;
+        Set<Long> entering = difference(1, 1, radius, 0, 0, radius);
+        assertEquals(2 * (2 * radius + 1) - 1, entering.size());
+        assertEquals(naiveDifference(1, 1, radius, 0, 0, radius), entering);
+    }
+
+    @Test
+    public void radiusChangeVisitsRing() {
+        assertEquals(naiveDifference(0, 0, 8, 0, 0, 6), difference(0, 0, 8, 0, 0, 6));
+        assertEquals(17 * 17 - 13 * 13, difference(0, 0, 8, 0, 0, 6).size());
+        assertTrue(difference(0, 0, 6, 0, 0, 8).isEmpty());
+        assertTrue(difference(5, 5, 4, 5, 5, 4).isEmpty());
+    }
+
+    @Test
+    public void differenceMatchesNaive() {
+        Random random = new Random(0);
+        for (int i = 0; i < 2000; i++) {
+            int ar = random.nextInt(ChunkView.MAX_RADIUS + 1);
+            int br = random.nextInt(ChunkView.MAX_RADIUS + 1);
+            int ax = random.nextInt(200) - 100;
+            int az = random.nextInt(200) - 100;
+            int bx = ax + random.nextInt(2 * (ar + br) + 1) - ar - br;
+            int bz = az + random.nextInt(2 * (ar + br) + 1) - ar - br;
+
+            assertEquals("a=" + ax + "," + az + "," + ar + " b=" + bx + "," + bz + "," + br,
+                    naiveDifference(ax, az, ar, bx, bz, br), difference(ax, az, ar, bx, bz, br));
+        }
+    }
+}
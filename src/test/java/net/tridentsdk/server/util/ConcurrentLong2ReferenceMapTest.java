@@ -0,0 +1,205 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentLong2ReferenceMapTest {
+    private static final int THREADS = 8;
+    private static final int KEYS = 20000;
+
+    /**
+     * Runs the given task on several threads at once and
+     * rethrows the first failure.
+     */
+    private static void race(Callable<?> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get(30, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Obtains a key which does not share its low bits with
+     * its neighbours, so keys spread over every stripe.
+     */
+    private static long key(int i) {
+        return (long) i << 32 | i * 31L & 0xFFFFFFFFL;
+    }
+
+    @Test
+    public void putGetRemove() {
+        ConcurrentLong2ReferenceMap<String> map = new ConcurrentLong2ReferenceMap<>();
+        assertNull(map.put(1, "a"));
+        assertEquals("a", map.put(1, "b"));
+        assertEquals("b", map.get(1));
+        assertNull(map.get(2));
+        assertEquals(1, map.size());
+
+        assertFalse(map.remove(1, "a"));
+        assertTrue(map.remove(1, "b"));
+        assertNull(map.remove(1));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void growsAndIterates() {
+        ConcurrentLong2ReferenceMap<Long> map = new ConcurrentLong2ReferenceMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            map.put(key(i), key(i));
+        }
+        assertEquals(KEYS, map.size());
+
+        Set<Long> seen = new HashSet<>();
+        for (Long value : map.values()) {
+            assertTrue("value seen twice: " + value, seen.add(value));
+        }
+        assertEquals(KEYS, seen.size());
+
+        for (int i = 0; i < KEYS; i += 2) {
+            assertEquals(Long.valueOf(key(i)), map.remove(key(i)));
+        }
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(i % 2 == 0 ? null : Long.valueOf(key(i)), map.get(key(i)));
+        }
+        assertEquals(KEYS / 2, map.size());
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(key(1)));
+    }
+
+    @Test
+    public void computeIfAbsentUnderContention() throws Exception {
+        ConcurrentLong2ReferenceMap<Object> map = new ConcurrentLong2ReferenceMap<>();
+        AtomicInteger created = new AtomicInteger();
+        Object[][] results = new Object[THREADS][KEYS];
+        AtomicInteger threads = new AtomicInteger();
+
+        race(() -> {
+            Object[] result = results[threads.getAndIncrement()];
+            for (int i = 0; i < KEYS; i++) {
+                result[i] = map.computeIfAbsent(key(i), k -> {
+                    created.incrementAndGet();
+                    return new Object();
+                });
+            }
+            return null;
+        });
+
+        assertEquals(KEYS, created.get());
+        assertEquals(KEYS, map.size());
+        for (int i = 0; i < KEYS; i++) {
+            Object value = map.get(key(i));
+            for (Object[] result : results) {
+                assertSame(value, result[i]);
+            }
+        }
+    }
+
+    @Test
+    public void putAndRemoveUnderContention() throws Exception {
+        ConcurrentLong2ReferenceMap<Long> map = new ConcurrentLong2ReferenceMap<>();
+        AtomicInteger threads = new AtomicInteger();
+
+        // Each thread owns a range of keys, puts them all and
+        // removes every other one, while reading the others
+        race(() -> {
+            int from = threads.getAndIncrement() * KEYS;
+            for (int i = from; i < from + KEYS; i++) {
+                assertNull(map.put(key(i), key(i)));
+            }
+            for (int i = from; i < from + KEYS; i += 2) {
+                assertEquals(Long.valueOf(key(i)), map.remove(key(i)));
+            }
+            for (int i = from + 1; i < from + KEYS; i += 2) {
+                assertEquals(Long.valueOf(key(i)), map.get(key(i)));
+            }
+            return null;
+        });
+
+        assertEquals(THREADS * KEYS / 2, map.size());
+        for (int i = 0; i < THREADS * KEYS; i++) {
+            assertEquals(i % 2 == 0 ? null : Long.valueOf(key(i)), map.get(key(i)));
+        }
+    }
+
+    @Test
+    public void readersSeeConsistentValuesWhileWritersResize() throws Exception {
+        ConcurrentLong2ReferenceMap<Long> map = new ConcurrentLong2ReferenceMap<>();
+        AtomicInteger threads = new AtomicInteger();
+        AtomicBoolean done = new AtomicBoolean();
+
+        // Half of the threads keep growing and shrinking the
+        // map, the other half read and iterate it
+        race(() -> {
+            int id = threads.getAndIncrement();
+            if (id < THREADS / 2) {
+                for (int round = 0; round < 4; round++) {
+                    for (int i = id; i < KEYS; i += THREADS / 2) {
+                        map.put(key(i), key(i));
+                    }
+                    for (int i = id; i < KEYS; i += THREADS / 2) {
+                        map.remove(key(i));
+                    }
+                }
+                done.set(true);
+            } else {
+                while (!done.get()) {
+                    for (int i = 0; i < KEYS; i += 7) {
+                        Long value = map.get(key(i));
+                        assertTrue(value == null || value == key(i));
+                    }
+                    for (Long value : map.values()) {
+                        assertNotNull(value);
+                    }
+                }
+            }
+            return null;
+        });
+
+        assertEquals(0, map.size());
+    }
+}
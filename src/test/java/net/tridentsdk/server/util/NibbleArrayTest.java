@@ -0,0 +1,155 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class NibbleArrayTest {
+    private static final int LENGTH = 2048;
+    private static final int NIBBLES = LENGTH * 2;
+
+    private static void assertAll(NibbleArray array, byte value) {
+        for (int i = 0; i < NIBBLES; i++) {
+            assertEquals("nibble " + i, value, array.getByte(i));
+        }
+    }
+
+    @Test
+    public void newArrayIsDark() {
+        NibbleArray array = new NibbleArray(LENGTH);
+        assertAll(array, (byte) 0);
+        assertArrayEquals(new byte[LENGTH], array.write());
+    }
+
+    @Test
+    public void fillIsConstant() {
+        NibbleArray array = new NibbleArray(LENGTH);
+        array.fill((byte) 15);
+        assertAll(array, (byte) 15);
+
+        byte[] expected = new byte[LENGTH];
+        Arrays.fill(expected, (byte) 0xFF);
+        assertArrayEquals(expected, array.write());
+
+        // Writing the constant value keeps it constant
+        array.setByte(100, (byte) 15);
+        assertAll(array, (byte) 15);
+    }
+
+    @Test
+    public void firstWriteCopiesConstant() {
+        NibbleArray array = new NibbleArray(LENGTH);
+        array.fill((byte) 15);
+
+        // Even and odd nibbles of the same byte, and the
+        // last nibble of the array
+        array.setByte(4, (byte) 3);
+        array.setByte(5, (byte) 7);
+        array.setByte(NIBBLES - 1, (byte) 0);
+
+        for (int i = 0; i < NIBBLES; i++) {
+            byte expected = i == 4 ? 3 : i == 5 ? 7 : i == NIBBLES - 1 ? 0 : (byte) 15;
+            assertEquals("nibble " + i, expected, array.getByte(i));
+        }
+
+        byte[] bytes = array.write();
+        assertEquals((byte) 0x73, bytes[2]);
+        assertEquals((byte) 0x0F, bytes[LENGTH - 1]);
+        assertEquals((byte) 0xFF, bytes[1]);
+        assertEquals((byte) 0xFF, bytes[3]);
+    }
+
+    @Test
+    public void fillDiscardsWrites() {
+        NibbleArray array = new NibbleArray(LENGTH);
+        array.setByte(10, (byte) 9);
+        array.fill((byte) 4);
+        assertAll(array, (byte) 4);
+
+        array.setByte(10, (byte) 9);
+        assertEquals(9, array.getByte(10));
+        assertEquals(4, array.getByte(11));
+    }
+
+    @Test
+    public void readKeepsUniformBytesConstant() {
+        byte[] bytes = new byte[LENGTH];
+        Arrays.fill(bytes, (byte) 0x66);
+
+        NibbleArray array = new NibbleArray(LENGTH);
+        array.read(bytes);
+        assertAll(array, (byte) 6);
+        assertArrayEquals(bytes, array.write());
+    }
+
+    @Test
+    public void readWriteRoundTrip() {
+        byte[] bytes = new byte[LENGTH];
+        new Random(0).nextBytes(bytes);
+
+        NibbleArray array = new NibbleArray(LENGTH);
+        array.read(bytes);
+        for (int i = 0; i < NIBBLES; i++) {
+            assertEquals(NibbleArray.getNibble(bytes, i), array.getByte(i));
+        }
+        assertArrayEquals(bytes, array.write());
+    }
+
+    @Test
+    public void concurrentFirstWritesAreKept() throws Exception {
+        int threads = 8;
+        NibbleArray array = new NibbleArray(LENGTH);
+        array.fill((byte) 15);
+
+        // Every thread writes its own nibbles, all starting
+        // from the constant at the same time
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CyclicBarrier start = new CyclicBarrier(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = id; i < NIBBLES; i += threads) {
+                        array.setByte(i, (byte) id);
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int i = 0; i < NIBBLES; i++) {
+            assertEquals("nibble " + i, i % threads, array.getByte(i));
+        }
+    }
+}
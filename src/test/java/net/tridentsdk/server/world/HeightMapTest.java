@@ -0,0 +1,132 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class HeightMapTest {
+    @Test
+    public void emptyColumnsAreNegative() {
+        HeightMap map = new HeightMap();
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                assertEquals(-1, map.get(x, z));
+            }
+        }
+    }
+
+    @Test
+    public void blockAtZeroIsNotEmpty() {
+        HeightMap map = new HeightMap();
+        map.update(2, 0, 3, true);
+        assertEquals(0, map.get(2, 3));
+        assertEquals(-1, map.get(3, 2));
+
+        map.update(2, 0, 3, false);
+        assertEquals(-1, map.get(2, 3));
+    }
+
+    @Test
+    public void setTracksHighestBlock() {
+        HeightMap map = new HeightMap();
+        map.update(3, 10, 4, true);
+        assertEquals(10, map.get(3, 4));
+
+        map.update(3, 70, 4, true);
+        assertEquals(70, map.get(3, 4));
+
+        // Lower blocks do not change the height
+        map.update(3, 5, 4, true);
+        assertEquals(70, map.get(3, 4));
+
+        map.update(3, 255, 4, true);
+        assertEquals(255, map.get(3, 4));
+    }
+
+    @Test
+    public void clearFallsBackToNextHighestBlock() {
+        HeightMap map = new HeightMap();
+        map.update(7, 10, 9, true);
+        map.update(7, 63, 9, true);
+        map.update(7, 64, 9, true);
+        map.update(7, 200, 9, true);
+
+        map.update(7, 200, 9, false);
+        assertEquals(64, map.get(7, 9));
+
+        // Crosses from the second word into the first
+        map.update(7, 64, 9, false);
+        assertEquals(63, map.get(7, 9));
+
+        // Clearing a block below the highest one does not
+        // change the height
+        map.update(7, 10, 9, false);
+        assertEquals(63, map.get(7, 9));
+
+        map.update(7, 63, 9, false);
+        assertEquals(-1, map.get(7, 9));
+    }
+
+    @Test
+    public void clearIsIdempotent() {
+        HeightMap map = new HeightMap();
+        map.update(0, 40, 0, false);
+        assertEquals(-1, map.get(0, 0));
+
+        map.update(0, 40, 0, true);
+        map.update(0, 40, 0, true);
+        map.update(0, 40, 0, false);
+        assertEquals(-1, map.get(0, 0));
+    }
+
+    @Test
+    public void columnsAreIndependent() {
+        HeightMap map = new HeightMap();
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                map.update(x, x * 16 + z, z, true);
+            }
+        }
+
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                assertEquals(x * 16 + z, map.get(x, z));
+            }
+        }
+
+        map.update(15, 255, 15, false);
+        assertEquals(-1, map.get(15, 15));
+        assertEquals(254, map.get(15, 14));
+    }
+
+    @Test
+    public void copyToCopiesEveryColumn() {
+        HeightMap map = new HeightMap();
+        map.update(1, 100, 2, true);
+        map.update(15, 3, 0, true);
+
+        HeightMap copy = new HeightMap();
+        copy.update(5, 5, 5, true);
+        map.copyTo(copy);
+
+        assertEquals(100, copy.get(1, 2));
+        assertEquals(3, copy.get(15, 0));
+        assertEquals(-1, copy.get(5, 5));
+    }
+}
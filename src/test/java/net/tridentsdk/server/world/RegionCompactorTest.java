@@ -0,0 +1,142 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RegionCompactorTest {
+    private static final int CHUNKS = 64;
+
+    private Path dir;
+    private Path path;
+    private byte[][] chunks;
+
+    @Before
+    public void setup() throws IOException {
+        this.dir = Files.createTempDirectory("region");
+        this.path = this.dir.resolve("r.0.0.mca");
+
+        // Write every chunk small, then again larger so they
+        // move and leave free sectors behind
+        Random random = new Random(0);
+        this.chunks = new byte[CHUNKS][];
+        Region region = Region.acquire(this.path, true);
+        try {
+            for (int round = 0; round < 2; round++) {
+                Region.Batch batch = new Region.Batch();
+                for (int i = 0; i < CHUNKS; i++) {
+                    byte[] data = new byte[(round + 1) * 3000 + random.nextInt(2000)];
+                    random.nextBytes(data);
+                    this.chunks[i] = data;
+                    batch.add(i & 31, i >> 5, RegionCodec.VERSION_NONE, data, data.length);
+                }
+                region.write(batch, Region.Durability.NONE);
+            }
+        } finally {
+            region.release();
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Region.closeAll();
+        Files.deleteIfExists(RegionCompactor.tempFile(this.path));
+        Files.deleteIfExists(this.path);
+        Files.deleteIfExists(this.dir);
+    }
+
+    private void assertChunks(Region region) throws IOException {
+        for (int i = 0; i < CHUNKS; i++) {
+            byte[] expected = this.chunks[i];
+            byte[] actual = new byte[expected.length];
+            try (DataInputStream in = region.getChunkDataInputStream(i & 31, i >> 5)) {
+                assertNotNull("chunk " + i, in);
+                in.readFully(actual);
+                assertEquals(-1, in.read());
+            }
+            assertArrayEquals("chunk " + i, expected, actual);
+        }
+
+        assertFalse(region.hasChunk(CHUNKS & 31, CHUNKS >> 5));
+    }
+
+    @Test
+    public void compactOfflineKeepsChunks() throws IOException {
+        Region.closeAll();
+        long before = Files.size(this.path);
+
+        RegionCompactor.Result result = RegionCompactor.compact(this.path);
+        assertEquals(CHUNKS, result.getChunks());
+        assertEquals(0, result.getDropped());
+        assertEquals(before, result.getBytesBefore());
+        assertEquals(Files.size(this.path), result.getBytesAfter());
+        assertTrue(result.getReclaimed() > 0);
+        assertFalse(Files.exists(RegionCompactor.tempFile(this.path)));
+
+        Region region = Region.acquire(this.path, false);
+        try {
+            assertEquals(0, region.getFreeSectors());
+            this.assertChunks(region);
+        } finally {
+            region.release();
+        }
+    }
+
+    @Test
+    public void compactOpenRegionKeepsChunks() throws IOException {
+        Region region = Region.acquire(this.path, false);
+        try {
+            assertTrue(region.getFreeSectors() > 0);
+
+            RegionCompactor.Result result = region.compact();
+            assertEquals(CHUNKS, result.getChunks());
+            assertTrue(result.getReclaimed() > 0);
+            assertEquals(0, region.getFreeSectors());
+            this.assertChunks(region);
+
+            // Chunks written after compacting are appended
+            // and can be read back along with the rest
+            byte[] data = new byte[5000];
+            new Random(1).nextBytes(data);
+            region.write(0, 0, RegionCodec.VERSION_NONE, data, data.length);
+            this.chunks[0] = data;
+            this.assertChunks(region);
+        } finally {
+            region.release();
+        }
+
+        // The compacted file is read back the same once
+        // reopened
+        Region.closeAll();
+        region = Region.acquire(this.path, false);
+        try {
+            this.assertChunks(region);
+        } finally {
+            region.release();
+        }
+    }
+}
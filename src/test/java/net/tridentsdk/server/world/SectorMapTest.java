@@ -0,0 +1,122 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.server.world;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SectorMapTest {
+    /**
+     * Creates a map of a region file holding only its 2
+     * header sectors.
+     */
+    private static SectorMap header() {
+        SectorMap map = new SectorMap(2);
+        map.set(0, 2);
+        return map;
+    }
+
+    @Test
+    public void newMapIsFree() {
+        SectorMap map = new SectorMap(100);
+        assertEquals(100, map.size());
+        assertEquals(100, map.free());
+
+        map.set(10, 5);
+        assertEquals(95, map.free());
+        map.clear(10, 5);
+        assertEquals(100, map.free());
+    }
+
+    @Test
+    public void fullFileGrowsAtTail() {
+        SectorMap map = header();
+        assertEquals(2, map.allocate(3));
+        assertEquals(5, map.size());
+        assertEquals(0, map.free());
+
+        assertEquals(5, map.allocate(1));
+        assertEquals(6, map.size());
+    }
+
+    @Test
+    public void freeRunAtEndIsExtended() {
+        SectorMap map = header();
+        map.set(2, 4);
+        map.clear(4, 2);
+        assertEquals(6, map.size());
+        assertEquals(2, map.free());
+
+        // The 2 free sectors at the end are reused and the
+        // file only grows by the remaining 3
+        assertEquals(4, map.allocate(5));
+        assertEquals(9, map.size());
+        assertEquals(0, map.free());
+    }
+
+    @Test
+    public void smallestFittingRunIsUsed() {
+        SectorMap map = header();
+        map.set(2, 20);
+
+        // Holes of 5, 1 and 3 sectors, in that order
+        map.clear(3, 5);
+        map.clear(10, 1);
+        map.clear(14, 3);
+        assertEquals(9, map.free());
+
+        assertEquals(10, map.allocate(1));
+        assertEquals(14, map.allocate(3));
+        assertEquals(3, map.allocate(4));
+        assertEquals(1, map.free());
+
+        // Only the sector left over from the 5 sector hole
+        // is free, so a 2 sector chunk goes at the end
+        assertEquals(22, map.allocate(2));
+        assertEquals(24, map.size());
+        assertEquals(7, map.allocate(1));
+        assertEquals(0, map.free());
+    }
+
+    @Test
+    public void runsAcrossWords() {
+        SectorMap map = header();
+        map.set(2, 200);
+        assertEquals(202, map.size());
+
+        // A hole spanning the boundary of the first and
+        // second word, and one inside the third word
+        map.clear(60, 10);
+        map.clear(140, 6);
+        assertEquals(16, map.free());
+
+        assertEquals(140, map.allocate(6));
+        assertEquals(60, map.allocate(8));
+        assertEquals(2, map.free());
+        assertEquals(68, map.allocate(2));
+        assertEquals(0, map.free());
+    }
+
+    @Test
+    public void clearPastEndIsIgnored() {
+        SectorMap map = header();
+        map.clear(1, 100);
+        assertEquals(2, map.size());
+        assertEquals(1, map.free());
+    }
+}